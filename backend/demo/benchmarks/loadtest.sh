@@ -0,0 +1,58 @@
+#!/bin/bash
+# So sánh throughput / độ trễ đuôi giữa platform thread và virtual thread trên cùng máy.
+#
+# Cần JDK 21, MySQL đang chạy và các biến môi trường của app (DB_URL, DB_USERNAME, DB_PASSWORD,
+# JWT_BASE64_SECRET, ... như env.example). Chạy từ thư mục backend/demo:
+#   bash benchmarks/loadtest.sh
+# Tuỳ chỉnh: CONCURRENCY=400 DURATION=60 WARMUP=15 SCENARIOS=users,social PORT=8080
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+CONCURRENCY=${CONCURRENCY:-200}
+DURATION=${DURATION:-30}
+WARMUP=${WARMUP:-10}
+SCENARIOS=${SCENARIOS:-login,users,social}
+PORT=${PORT:-8080}
+OUT=${OUT:-benchmarks/target/loadtest-$(date +%Y%m%d-%H%M%S).csv}
+
+mvn -B -q -Pjava21 install -DskipTests
+mvn -B -q -f benchmarks/pom.xml package
+
+APP_JAR=target/demo-0.0.1-SNAPSHOT-exec.jar
+APP_PID=
+
+stop_app() {
+    if [ -n "$APP_PID" ]; then
+        kill "$APP_PID" 2>/dev/null || true
+        wait "$APP_PID" 2>/dev/null || true
+        APP_PID=
+    fi
+}
+trap stop_app EXIT
+
+run_profile() {
+    local label=$1 profiles=$2
+    echo ">>> Khởi động app: $label (profiles=$profiles)"
+    SERVER_PORT=$PORT SPRING_PROFILES_ACTIVE=$profiles java -jar "$APP_JAR" > "benchmarks/target/app-$label.log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 120); do
+        if curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; then
+            break
+        fi
+        sleep 1
+    done
+    java -cp benchmarks/target/benchmarks.jar com.example.demo.benchmarks.LoadTest \
+        --url "http://localhost:$PORT" --scenarios "$SCENARIOS" --concurrency "$CONCURRENCY" \
+        --duration "$DURATION" --warmup "$WARMUP" --label "$label" --out "$OUT"
+    # số lần virtual thread bị ghim (chỉ có với profile vthreads)
+    curl -s "http://localhost:$PORT/actuator/metrics/threads.virtual.pinned" || true
+    echo
+    stop_app
+}
+
+run_profile platform oauth-stub
+run_profile vthreads oauth-stub,vthreads
+
+echo ">>> Kết quả: $OUT"
+column -s, -t < "$OUT"
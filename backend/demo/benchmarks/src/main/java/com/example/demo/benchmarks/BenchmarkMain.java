@@ -0,0 +1,25 @@
+package com.example.demo.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point của benchmarks.jar: giống org.openjdk.jmh.Main nhưng luôn bật
+ * GC profiler để báo cáo allocation/op bên cạnh throughput.
+ *
+ * Ví dụ: java -jar benchmarks.jar PermissionInterceptorBenchmark -p permissionsPerRole=1000
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(cli)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
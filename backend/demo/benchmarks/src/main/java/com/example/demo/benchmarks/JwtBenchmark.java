@@ -0,0 +1,171 @@
+package com.example.demo.benchmarks;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.config.AuthorizationIndex;
+import com.example.demo.config.CachingJwtDecoder;
+import com.example.demo.domain.Role;
+import com.example.demo.domain.response.ResLoginDTO;
+import com.example.demo.repository.PermissionRepository;
+import com.example.demo.util.HmacJwtCodec;
+import com.example.demo.util.SecurityUtil;
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Phát hành và xác thực JWT HS512.
+ *
+ * - createAccessToken / createRefreshToken / checkValidRefreshToken: đi qua SecurityUtil
+ *   (HmacJwtCodec, khóa init sẵn)
+ * - resourceServerDecode: decoder của resource server khi cache miss
+ * - cachedResourceServerDecode: jwtDecoder bean khi token đã nằm trong CachingJwtDecoder
+ * - legacy*: cách cũ - NimbusJwtEncoder/NimbusJwtDecoder tra JWK và tạo Mac mỗi token,
+ *   checkValidRefreshToken dựng SecretKeySpec + NimbusJwtDecoder mới mỗi lần gọi
+ *
+ * permissionClaims=true thêm perm_bits/perm_ver cho role 1.000 permission để payload
+ * có kích thước giống token thật khi bật phân quyền theo claim.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final long ROLE_ID = 1L;
+    private static final String EMAIL = "thi.sinh.nguyen.van.a@example.com";
+
+    @Param({ "false", "true" })
+    public boolean permissionClaims;
+
+    private byte[] keyBytes;
+    private SecurityUtil securityUtil;
+    private JwtDecoder resourceServerDecoder;
+    private JwtDecoder cachingDecoder;
+    private JwtEncoder legacyEncoder;
+    private JwtDecoder legacyDecoder;
+    private ResLoginDTO login;
+    private JwtClaimsSet legacyClaims;
+    private String accessToken;
+    private String refreshToken;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keyBytes = new byte[64];
+        new SecureRandom().nextBytes(keyBytes);
+        SecretKey key = secretKey(keyBytes);
+
+        PermissionRepository repository = Stubs.of(PermissionRepository.class, Map.of(
+                "findAllPermissionRoutes", args -> PermissionInterceptorBenchmark.syntheticRoutes(1000)));
+        AuthorizationIndex index = new AuthorizationIndex(repository);
+        index.refresh();
+
+        HmacJwtCodec codec = new HmacJwtCodec(key, SecurityUtil.JWT_ALGORITHM);
+        securityUtil = new SecurityUtil(codec, index);
+        ReflectionTestUtils.setField(securityUtil, "permissionClaimsEnabled", permissionClaims);
+        ReflectionTestUtils.setField(securityUtil, "accessTokenExpiration", 3600L);
+        ReflectionTestUtils.setField(securityUtil, "refreshTokenExpiration", 864000L);
+        resourceServerDecoder = codec.decoder();
+        cachingDecoder = new CachingJwtDecoder(resourceServerDecoder, 10_000, Clock.systemUTC(),
+                new SimpleMeterRegistry());
+
+        legacyEncoder = new NimbusJwtEncoder(new ImmutableSecret<>(key));
+        legacyDecoder = NimbusJwtDecoder.withSecretKey(key).macAlgorithm(SecurityUtil.JWT_ALGORITHM).build();
+
+        Role role = new Role();
+        role.setId(ROLE_ID);
+        role.setName("ROLE_THI_SINH");
+        login = new ResLoginDTO();
+        login.setUser(new ResLoginDTO.UserLogin(42L, EMAIL, "Nguyễn Văn A", false, null, null, false, role, 0L));
+
+        accessToken = securityUtil.createAccessToken(EMAIL, login);
+        refreshToken = securityUtil.createRefreshToken(EMAIL, login);
+        Map<String, Object> issued = legacyDecoder.decode(accessToken).getClaims();
+        legacyClaims = JwtClaimsSet.builder().claims(c -> c.putAll(issued)).build();
+    }
+
+    @Benchmark
+    public String createAccessToken() {
+        return securityUtil.createAccessToken(EMAIL, login);
+    }
+
+    @Benchmark
+    public String createRefreshToken() {
+        return securityUtil.createRefreshToken(EMAIL, login);
+    }
+
+    @Benchmark
+    public Jwt checkValidRefreshToken() {
+        return securityUtil.checkValidRefreshToken(refreshToken);
+    }
+
+    @Benchmark
+    public Jwt resourceServerDecode() {
+        return resourceServerDecoder.decode(accessToken);
+    }
+
+    @Benchmark
+    public Jwt cachedResourceServerDecode() {
+        return cachingDecoder.decode(accessToken);
+    }
+
+    @Benchmark
+    public String legacyCreateAccessToken() {
+        // claim giống hệt createAccessToken, chỉ khác encoder
+        Instant now = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.from(legacyClaims)
+                .issuedAt(now)
+                .expiresAt(now.plus(3600, ChronoUnit.SECONDS))
+                .build();
+        JwsHeader header = JwsHeader.with(SecurityUtil.JWT_ALGORITHM).build();
+        return legacyEncoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+    }
+
+    @Benchmark
+    public Jwt legacyCheckValidRefreshToken() {
+        NimbusJwtDecoder decoder = NimbusJwtDecoder.withSecretKey(secretKey(keyBytes))
+                .macAlgorithm(SecurityUtil.JWT_ALGORITHM).build();
+        return decoder.decode(refreshToken);
+    }
+
+    @Benchmark
+    public Jwt legacyResourceServerDecode() {
+        return legacyDecoder.decode(accessToken);
+    }
+
+    private static SecretKey secretKey(byte[] keyBytes) {
+        return new SecretKeySpec(keyBytes, 0, keyBytes.length, SecurityUtil.JWT_ALGORITHM.getName());
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.demo.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Load test HTTP vòng kín (mỗi worker gửi request kế tiếp ngay khi nhận response) chạy
+ * vào một instance đang chạy, để so sánh profile platform thread và vthreads trên cùng máy.
+ *
+ * Kịch bản:
+ * - login: POST /api/v1/auth/login (BCrypt trên pool riêng)
+ * - users: GET /api/v1/users/fetch-all bằng token admin (PermissionInterceptor + JDBC)
+ * - social: GET /api/v1/auth/social/callback qua provider giả lập (app chạy profile oauth-stub)
+ *
+ * Ví dụ:
+ * java -cp benchmarks.jar com.example.demo.benchmarks.LoadTest --url http://localhost:8080 \
+ *     --scenarios users,social --concurrency 200 --duration 30 --warmup 10 --label vthreads --out result.csv
+ *
+ * Mỗi kịch bản in ra rps, p50/p95/p99/p99.9/max (ms) và số lỗi (status ngoài 2xx/3xx hoặc
+ * exception); --out ghi thêm một dòng CSV để loadtest.sh ghép kết quả hai profile.
+ */
+public class LoadTest {
+
+    private static final String ADMIN_LOGIN = "{\"email\":\"admin@gmail.com\",\"password\":\"123456\"}";
+    private static final String CSV_HEADER = "label,scenario,concurrency,requests,errors,rps,p50_ms,p95_ms,p99_ms,p999_ms,max_ms";
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String baseUrl;
+    private final int concurrency;
+    private final Duration duration;
+    private final Duration warmup;
+
+    LoadTest(String baseUrl, int concurrency, Duration duration, Duration warmup) {
+        this.baseUrl = baseUrl;
+        this.concurrency = concurrency;
+        this.duration = duration;
+        this.warmup = warmup;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        LoadTest test = new LoadTest(
+                options.getOrDefault("url", "http://localhost:8080"),
+                Integer.parseInt(options.getOrDefault("concurrency", "200")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30"))),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10"))));
+        String label = options.getOrDefault("label", "run");
+        String out = options.get("out");
+
+        for (String scenario : options.getOrDefault("scenarios", "login,users,social").split(",")) {
+            Result result = test.run(scenario.trim());
+            System.out.println(result.format(label));
+            if (out != null) {
+                result.appendCsv(Path.of(out), label);
+            }
+        }
+    }
+
+    Result run(String scenario) throws Exception {
+        LongFunction<HttpRequest> requests = switch (scenario) {
+            case "login" -> n -> loginRequest();
+            case "users" -> {
+                String token = adminToken();
+                yield n -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/users/fetch-all"))
+                        .header("Authorization", "Bearer " + token)
+                        .timeout(Duration.ofSeconds(30))
+                        .build();
+            }
+            // mỗi request một code khác nhau -> user khác nhau (lần đầu tạo mới, các vòng sau đăng nhập lại)
+            case "social" -> n -> HttpRequest.newBuilder(URI.create(baseUrl
+                    + "/api/v1/auth/social/callback?login_type=google&code=loadtest" + (n % 10_000)))
+                    .timeout(Duration.ofSeconds(30))
+                    .build();
+            default -> throw new IllegalArgumentException("Kịch bản không hợp lệ: " + scenario);
+        };
+
+        System.out.println(">>> " + scenario + ": warm-up " + warmup.toSeconds() + "s");
+        drive(requests, warmup);
+        System.out.println(">>> " + scenario + ": đo " + duration.toSeconds() + "s, " + concurrency + " worker");
+        Recorder recorder = drive(requests, duration);
+        return recorder.result(scenario, concurrency, duration);
+    }
+
+    private Recorder drive(LongFunction<HttpRequest> requests, Duration period) throws InterruptedException {
+        Recorder recorder = new Recorder(concurrency);
+        AtomicLong sequence = new AtomicLong();
+        long deadline = System.nanoTime() + period.toNanos();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            int worker = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = requests.apply(sequence.getAndIncrement());
+                        long start = System.nanoTime();
+                        boolean ok;
+                        try {
+                            int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            ok = status < 400;
+                        } catch (IOException e) {
+                            ok = false;
+                        }
+                        recorder.record(worker, System.nanoTime() - start, ok);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "loadtest-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        return recorder;
+    }
+
+    private HttpRequest loginRequest() {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(ADMIN_LOGIN))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    private String adminToken() throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(loginRequest(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Đăng nhập admin thất bại: " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body()).path("data").path("access_token").asText();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Tham số không hợp lệ: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    /**
+     * Độ trễ theo từng worker (không chia sẻ để tránh tranh chấp), gộp lại khi kết thúc
+     */
+    static final class Recorder {
+
+        private final List<List<Long>> latencies = new ArrayList<>();
+        private final long[] errors;
+
+        Recorder(int workers) {
+            for (int i = 0; i < workers; i++) {
+                latencies.add(new ArrayList<>());
+            }
+            this.errors = new long[workers];
+        }
+
+        void record(int worker, long nanos, boolean ok) {
+            latencies.get(worker).add(nanos);
+            if (!ok) {
+                errors[worker]++;
+            }
+        }
+
+        Result result(String scenario, int concurrency, Duration duration) {
+            long[] all = latencies.stream().flatMap(List::stream).mapToLong(Long::longValue).toArray();
+            Arrays.sort(all);
+            return new Result(scenario, concurrency, all.length, Arrays.stream(errors).sum(),
+                    all.length / (double) duration.toSeconds(),
+                    percentile(all, 50), percentile(all, 95), percentile(all, 99), percentile(all, 99.9),
+                    all.length == 0 ? 0 : all[all.length - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+    }
+
+    record Result(String scenario, int concurrency, long requests, long errors, double rps,
+            double p50, double p95, double p99, double p999, double max) {
+
+        String format(String label) {
+            return String.format("[%s] %-6s c=%d  %,d req  %,d lỗi  %.1f rps  p50=%.1fms p95=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms",
+                    label, scenario, concurrency, requests, errors, rps, p50, p95, p99, p999, max);
+        }
+
+        void appendCsv(Path file, String label) throws IOException {
+            if (!Files.exists(file)) {
+                Files.writeString(file, CSV_HEADER + "\n");
+            }
+            String line = String.join(",", label, scenario, String.valueOf(concurrency), String.valueOf(requests),
+                    String.valueOf(errors), ms(rps), ms(p50), ms(p95), ms(p99), ms(p999), ms(max));
+            Files.writeString(file, line + "\n", StandardOpenOption.APPEND);
+        }
+
+        private static String ms(double value) {
+            return String.format(Locale.ROOT, "%.1f", value);
+        }
+    }
+}
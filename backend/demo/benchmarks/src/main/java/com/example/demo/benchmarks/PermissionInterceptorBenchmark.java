@@ -0,0 +1,190 @@
+package com.example.demo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.example.demo.config.AuthorizationIndex;
+import com.example.demo.config.PermissionInterceptor;
+import com.example.demo.domain.Permission;
+import com.example.demo.domain.dto.PermissionRouteDTO;
+import com.example.demo.domain.dto.PrincipalDTO;
+import com.example.demo.repository.PermissionRepository;
+import com.example.demo.service.UserServices;
+import com.example.demo.util.SecurityUtil;
+
+/**
+ * Hot path phân quyền: PermissionInterceptor.preHandle trên mỗi request.
+ *
+ * Role tổng hợp có 10 / 100 / 1.000 permission; permission cần tìm luôn nằm cuối
+ * danh sách (trường hợp xấu nhất cho cách duyệt tuần tự). Đo cả nhánh có
+ * BEST_MATCHING_PATTERN_ATTRIBUTE và nhánh fallback theo requestURI, với path
+ * dạng template (/api/v1/users/{id}) và path cố định (/api/v1/users/fetch-all).
+ *
+ * legacyMatch giữ nguyên thuật toán cũ (stream + replaceAll + AntPathMatcher)
+ * làm mốc so sánh.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionInterceptorBenchmark {
+
+    private static final long ROLE_ID = 1L;
+    private static final String EMAIL = "bench@example.com";
+
+    public enum PathKind {
+        TEMPLATED("/api/v1/users/{id}", "/api/v1/users/42"),
+        LITERAL("/api/v1/users/fetch-all", "/api/v1/users/fetch-all");
+
+        final String pattern;
+        final String uri;
+
+        PathKind(String pattern, String uri) {
+            this.pattern = pattern;
+            this.uri = uri;
+        }
+    }
+
+    public enum Branch {
+        PATTERN_ATTRIBUTE, REQUEST_URI
+    }
+
+    public enum Authorization {
+        ROLE_LOOKUP, TOKEN_CLAIMS
+    }
+
+    @Param({ "10", "100", "1000" })
+    public int permissionsPerRole;
+
+    @Param({ "TEMPLATED", "LITERAL" })
+    public PathKind path;
+
+    @Param({ "PATTERN_ATTRIBUTE", "REQUEST_URI" })
+    public Branch branch;
+
+    @Param({ "ROLE_LOOKUP", "TOKEN_CLAIMS" })
+    public Authorization authorization;
+
+    private PermissionInterceptor interceptor;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private List<Permission> legacyPermissions;
+    private final AntPathMatcher legacyMatcher = new AntPathMatcher();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<PermissionRouteDTO> rows = syntheticRoutes(permissionsPerRole);
+        legacyPermissions = toPermissions(rows);
+
+        PermissionRepository repository = Stubs.of(PermissionRepository.class, Map.of(
+                "findAllPermissionRoutes", args -> rows));
+        AuthorizationIndex index = new AuthorizationIndex(repository);
+        index.refresh();
+
+        PrincipalDTO principal = new PrincipalDTO(1L, EMAIL, ROLE_ID, false, "{noop}x");
+        UserServices userServices = Stubs.of(UserServices.class, Map.of(
+                "handleGetPrincipalByUsername", args -> principal));
+
+        boolean tokenClaims = authorization == Authorization.TOKEN_CLAIMS;
+        interceptor = new PermissionInterceptor(userServices, index, tokenClaims);
+
+        AuthorizationIndex.Snapshot snapshot = index.current();
+        Jwt jwt = Jwt.withTokenValue("bench")
+                .header("alg", "HS512")
+                .subject(EMAIL)
+                .claim("user_role_id", ROLE_ID)
+                .claim(SecurityUtil.CLAIM_PERMISSIONS, snapshot.encodedPermissions(ROLE_ID))
+                .claim(SecurityUtil.CLAIM_PERMISSION_VERSION, snapshot.version())
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+
+        request = new MockHttpServletRequest("GET", path.uri);
+        if (branch == Branch.PATTERN_ATTRIBUTE) {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, path.pattern);
+        }
+        response = new MockHttpServletResponse();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public boolean preHandle() throws Exception {
+        return interceptor.preHandle(request, response, null);
+    }
+
+    @Benchmark
+    public boolean legacyMatch() {
+        String pathPattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String requestURI = request.getRequestURI();
+        String httpMethod = request.getMethod();
+        return legacyPermissions.stream().anyMatch(permission -> {
+            if (!permission.getMethod().equalsIgnoreCase(httpMethod)) {
+                return false;
+            }
+            if (pathPattern != null) {
+                return permission.getApiPath().equals(pathPattern);
+            }
+            String antPattern = permission.getApiPath().replaceAll("\\{[^}]+\\}", "*");
+            return legacyMatcher.match(antPattern, requestURI);
+        });
+    }
+
+    /**
+     * Sinh catalog: (n - 2) permission "nhiễu" trộn template/literal và nhiều method,
+     * 2 permission mục tiêu đặt cuối danh sách
+     */
+    static List<PermissionRouteDTO> syntheticRoutes(int n) {
+        String[] methods = { "GET", "POST", "PUT", "DELETE" };
+        List<PermissionRouteDTO> rows = new ArrayList<>(n);
+        long id = 1;
+        for (int i = 0; i < n - 2; i++) {
+            String apiPath = (i % 2 == 0)
+                    ? "/api/v1/module" + i + "/{id}"
+                    : "/api/v1/module" + i + "/fetch-all";
+            rows.add(new PermissionRouteDTO(ROLE_ID, id++, methods[i % methods.length], apiPath));
+        }
+        rows.add(new PermissionRouteDTO(ROLE_ID, id++, "GET", PathKind.TEMPLATED.pattern));
+        rows.add(new PermissionRouteDTO(ROLE_ID, id, "GET", PathKind.LITERAL.pattern));
+        return rows;
+    }
+
+    private static List<Permission> toPermissions(List<PermissionRouteDTO> rows) {
+        List<Permission> permissions = new ArrayList<>(rows.size());
+        for (PermissionRouteDTO row : rows) {
+            Permission p = new Permission();
+            p.setId(row.getPermissionId());
+            p.setMethod(row.getMethod());
+            p.setApiPath(row.getApiPath());
+            permissions.add(p);
+        }
+        return permissions;
+    }
+}
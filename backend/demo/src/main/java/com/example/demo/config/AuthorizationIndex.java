@@ -0,0 +1,368 @@
+package com.example.demo.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.example.demo.domain.dto.PermissionRouteDTO;
+import com.example.demo.repository.PermissionRepository;
+
+/**
+ * Bảng phân quyền đã được "biên dịch" sẵn trong bộ nhớ:
+ * roleId -> HTTP method -> tập pattern, và HTTP method -> PathPattern đã parse của cả catalog
+ * (sắp theo độ cụ thể, dùng khi request không có pattern của HandlerMapping).
+ *
+ * Catalog route gồm mọi permission (kể cả chưa gán role nào), bảng nối chỉ quyết định role nào
+ * được cấp. Được build 1 lần từ bảng permissions/permission_role và thay thế nguyên khối
+ * (atomic swap) mỗi khi PermissionServiceImpl / RoleServiceImpl thay đổi dữ liệu (sau commit,
+ * trên mọi node qua CacheInvalidationLog), nên PermissionInterceptor quyết định allow/deny
+ * mà không cần truy vấn DB.
+ *
+ * Snapshot cũng giữ bitset quyền của từng role (ordinal = permission id) và
+ * version của catalog, dùng cho claim perm_bits / perm_ver trong access token.
+ */
+@Component
+public class AuthorizationIndex {
+
+    private final PermissionRepository permissionRepository;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    public AuthorizationIndex(PermissionRepository permissionRepository) {
+        this.permissionRepository = permissionRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    /**
+     * Build lại index từ DB rồi thay thế snapshot hiện tại
+     */
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            this.snapshot = Snapshot.compile(permissionRepository.findAllPermissionRoutes());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    public Snapshot current() {
+        Snapshot s = this.snapshot;
+        if (s == null) {
+            // request đến trước ApplicationReadyEvent
+            refresh();
+            s = this.snapshot;
+        }
+        return s;
+    }
+
+    public boolean isAllowed(long roleId, String httpMethod, String pathPattern, String requestURI) {
+        return current().isAllowed(roleId, httpMethod, pathPattern, requestURI);
+    }
+
+    /**
+     * Snapshot bất biến, an toàn khi đọc đồng thời từ nhiều thread
+     */
+    public static final class Snapshot {
+
+        private static final Snapshot EMPTY = compile(List.of());
+
+        private final Map<Long, Map<String, Routes>> routesByRole;
+        private final Map<String, MethodRoutes> routesByMethod;
+        private final Map<Long, String> encodedPermissionsByRole;
+        private final Map<String, BitSet> permissionsByEncoding;
+        private final String version;
+
+        private Snapshot(
+                Map<Long, Map<String, Routes>> routesByRole,
+                Map<String, MethodRoutes> routesByMethod,
+                Map<Long, String> encodedPermissionsByRole,
+                Map<String, BitSet> permissionsByEncoding,
+                String version) {
+            this.routesByRole = routesByRole;
+            this.routesByMethod = routesByMethod;
+            this.encodedPermissionsByRole = encodedPermissionsByRole;
+            this.permissionsByEncoding = permissionsByEncoding;
+            this.version = version;
+        }
+
+        public static Snapshot empty() {
+            return EMPTY;
+        }
+
+        public static Snapshot compile(Collection<PermissionRouteDTO> rows) {
+            PathPatternParser parser = new PathPatternParser();
+            // intern: mỗi apiPath chỉ parse 1 lần dù xuất hiện ở nhiều role
+            Map<String, PathPattern> parsed = new HashMap<>();
+            Map<Long, Map<String, RoutesBuilder>> builders = new HashMap<>();
+            Map<String, MethodRoutesBuilder> methodBuilders = new HashMap<>();
+            Map<Long, BitSet> bitsByRole = new HashMap<>();
+            List<PermissionRouteDTO> valid = new ArrayList<>(rows.size());
+
+            for (PermissionRouteDTO row : rows) {
+                if (row.getApiPath() == null || row.getMethod() == null) {
+                    continue;
+                }
+                valid.add(row);
+                String method = row.getMethod().trim().toUpperCase(Locale.ROOT);
+                PathPattern pattern = parsed.computeIfAbsent(row.getApiPath(), parser::parse);
+                // catalog route gồm mọi permission, kể cả permission chưa gán role nào: không có
+                // thì URI của nó rơi sang pattern kém cụ thể hơn (vd /users/{id}) mà role lại có
+                methodBuilders.computeIfAbsent(method, k -> new MethodRoutesBuilder())
+                        .add(row.getApiPath(), pattern, row.getPermissionId());
+                if (row.getRoleId() == null) {
+                    continue;
+                }
+                builders.computeIfAbsent(row.getRoleId(), k -> new HashMap<>())
+                        .computeIfAbsent(method, k -> new RoutesBuilder())
+                        .add(row.getApiPath());
+                bitsByRole.computeIfAbsent(row.getRoleId(), k -> new BitSet())
+                        .set(toOrdinal(row.getPermissionId()));
+            }
+
+            Map<Long, Map<String, Routes>> byRole = new HashMap<>(builders.size() * 2);
+            builders.forEach((roleId, byMethod) -> {
+                Map<String, Routes> routes = new HashMap<>(byMethod.size() * 2);
+                byMethod.forEach((method, builder) -> routes.put(method, builder.build()));
+                byRole.put(roleId, Map.copyOf(routes));
+            });
+
+            Map<String, MethodRoutes> byMethod = new HashMap<>();
+            methodBuilders.forEach((method, builder) -> byMethod.put(method, builder.build()));
+
+            Map<Long, String> encodedByRole = new HashMap<>();
+            Map<String, BitSet> bitsByEncoding = new HashMap<>();
+            bitsByRole.forEach((roleId, bits) -> {
+                String encoded = encodePermissions(bits);
+                encodedByRole.put(roleId, encoded);
+                bitsByEncoding.put(encoded, bits);
+            });
+
+            return new Snapshot(
+                    Map.copyOf(byRole),
+                    Map.copyOf(byMethod),
+                    Map.copyOf(encodedByRole),
+                    Map.copyOf(bitsByEncoding),
+                    computeVersion(valid));
+        }
+
+        public boolean isAllowed(long roleId, String httpMethod, String pathPattern, String requestURI) {
+            Map<String, Routes> byMethod = routesByRole.get(roleId);
+            if (byMethod == null || httpMethod == null) {
+                return false;
+            }
+            String method = httpMethod.toUpperCase(Locale.ROOT);
+            Routes routes = byMethod.get(method);
+            if (routes == null) {
+                return false;
+            }
+
+            // HandlerMapping đã chọn pattern -> so sánh chuỗi, O(1)
+            if (pathPattern != null) {
+                return routes.patterns.contains(pathPattern);
+            }
+
+            // Không có pattern (vd: request không map vào controller) -> chọn pattern cụ thể nhất
+            // của cả catalog như HandlerMapping, role phải có đúng pattern đó: quyền /users/{id}
+            // không mở /users/export
+            MethodRoutes catalog = routesByMethod.get(method);
+            int best = catalog.mostSpecific(requestURI);
+            return best >= 0 && routes.patterns.contains(catalog.compiled[best].getPatternString());
+        }
+
+        /**
+         * Quyết định dựa trên bitset quyền lấy từ claim perm_bits của token
+         */
+        public boolean isAllowed(BitSet granted, String httpMethod, String pathPattern, String requestURI) {
+            if (granted == null || httpMethod == null) {
+                return false;
+            }
+            MethodRoutes routes = routesByMethod.get(httpMethod.toUpperCase(Locale.ROOT));
+            if (routes == null) {
+                return false;
+            }
+
+            if (pathPattern != null) {
+                return anyGranted(granted, routes.idsByPattern.get(pathPattern));
+            }
+
+            int best = routes.mostSpecific(requestURI);
+            return best >= 0 && anyGranted(granted, routes.idsByCompiled[best]);
+        }
+
+        /**
+         * Bitset quyền của role, dạng base64url (không padding) để nhúng vào JWT
+         */
+        public String encodedPermissions(long roleId) {
+            return encodedPermissionsByRole.getOrDefault(roleId, "");
+        }
+
+        /**
+         * Giải mã claim perm_bits; với token cùng version thì bitset đã có sẵn trong snapshot
+         */
+        public BitSet decodePermissions(String encoded) {
+            if (encoded == null) {
+                return null;
+            }
+            BitSet known = permissionsByEncoding.get(encoded);
+            if (known != null) {
+                return known;
+            }
+            try {
+                return BitSet.valueOf(Base64.getUrlDecoder().decode(encoded));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        public String version() {
+            return version;
+        }
+
+        public int roleCount() {
+            return routesByRole.size();
+        }
+
+        private static boolean anyGranted(BitSet granted, long[] permissionIds) {
+            if (permissionIds == null) {
+                return false;
+            }
+            for (long id : permissionIds) {
+                if (granted.get(toOrdinal(id))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int toOrdinal(long permissionId) {
+            // permission id là khoá tự tăng, ổn định -> dùng trực tiếp làm ordinal
+            return Math.toIntExact(permissionId);
+        }
+
+        private static String encodePermissions(BitSet bits) {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bits.toByteArray());
+        }
+
+        /**
+         * Version phụ thuộc nội dung catalog (không phụ thuộc thứ tự đọc), nên mọi
+         * node và mọi lần restart với cùng dữ liệu đều cho ra cùng 1 giá trị
+         */
+        private static String computeVersion(List<PermissionRouteDTO> rows) {
+            List<PermissionRouteDTO> sorted = new ArrayList<>(rows);
+            sorted.sort(Comparator.comparing(PermissionRouteDTO::getRoleId,
+                    Comparator.nullsFirst(Comparator.<Long>naturalOrder()))
+                    .thenComparingLong(PermissionRouteDTO::getPermissionId));
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                for (PermissionRouteDTO row : sorted) {
+                    String line = row.getRoleId() + "|" + row.getPermissionId() + "|"
+                            + row.getMethod() + "|" + row.getApiPath() + "\n";
+                    digest.update(line.getBytes(StandardCharsets.UTF_8));
+                }
+                return HexFormat.of().formatHex(digest.digest(), 0, 8);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static final class Routes {
+        private final Set<String> patterns;
+
+        private Routes(Set<String> patterns) {
+            this.patterns = patterns;
+        }
+    }
+
+    private static final class RoutesBuilder {
+        private final Set<String> patterns = new HashSet<>();
+
+        void add(String apiPath) {
+            patterns.add(apiPath);
+        }
+
+        Routes build() {
+            return new Routes(Set.copyOf(patterns));
+        }
+    }
+
+    /**
+     * Bảng route toàn cục theo method: pattern -> các permission id khai báo pattern đó
+     */
+    private static final class MethodRoutes {
+        private final Map<String, long[]> idsByPattern;
+        private final PathPattern[] compiled;
+        private final long[][] idsByCompiled;
+
+        private MethodRoutes(Map<String, long[]> idsByPattern, PathPattern[] compiled, long[][] idsByCompiled) {
+            this.idsByPattern = idsByPattern;
+            this.compiled = compiled;
+            this.idsByCompiled = idsByCompiled;
+        }
+
+        /**
+         * Vị trí pattern cụ thể nhất khớp URI (compiled đã sắp theo SPECIFICITY_COMPARATOR), -1 nếu không có
+         */
+        int mostSpecific(String requestURI) {
+            PathContainer path = PathContainer.parsePath(requestURI);
+            for (int i = 0; i < compiled.length; i++) {
+                if (compiled[i].matches(path)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class MethodRoutesBuilder {
+        private final Map<String, PathPattern> compiled = new HashMap<>();
+        private final Map<String, Set<Long>> ids = new HashMap<>();
+
+        void add(String apiPath, PathPattern pattern, long permissionId) {
+            compiled.put(apiPath, pattern);
+            ids.computeIfAbsent(apiPath, k -> new HashSet<>()).add(permissionId);
+        }
+
+        MethodRoutes build() {
+            Map<String, long[]> idsByPattern = new HashMap<>();
+            ids.forEach((apiPath, set) -> idsByPattern.put(apiPath,
+                    set.stream().mapToLong(Long::longValue).sorted().toArray()));
+
+            List<String> paths = new ArrayList<>(compiled.keySet());
+            paths.sort((a, b) -> PathPattern.SPECIFICITY_COMPARATOR.compare(compiled.get(a), compiled.get(b)));
+            PathPattern[] patterns = new PathPattern[paths.size()];
+            long[][] idsByCompiled = new long[paths.size()][];
+            for (int i = 0; i < paths.size(); i++) {
+                patterns[i] = compiled.get(paths.get(i));
+                idsByCompiled[i] = idsByPattern.get(paths.get(i));
+            }
+            return new MethodRoutes(Map.copyOf(idsByPattern), patterns, idsByCompiled);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.domain.CacheInvalidation;
+import com.example.demo.domain.Permission;
+import com.example.demo.domain.Role;
+import com.example.demo.repository.CacheInvalidationRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Đồng bộ cache in-process giữa các node qua bảng cache_invalidation_log (không cần broker).
+ *
+ * Thao tác ghi role/permission/user gọi publish() trong transaction của nó: dòng log commit
+ * hoặc rollback cùng dữ liệu, node hiện tại evict sau commit. Mỗi node poll bảng theo id
+ * tăng dần và evict các key do node khác ghi: AuthorizationIndex, second-level cache
+ * (Role, Permission, Role.permissions, query cache), PrincipalCache, TokenVersionRegistry, các
+ * lần load đang chạy của RequestCoalescer và CatalogVersion (ETag).
+ *
+ * Id IDENTITY được cấp lúc insert nhưng transaction có thể commit không theo thứ tự id, nên
+ * id bị nhảy cóc được nhớ lại và đọc lại trong khoảng gap-retention (rollback cũng để lại
+ * khoảng trống, quá hạn thì bỏ). Độ trễ lan truyền (lúc ghi -> lúc node này evict) ở timer
+ * cache.invalidation.lag, phụ thuộc đồng hồ giữa các node.
+ *
+ * Khi có read replica, transaction chỉ đọc ngay sau lần evict có thể đọc replica còn chưa kịp
+ * nhận thay đổi và nạp lại bản cũ vào cache L2 (TTL 3600s). Vì vậy region của role/permission
+ * được evict thêm 1 lần sau read-your-writes-ms, và CatalogVersion chỉ trả ETag sau lần đó.
+ *
+ * app.cache.invalidation.polling-enabled=false tắt poll định kỳ (test: gọi pollSafely() khi cần),
+ * publish() và evict sau commit trên node hiện tại vẫn chạy.
+ */
+@Component
+public class CacheInvalidationLog {
+
+    private final CacheInvalidationRepository repository;
+    private final AuthorizationIndex authorizationIndex;
+    private final PrincipalCache principalCache;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final RequestCoalescer requestCoalescer;
+    private final CatalogVersion catalogVersion;
+    private final EntityManagerFactory entityManagerFactory;
+    private final boolean pollingEnabled;
+    private final long pollIntervalMillis;
+    private final int batchSize;
+    private final Duration gapRetention;
+    private final Duration retention;
+    private final Duration replicaLag;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<CacheInvalidation.Target, Timer> lag = new HashMap<>();
+    private final Map<CacheInvalidation.Target, Counter> applied = new HashMap<>();
+    private final Counter pollErrors;
+
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-invalidation-poller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // chỉ đọc/ghi trong pollSafely() (synchronized)
+    private long lastSeenId = -1;
+    // id bị nhảy cóc -> lúc phát hiện
+    private final Map<Long, Instant> gaps = new HashMap<>();
+    private Instant lastCleanup = Instant.EPOCH;
+
+    public CacheInvalidationLog(
+            CacheInvalidationRepository repository,
+            AuthorizationIndex authorizationIndex,
+            PrincipalCache principalCache,
+            TokenVersionRegistry tokenVersionRegistry,
+            RequestCoalescer requestCoalescer,
+            CatalogVersion catalogVersion,
+            EntityManagerFactory entityManagerFactory,
+            MeterRegistry meterRegistry,
+            @Value("${app.cache.invalidation.polling-enabled:true}") boolean pollingEnabled,
+            @Value("${app.cache.invalidation.poll-interval-ms:1000}") long pollIntervalMillis,
+            @Value("${app.cache.invalidation.batch-size:500}") int batchSize,
+            @Value("${app.cache.invalidation.gap-retention-seconds:60}") long gapRetentionSeconds,
+            @Value("${app.cache.invalidation.retention-hours:24}") long retentionHours,
+            @Value("${app.datasource.replica.urls:}") List<String> replicaUrls,
+            @Value("${app.datasource.replica.read-your-writes-ms:5000}") long readYourWritesMillis) {
+        this.repository = repository;
+        this.authorizationIndex = authorizationIndex;
+        this.principalCache = principalCache;
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.requestCoalescer = requestCoalescer;
+        this.catalogVersion = catalogVersion;
+        this.entityManagerFactory = entityManagerFactory;
+        this.pollingEnabled = pollingEnabled;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.batchSize = batchSize;
+        this.gapRetention = Duration.ofSeconds(gapRetentionSeconds);
+        this.retention = Duration.ofHours(retentionHours);
+        this.replicaLag = replicaUrls.stream().anyMatch(url -> !url.isBlank())
+                ? Duration.ofMillis(readYourWritesMillis)
+                : Duration.ZERO;
+
+        for (CacheInvalidation.Target target : CacheInvalidation.Target.values()) {
+            String tag = target.name().toLowerCase(Locale.ROOT);
+            lag.put(target, Timer.builder("cache.invalidation.lag")
+                    .description("Thời gian từ lúc node khác ghi log tới lúc node này evict")
+                    .tag("target", tag)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+            applied.put(target, Counter.builder("cache.invalidation.applied")
+                    .description("Số dòng cache_invalidation_log của node khác đã xử lý")
+                    .tag("target", tag)
+                    .register(meterRegistry));
+        }
+        this.pollErrors = Counter.builder("cache.invalidation.poll.errors").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // cache của node vừa khởi động còn trống, chỉ cần các thay đổi từ giờ trở đi
+        synchronized (this) {
+            this.lastSeenId = repository.findMaxId();
+        }
+        // token_version thì phải có ngay từ đầu; nạp sau watermark để thay đổi xen giữa vẫn được poll thấy
+        tokenVersionRegistry.loadAll();
+        if (!pollingEnabled) {
+            System.out.println(">>> Cache invalidation log: node " + nodeId + ", poll tắt");
+            return;
+        }
+        poller.scheduleWithFixedDelay(this::pollSafely, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        System.out.println(">>> Cache invalidation log: node " + nodeId + ", poll " + pollIntervalMillis + "ms");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+
+    /**
+     * Ghi 1 dòng log trong transaction hiện tại, evict trên node này sau khi commit.
+     * Không có transaction thì dòng log được ghi riêng và evict ngay.
+     */
+    public void publish(CacheInvalidation.Target target, long targetId) {
+        CacheInvalidation row = new CacheInvalidation();
+        row.setTarget(target);
+        row.setTargetId(targetId);
+        row.setOrigin(nodeId);
+        repository.save(row);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(target, targetId);
+                }
+            });
+        } else {
+            evict(target, targetId);
+        }
+    }
+
+    /**
+     * 1 lượt poll: evict theo các dòng log mới của node khác. Lỗi DB chỉ được đếm, lượt sau đọc lại
+     */
+    public synchronized void pollSafely() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            // DB tạm lỗi: giữ nguyên watermark, lần poll sau đọc lại
+            pollErrors.increment();
+            System.out.println(">>> Cache invalidation poll lỗi: " + e.getMessage());
+        }
+    }
+
+    void poll() {
+        Instant now = Instant.now();
+        List<CacheInvalidation> rows = new ArrayList<>();
+        if (!gaps.isEmpty()) {
+            rows.addAll(repository.findByIdIn(gaps.keySet()));
+        }
+        long watermark = lastSeenId;
+        List<CacheInvalidation> fresh;
+        do {
+            fresh = repository.findByIdGreaterThanOrderByIdAsc(watermark, PageRequest.of(0, batchSize));
+            for (CacheInvalidation row : fresh) {
+                // khoảng trống quá lớn (auto_increment bị đẩy lên) thì không theo dõi từng id
+                if (row.getId() - watermark - 1 <= batchSize) {
+                    for (long missing = watermark + 1; missing < row.getId(); missing++) {
+                        gaps.put(missing, now);
+                    }
+                }
+                watermark = row.getId();
+            }
+            rows.addAll(fresh);
+        } while (fresh.size() == batchSize);
+
+        for (CacheInvalidation row : rows) {
+            gaps.remove(row.getId());
+            if (nodeId.equals(row.getOrigin())) {
+                continue;
+            }
+            evict(row.getTarget(), row.getTargetId());
+            applied.get(row.getTarget()).increment();
+            Duration delay = Duration.between(row.getCreatedAt(), Instant.now());
+            lag.get(row.getTarget()).record(delay.isNegative() ? Duration.ZERO : delay);
+        }
+        lastSeenId = watermark;
+
+        for (Iterator<Instant> it = gaps.values().iterator(); it.hasNext();) {
+            if (it.next().plus(gapRetention).isBefore(now)) {
+                it.remove();
+            }
+        }
+        if (lastCleanup.plus(Duration.ofMinutes(10)).isBefore(now)) {
+            lastCleanup = now;
+            // giữ dòng role/permission: CatalogVersion dựa vào số dòng + id lớn nhất của chúng
+            repository.deleteCreatedBefore(now.minus(retention), CatalogVersion.TARGETS);
+        }
+    }
+
+    private void evict(CacheInvalidation.Target target, long targetId) {
+        switch (target) {
+            case PRINCIPAL -> {
+                principalCache.evict(targetId);
+                tokenVersionRegistry.reload(targetId);
+                requestCoalescer.forget(RequestCoalescer.USERS_BY_ID, List.of(targetId));
+            }
+            case ROLE -> {
+                evictRoleRegions(targetId);
+                authorizationIndex.refresh();
+                // user view có tên role
+                requestCoalescer.forget(RequestCoalescer.ROLES_FETCH_ALL);
+                requestCoalescer.forget(RequestCoalescer.USERS_BY_ID);
+                catalogVersion.invalidate(!replicaLag.isZero());
+                evictAgainWhenReplicaCaughtUp(() -> evictRoleRegions(targetId));
+            }
+            case PERMISSION -> {
+                evictPermissionRegions(targetId);
+                authorizationIndex.refresh();
+                requestCoalescer.forget(RequestCoalescer.PERMISSIONS_FETCH_ALL);
+                requestCoalescer.forget(RequestCoalescer.ROLES_FETCH_ALL);
+                catalogVersion.invalidate(!replicaLag.isZero());
+                evictAgainWhenReplicaCaughtUp(() -> evictPermissionRegions(targetId));
+            }
+        }
+    }
+
+    private void evictRoleRegions(long roleId) {
+        Cache cache = secondLevelCache();
+        cache.evictEntityData(Role.class, roleId);
+        cache.evictCollectionData(Role.class.getName() + ".permissions", roleId);
+        cache.evictQueryRegions();
+    }
+
+    private void evictPermissionRegions(long permissionId) {
+        Cache cache = secondLevelCache();
+        cache.evictEntityData(Permission.class, permissionId);
+        // không biết role nào đang chứa permission này
+        cache.evictCollectionData(Role.class.getName() + ".permissions");
+        cache.evictQueryRegions();
+    }
+
+    /**
+     * Sau read-your-writes-ms (replica coi như đã theo kịp) evict lại bản có thể đã được nạp từ
+     * replica, rồi mới cho CatalogVersion trả ETag. Không có replica thì không cần.
+     */
+    private void evictAgainWhenReplicaCaughtUp(Runnable evictRegions) {
+        if (replicaLag.isZero()) {
+            return;
+        }
+        poller.schedule(() -> {
+            try {
+                evictRegions.run();
+            } finally {
+                catalogVersion.replicaCaughtUp();
+            }
+        }, replicaLag.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private Cache secondLevelCache() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+}
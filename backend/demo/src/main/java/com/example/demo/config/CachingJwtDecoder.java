@@ -0,0 +1,99 @@
+package com.example.demo.config;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import com.example.demo.util.TokenDigest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache Jwt đã xác thực, đặt trước decoder của resource server.
+ *
+ * SPA gửi cùng một access token rất nhiều lần; lần đầu decoder parse + kiểm HMAC
+ * + validate, các lần sau chỉ còn SHA-256 của token và một phép so sánh exp.
+ * Mỗi entry hết hạn đúng lúc exp của token; khi hit vẫn kiểm exp lần nữa nên
+ * không bao giờ trả về token đã hết hạn. Token lỗi hoặc không có exp không được cache.
+ * Hit/miss public qua actuator (cache.gets{cache=verifiedTokens}).
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    public static final String CACHE_NAME = "verifiedTokens";
+
+    private final JwtDecoder delegate;
+    private final Clock clock;
+    private final Cache<TokenDigest.Key, Jwt> cache;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maxSize, Clock clock, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, CACHE_NAME);
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        if (token == null) {
+            return delegate.decode(null);
+        }
+        TokenDigest.Key key = TokenDigest.key(token);
+        Jwt cached = cache.getIfPresent(key);
+        if (cached != null) {
+            // so sánh cả chuỗi để trùng prefix digest cũng không thể trả nhầm token
+            if (isLive(cached) && token.equals(cached.getTokenValue())) {
+                return cached;
+            }
+            cache.invalidate(key);
+        }
+
+        Jwt jwt = delegate.decode(token);
+        if (isLive(jwt)) {
+            cache.put(key, jwt);
+        }
+        return jwt;
+    }
+
+    /**
+     * Bỏ toàn bộ token đã cache (vd: đổi khóa ký, thu hồi hàng loạt)
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private boolean isLive(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        return expiresAt != null && expiresAt.isAfter(clock.instant());
+    }
+
+    private final class UntilTokenExpiry implements Expiry<TokenDigest.Key, Jwt> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest.Key key, Jwt jwt, long currentTime) {
+            Duration remaining = Duration.between(clock.instant(), jwt.getExpiresAt());
+            return remaining.isNegative() ? 0 : remaining.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest.Key key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest.Key key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.domain.CacheInvalidation;
+import com.example.demo.repository.CacheInvalidationRepository;
+import com.example.demo.repository.PermissionRepository;
+import com.example.demo.repository.RoleRepository;
+import com.example.demo.util.TokenDigest;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Version của catalog role/permission (gồm cả bảng permission_role), dùng làm ETag cho
+ * /roles/fetch-all, /permissions/fetch-all và phần role trong /users/{id}.
+ *
+ * Version là hash của [số dòng, id lớn nhất] các dòng ROLE/PERMISSION trong cache_invalidation_log
+ * cùng vài aggregate của bảng (count, max id, max createdAt/updatedAt, checksum bảng nối), nên mọi
+ * node tính ra cùng giá trị cho cùng dữ liệu. Phần log chỉ tăng (các dòng này không bị dọn, kể cả
+ * transaction commit không theo thứ tự id vẫn làm tăng số dòng), nên 2 thay đổi bù trừ nhau (vd:
+ * role A đổi permission 1 -> 2 rồi role B đổi 2 -> 1) không đưa version về giá trị cũ. Aggregate
+ * chỉ để bắt thay đổi ghi thẳng vào bảng ngoài ứng dụng (không có dòng log).
+ *
+ * Được tính trên thread riêng (không thêm câu SQL nào vào request): khi khởi động, sau khi
+ * CacheInvalidationLog báo role/permission đổi (node này: sau commit) và định kỳ mỗi ttl. Từ lúc
+ * invalidate tới khi tính xong, current() rỗng và request không có ETag.
+ * app.etag.catalog.enabled=false tắt hẳn (không có thread nền, không trả ETag).
+ *
+ * Version luôn được đọc trước body, nên ETag chỉ có thể cũ hơn body (client tải lại thừa 1 lần),
+ * không bao giờ mới hơn. Khi có read replica, body có thể được đọc từ replica (hoặc từ cache L2
+ * nạp từ replica) còn chưa kịp nhận thay đổi: sau mỗi thay đổi, CacheInvalidationLog giữ ETag lại
+ * cho tới khi đã evict cache lần nữa sau read-your-writes-ms (replicaCaughtUp()).
+ */
+@Component
+public class CatalogVersion {
+
+    // các target của cache_invalidation_log làm đổi catalog
+    public static final List<CacheInvalidation.Target> TARGETS = List.of(
+            CacheInvalidation.Target.ROLE, CacheInvalidation.Target.PERMISSION);
+
+    private final CacheInvalidationRepository cacheInvalidationRepository;
+    private final RoleRepository roleRepository;
+    private final PermissionRepository permissionRepository;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Duration replicaLag;
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-version");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // tăng mỗi lần invalidate; version tính ở epoch cũ không được dùng
+    private final AtomicLong epoch = new AtomicLong();
+    private volatile Stamp stamp;
+    private volatile Instant settledAt = Instant.EPOCH;
+    // số thay đổi đang chờ replica theo kịp
+    private final AtomicInteger awaitingReplica = new AtomicInteger();
+
+    public CatalogVersion(
+            CacheInvalidationRepository cacheInvalidationRepository,
+            RoleRepository roleRepository,
+            PermissionRepository permissionRepository,
+            @Value("${app.etag.catalog.enabled:true}") boolean enabled,
+            @Value("${app.etag.catalog.ttl-seconds:300}") long ttlSeconds,
+            @Value("${app.datasource.replica.urls:}") List<String> replicaUrls,
+            @Value("${app.datasource.replica.read-your-writes-ms:5000}") long readYourWritesMillis) {
+        this.cacheInvalidationRepository = cacheInvalidationRepository;
+        this.roleRepository = roleRepository;
+        this.permissionRepository = permissionRepository;
+        this.enabled = enabled;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.replicaLag = replicaUrls.stream().anyMatch(url -> !url.isBlank())
+                ? Duration.ofMillis(readYourWritesMillis)
+                : Duration.ZERO;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        this.settledAt = Instant.now().plus(replicaLag);
+        refresher.scheduleWithFixedDelay(this::refreshSafely, 0, ttl.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Version hiện tại (hex), rỗng nếu chưa tính xong sau lần thay đổi gần nhất hoặc đang
+     * trong khoảng trễ replica
+     */
+    public Optional<String> current() {
+        Stamp current = this.stamp;
+        if (current == null || current.epoch() != epoch.get() || awaitingReplica.get() > 0
+                || Instant.now().isBefore(settledAt)) {
+            return Optional.empty();
+        }
+        return Optional.of(current.version());
+    }
+
+    /**
+     * Role/permission/permission_role vừa đổi (gọi từ CacheInvalidationLog). awaitReplica: không
+     * trả ETag cho tới khi có lần gọi replicaCaughtUp() tương ứng
+     */
+    public void invalidate(boolean awaitReplica) {
+        if (awaitReplica) {
+            awaitingReplica.incrementAndGet();
+        }
+        epoch.incrementAndGet();
+        if (enabled) {
+            refresher.execute(this::refreshSafely);
+        }
+    }
+
+    /**
+     * Replica đã nhận thay đổi của 1 lần invalidate(true) và cache L2 đã được evict lại
+     */
+    public void replicaCaughtUp() {
+        awaitingReplica.decrementAndGet();
+    }
+
+    private void refreshSafely() {
+        try {
+            // đọc epoch trước khi query: invalidate xen giữa thì kết quả này không được dùng
+            long startedAt = epoch.get();
+            this.stamp = new Stamp(compute(), startedAt);
+        } catch (RuntimeException e) {
+            // giữ trạng thái cũ (không có ETag nếu đã invalidate), lần sau tính lại
+            System.out.println(">>> Catalog version lỗi: " + e.getMessage());
+        }
+    }
+
+    private String compute() {
+        String aggregates = stamp(cacheInvalidationRepository.findStamp(TARGETS))
+                + "|" + stamp(roleRepository.findCatalogStamp())
+                + "|" + stamp(permissionRepository.findCatalogStamp())
+                + "|" + stamp(roleRepository.findPermissionLinkStamp());
+        return TokenDigest.sha256Hex(aggregates).substring(0, 16);
+    }
+
+    private static String stamp(List<Object[]> rows) {
+        return rows.stream().map(Arrays::toString).collect(Collectors.joining());
+    }
+
+    private record Stamp(String version, long epoch) {
+    }
+}
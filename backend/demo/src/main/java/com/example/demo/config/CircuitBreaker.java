@@ -0,0 +1,190 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Circuit breaker theo tỉ lệ lỗi trên cửa sổ trượt N lời gọi gần nhất.
+ *
+ * - CLOSED: cho qua mọi lời gọi; khi đủ minimumCalls và tỉ lệ lỗi >= ngưỡng thì OPEN
+ * - OPEN: từ chối ngay trong openDuration, sau đó chuyển HALF_OPEN
+ * - HALF_OPEN: chỉ cho halfOpenProbes lời gọi thăm dò; tất cả thành công -> CLOSED,
+ *   một lỗi -> OPEN lại
+ *
+ * Metrics: auth.oauth.circuit.state {provider} (0 closed, 1 open, 2 half-open),
+ * auth.oauth.circuit.transitions {provider, state}.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Ngưỡng và thời gian của breaker
+     */
+    public record Settings(
+            int slidingWindowSize,
+            int minimumCalls,
+            int failureRateThreshold,
+            Duration openDuration,
+            int halfOpenProbes) {
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final MeterRegistry meterRegistry;
+    // không dùng synchronized để không ghim carrier thread khi chạy trên virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] window;
+
+    private int windowIndex;
+    private int windowCalls;
+    private int windowFailures;
+    private long openedAtNanos;
+    private int probesIssued;
+    private int probeSuccesses;
+    private volatile State state = State.CLOSED;
+
+    public CircuitBreaker(String name, Settings settings, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+        this.window = new boolean[settings.slidingWindowSize()];
+        Gauge.builder("auth.oauth.circuit.state", this, breaker -> breaker.state.ordinal())
+                .description("Trạng thái circuit breaker của provider OAuth (0 closed, 1 open, 2 half-open)")
+                .tag("provider", name)
+                .register(meterRegistry);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Kiểm tra không đổi trạng thái: false khi đang OPEN và chưa hết openDuration
+     */
+    public boolean isCallPermitted() {
+        return state != State.OPEN || System.nanoTime() - openedAtNanos >= settings.openDuration().toNanos();
+    }
+
+    /**
+     * Xin phép thực hiện một lời gọi; true thì bắt buộc báo lại kết quả qua
+     * onSuccess/onFailure/onIgnored
+     */
+    public boolean tryAcquirePermission() {
+        lock.lock();
+        try {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.nanoTime() - openedAtNanos < settings.openDuration().toNanos()) {
+                        return false;
+                    }
+                    transitionTo(State.HALF_OPEN);
+                    // chuyển sang HALF_OPEN rồi xét như dưới
+                case HALF_OPEN:
+                    if (probesIssued >= settings.halfOpenProbes()) {
+                        return false;
+                    }
+                    probesIssued++;
+                    return true;
+                default:
+                    return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess() {
+        record(false);
+    }
+
+    public void onFailure() {
+        record(true);
+    }
+
+    /**
+     * Lời gọi không tính vào thống kê (bị hủy, bị bulkhead từ chối): trả lại lượt thăm dò
+     */
+    public void onIgnored() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN && probesIssued > 0) {
+                probesIssued--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failure) {
+        lock.lock();
+        try {
+            switch (state) {
+                case CLOSED -> {
+                    if (windowCalls == window.length) {
+                        // ghi đè kết quả cũ nhất trong cửa sổ
+                        if (window[windowIndex]) {
+                            windowFailures--;
+                        }
+                    } else {
+                        windowCalls++;
+                    }
+                    window[windowIndex] = failure;
+                    if (failure) {
+                        windowFailures++;
+                    }
+                    windowIndex = (windowIndex + 1) % window.length;
+                    if (windowCalls >= settings.minimumCalls()
+                            && windowFailures * 100 >= settings.failureRateThreshold() * windowCalls) {
+                        transitionTo(State.OPEN);
+                    }
+                }
+                case HALF_OPEN -> {
+                    if (failure) {
+                        transitionTo(State.OPEN);
+                    } else if (++probeSuccesses >= settings.halfOpenProbes()) {
+                        transitionTo(State.CLOSED);
+                    }
+                }
+                case OPEN -> {
+                    // kết quả của lời gọi bắt đầu trước khi mở mạch, bỏ qua
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // chỉ gọi khi đang giữ lock
+    private void transitionTo(State next) {
+        State previous = state;
+        switch (next) {
+            case OPEN -> openedAtNanos = System.nanoTime();
+            case HALF_OPEN -> {
+                probesIssued = 0;
+                probeSuccesses = 0;
+            }
+            case CLOSED -> {
+                windowIndex = 0;
+                windowCalls = 0;
+                windowFailures = 0;
+            }
+        }
+        state = next;
+        System.out.println(">>> OAuth " + name + " circuit: " + previous + " -> " + next);
+        Counter.builder("auth.oauth.circuit.transitions")
+                .description("Số lần circuit breaker của provider OAuth đổi trạng thái")
+                .tag("provider", name)
+                .tag("state", next.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+    }
+}
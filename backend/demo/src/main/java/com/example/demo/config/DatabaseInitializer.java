@@ -2,11 +2,13 @@ package com.example.demo.config;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import com.example.demo.domain.CacheInvalidation;
 import com.example.demo.domain.Permission;
 import com.example.demo.domain.Role;
 import com.example.demo.domain.User;
@@ -22,16 +24,19 @@ public class DatabaseInitializer implements CommandLineRunner {
     private final RoleRepository roleRepository;
     private final UserServiceRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final CacheInvalidationLog cacheInvalidationLog;
 
     public DatabaseInitializer(
             PermissionRepository permissionRepository,
             RoleRepository roleRepository,
             UserServiceRepository userRepository,
-            PasswordEncoder passwordEncoder) {
+            PasswordEncoder passwordEncoder,
+            CacheInvalidationLog cacheInvalidationLog) {
         this.permissionRepository = permissionRepository;
         this.roleRepository = roleRepository;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.cacheInvalidationLog = cacheInvalidationLog;
     }
 
     private Permission createPermission(String name, String apiPath, String method, String module) {
@@ -55,6 +60,12 @@ public class DatabaseInitializer implements CommandLineRunner {
 
             // Users permissions
             arr.add(createPermission("Xem tất cả danh sách người dùng", "/api/v1/users/fetch-all", "GET", "USERS"));
+            arr.add(createPermission("Xem chi tiết người dùng", "/api/v1/users/{id}", "GET", "USERS"));
+            arr.add(createPermission("Export danh sách người dùng", "/api/v1/users/export", "GET", "USERS"));
+            arr.add(createPermission("Import người dùng từ CSV", "/api/v1/users/import", "POST", "USERS"));
+            arr.add(createPermission("Xem tiến độ import người dùng", "/api/v1/users/import/{id}", "GET", "USERS"));
+            arr.add(createPermission("Tải file lỗi import người dùng", "/api/v1/users/import/{id}/errors", "GET",
+                    "USERS"));
             arr.add(createPermission("Xóa người dùng", "/api/v1/users/{id}", "DELETE", "USERS"));
             arr.add(createPermission("thay đổi trạng thái người dùng", "/api/v1/users/changeActivity/{id}", "PUT",
                     "USERS"));
@@ -80,6 +91,8 @@ public class DatabaseInitializer implements CommandLineRunner {
             arr.add(createPermission("Xem danh sách vai trò", "/api/v1/roles/fetch-all", "GET", "ROLES"));
 
             this.permissionRepository.saveAll(arr);
+        } else {
+            addMissingPermissions();
         }
 
         if (countRoles == 0) {
@@ -124,4 +137,44 @@ public class DatabaseInitializer implements CommandLineRunner {
             System.out.println(">>> END INIT DATABASE");
     }
 
+    /**
+     * DB đã có dữ liệu (prod chạy ddl-auto=update) thì danh sách ở trên không được seed lại: thêm
+     * từng permission của các endpoint mới nếu chưa có (theo module + apiPath + method) và gán cho
+     * SUPER_ADMIN, nếu không admin nhận 403. Chỉ các endpoint thêm sau, permission cũ bị xóa có
+     * chủ ý không bị tạo lại.
+     */
+    private void addMissingPermissions() {
+        List<Permission> added = new ArrayList<>();
+        for (Permission permission : List.of(
+                createPermission("Xem chi tiết người dùng", "/api/v1/users/{id}", "GET", "USERS"),
+                createPermission("Export danh sách người dùng", "/api/v1/users/export", "GET", "USERS"),
+                createPermission("Import người dùng từ CSV", "/api/v1/users/import", "POST", "USERS"),
+                createPermission("Xem tiến độ import người dùng", "/api/v1/users/import/{id}", "GET", "USERS"),
+                createPermission("Tải file lỗi import người dùng", "/api/v1/users/import/{id}/errors", "GET",
+                        "USERS"))) {
+            if (!this.permissionRepository.existsByModuleAndApiPathAndMethod(
+                    permission.getModule(), permission.getApiPath(), permission.getMethod())) {
+                added.add(this.permissionRepository.save(permission));
+            }
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        System.out.println(">>> INIT DATABASE: thêm " + added.size() + " permission mới");
+
+        Optional<Role> adminRole = this.roleRepository.findAll().stream()
+                .filter(role -> "SUPER_ADMIN".equals(role.getName()))
+                .findFirst()
+                .map(role -> this.roleRepository.findWithPermissionsById(role.getId()));
+        if (adminRole.isPresent()) {
+            Role role = adminRole.get();
+            role.getPermissions().addAll(added);
+            this.roleRepository.save(role);
+            this.cacheInvalidationLog.publish(CacheInvalidation.Target.ROLE, role.getId());
+        }
+        // node khác đang chạy cũng nạp lại catalog quyền
+        added.forEach(permission -> this.cacheInvalidationLog.publish(CacheInvalidation.Target.PERMISSION,
+                permission.getId()));
+    }
+
 }
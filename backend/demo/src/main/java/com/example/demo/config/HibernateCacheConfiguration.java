@@ -0,0 +1,107 @@
+package com.example.demo.config;
+
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+/**
+ * Second-level cache của Hibernate (in-process, JCache + Caffeine) cho Role, Permission,
+ * Role.permissions (bảng permission_role) và query cache.
+ *
+ * Mỗi region được tạo sẵn với max-size + TTL riêng (missing_cache_strategy=fail: region nào
+ * chưa khai báo ở đây thì app không khởi động, không có region "vô hạn" nào lọt vào).
+ * Node khác sửa dữ liệu thì CacheInvalidationLog evict; TTL là giới hạn trên cho dữ liệu cũ
+ * khi bảng bị sửa ngoài ứng dụng.
+ * Hit/miss/put theo region ở actuator: hibernate.second.level.cache.requests{region},
+ * hibernate.cache.query.requests.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.cache.hibernate.enabled", havingValue = "true", matchIfMissing = true)
+public class HibernateCacheConfiguration {
+
+    public static final String ROLES = "roles";
+    public static final String PERMISSIONS = "permissions";
+    public static final String ROLE_PERMISSIONS = "roles.permissions";
+
+    // mỗi SessionFactory (mỗi context test) một CacheManager riêng, Hibernate đóng nó khi tắt
+    private static final AtomicInteger MANAGERS = new AtomicInteger();
+
+    private final long entityMaxSize;
+    private final long entityTtlSeconds;
+    private final long collectionMaxSize;
+    private final long collectionTtlSeconds;
+    private final long queryMaxSize;
+    private final long queryTtlSeconds;
+
+    public HibernateCacheConfiguration(
+            @Value("${app.cache.hibernate.entity.max-size:5000}") long entityMaxSize,
+            @Value("${app.cache.hibernate.entity.ttl-seconds:3600}") long entityTtlSeconds,
+            @Value("${app.cache.hibernate.collection.max-size:1000}") long collectionMaxSize,
+            @Value("${app.cache.hibernate.collection.ttl-seconds:3600}") long collectionTtlSeconds,
+            @Value("${app.cache.hibernate.query.max-size:2000}") long queryMaxSize,
+            @Value("${app.cache.hibernate.query.ttl-seconds:600}") long queryTtlSeconds) {
+        this.entityMaxSize = entityMaxSize;
+        this.entityTtlSeconds = entityTtlSeconds;
+        this.collectionMaxSize = collectionMaxSize;
+        this.collectionTtlSeconds = collectionTtlSeconds;
+        this.queryMaxSize = queryMaxSize;
+        this.queryTtlSeconds = queryTtlSeconds;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateSecondLevelCache() {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, createCacheManager());
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, MissingCacheStrategy.FAIL.getExternalRepresentation());
+            // cần cho HibernateMetrics (actuator); log thống kê mỗi session bị tắt trong application.properties
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+
+    private CacheManager createCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-l2-" + MANAGERS.incrementAndGet()),
+                        HibernateCacheConfiguration.class.getClassLoader());
+
+        cacheManager.createCache(ROLES, region(entityMaxSize, entityTtlSeconds));
+        cacheManager.createCache(PERMISSIONS, region(entityMaxSize, entityTtlSeconds));
+        cacheManager.createCache(ROLE_PERMISSIONS, region(collectionMaxSize, collectionTtlSeconds));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                region(queryMaxSize, queryTtlSeconds));
+        // timestamps quyết định query cache nào còn hợp lệ: không được evict/hết hạn trước query cache
+        // (mỗi bảng 1 entry nên không cần giới hạn)
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                new CaffeineConfiguration<Object, Object>());
+
+        System.out.println(">>> Hibernate L2 cache: entity " + entityMaxSize + "/" + entityTtlSeconds + "s, collection "
+                + collectionMaxSize + "/" + collectionTtlSeconds + "s, query " + queryMaxSize + "/" + queryTtlSeconds + "s");
+        return cacheManager;
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maxSize, long ttlSeconds) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        return configuration;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+// Lớp cấu hình HTTP client gọi tới Google/Facebook khi đăng nhập mạng xã hội
+public class OAuthClientConfiguration {
+
+    public static final String GOOGLE = "google";
+    public static final String FACEBOOK = "facebook";
+
+    private final Environment environment;
+
+    @Value("${app.oauth.http.connection-request-timeout-ms:1000}")
+    private long connectionRequestTimeoutMillis;
+
+    @Value("${app.oauth.http.keep-alive-seconds:30}")
+    private long keepAliveSeconds;
+
+    @Value("${app.oauth.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${app.oauth.circuit-breaker.sliding-window-size:20}")
+    private int slidingWindowSize;
+
+    @Value("${app.oauth.circuit-breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${app.oauth.circuit-breaker.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+
+    @Value("${app.oauth.circuit-breaker.open-duration-ms:30000}")
+    private long openDurationMillis;
+
+    @Value("${app.oauth.circuit-breaker.half-open-probes:3}")
+    private int halfOpenProbes;
+
+    @Value("${app.oauth.callback.threads:4}")
+    private int callbackThreads;
+
+    @Value("${app.oauth.callback.queue-capacity:128}")
+    private int callbackQueueCapacity;
+
+    @Value("${app.oauth.callback.retry-after-seconds:2}")
+    private long retryAfterSeconds;
+
+    public OAuthClientConfiguration(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Bean(destroyMethod = "close")
+    public OAuthHttpClient googleOAuthClient(MeterRegistry meterRegistry) {
+        return new OAuthHttpClient(GOOGLE, settings(GOOGLE), circuitBreakerSettings(), meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public OAuthHttpClient facebookOAuthClient(MeterRegistry meterRegistry) {
+        return new OAuthHttpClient(FACEBOOK, settings(FACEBOOK), circuitBreakerSettings(), meterRegistry);
+    }
+
+    /**
+     * Deadline và giới hạn đồng thời riêng từng provider:
+     * app.oauth.{provider}.connect-timeout-ms / read-timeout-ms / max-concurrent
+     */
+    private OAuthHttpClient.Settings settings(String provider) {
+        String prefix = "app.oauth." + provider + ".";
+        return new OAuthHttpClient.Settings(
+                Duration.ofMillis(environment.getProperty(prefix + "connect-timeout-ms", Long.class, 2000L)),
+                Duration.ofMillis(environment.getProperty(prefix + "read-timeout-ms", Long.class, 5000L)),
+                Duration.ofMillis(connectionRequestTimeoutMillis),
+                Duration.ofSeconds(keepAliveSeconds),
+                maxConnections,
+                environment.getProperty(prefix + "max-concurrent", Integer.class, 20),
+                callbackThreads,
+                callbackQueueCapacity,
+                Threading.VIRTUAL.isActive(environment),
+                retryAfterSeconds);
+    }
+
+    private CircuitBreaker.Settings circuitBreakerSettings() {
+        return new CircuitBreaker.Settings(
+                slidingWindowSize,
+                minimumCalls,
+                failureRateThreshold,
+                Duration.ofMillis(openDurationMillis),
+                halfOpenProbes);
+    }
+}
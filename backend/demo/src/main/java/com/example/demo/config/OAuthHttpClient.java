@@ -0,0 +1,308 @@
+package com.example.demo.config;
+
+import java.io.InterruptedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import com.example.demo.util.error.OAuthProviderException;
+import com.example.demo.util.error.OAuthProviderUnavailableException;
+import com.example.demo.util.error.ServiceOverloadedException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * HTTP client bất đồng bộ cho một provider OAuth (mỗi provider một instance).
+ *
+ * Dùng HttpAsyncClient (NIO) với pool kết nối keep-alive riêng: request chờ provider
+ * không giữ thread nào, connect/read timeout đặt theo provider. Kết quả được trả về
+ * trên pool callback nhỏ của provider (virtual thread khi bật spring.threads.virtual.enabled)
+ * chứ không phải thread I/O reactor, nên các bước nối tiếp (parse JSON, gọi userinfo,
+ * ghi DB, ký JWT) không chặn reactor.
+ *
+ * Mỗi provider có giới hạn số request đồng thời (bulkhead) và circuit breaker riêng:
+ * khi provider chậm/hỏng, request vượt giới hạn hoặc gặp breaker mở bị từ chối ngay
+ * bằng OAuthProviderUnavailableException thay vì xếp hàng chờ.
+ *
+ * Metrics: auth.oauth.request {provider, outcome} (histogram độ trễ),
+ * auth.oauth.rejected {provider, reason}, auth.oauth.circuit.*,
+ * httpcomponents.httpclient.pool.* {httpclient=oauth-<provider>},
+ * executor.* {name=oauthCallback, provider}.
+ */
+public class OAuthHttpClient implements AutoCloseable {
+
+    public static final String EXECUTOR_NAME = "oauthCallback";
+
+    /**
+     * Cấu hình theo provider
+     */
+    public record Settings(
+            Duration connectTimeout,
+            Duration readTimeout,
+            Duration connectionRequestTimeout,
+            Duration keepAlive,
+            int maxConnections,
+            int maxConcurrentRequests,
+            int callbackThreads,
+            int callbackQueueCapacity,
+            boolean virtualThreads,
+            long retryAfterSeconds) {
+    }
+
+    private final String provider;
+    private final Settings settings;
+    private final CloseableHttpAsyncClient client;
+    private final ThreadPoolExecutor pool;
+    private final Executor callbackExecutor;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+
+    public OAuthHttpClient(String provider, Settings settings, CircuitBreaker.Settings circuitBreakerSettings,
+            MeterRegistry meterRegistry) {
+        this.provider = provider;
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(settings.maxConcurrentRequests());
+        this.circuitBreaker = new CircuitBreaker(provider, circuitBreakerSettings, meterRegistry);
+
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.maxConnections())
+                .setMaxConnPerRoute(settings.maxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(settings.connectTimeout()))
+                        .setSocketTimeout(Timeout.of(settings.readTimeout()))
+                        // kiểm tra lại kết nối nằm trong pool quá 2s trước khi dùng
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        // giới hạn tuổi kết nối để vẫn nhận thay đổi DNS của provider
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "oauth-" + provider)
+                .bindTo(meterRegistry);
+
+        this.client = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(settings.connectionRequestTimeout()))
+                        .setResponseTimeout(Timeout.of(settings.readTimeout()))
+                        .setConnectionKeepAlive(TimeValue.of(settings.keepAlive()))
+                        .build())
+                // 1 thread NIO đủ cho vài nghìn kết nối đang chờ
+                .setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(1).build())
+                .evictIdleConnections(TimeValue.of(settings.keepAlive()))
+                .disableCookieManagement()
+                .build();
+        this.client.start();
+
+        if (settings.virtualThreads()) {
+            // spring.threads.virtual.enabled trên JDK 21: mỗi callback một virtual thread, không cần pool
+            this.pool = null;
+            this.callbackExecutor = ExecutorServiceMetrics.monitor(meterRegistry,
+                    (Executor) new VirtualThreadTaskExecutor("oauth-" + provider + "-"), EXECUTOR_NAME,
+                    Tags.of("provider", provider));
+        } else {
+            AtomicInteger sequence = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(settings.callbackThreads(), settings.callbackThreads(),
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, settings.callbackQueueCapacity())),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "oauth-" + provider + "-" + sequence.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.callbackExecutor = ExecutorServiceMetrics.monitor(meterRegistry, this.pool, EXECUTOR_NAME,
+                    Tags.of("provider", provider));
+        }
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    /**
+     * GET, trả về body khi provider trả 2xx
+     */
+    public CompletableFuture<byte[]> get(String uri, String bearerToken) {
+        SimpleRequestBuilder builder = SimpleRequestBuilder.get(uri)
+                .setHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.getMimeType());
+        if (bearerToken != null) {
+            builder.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken);
+        }
+        return execute(builder.build());
+    }
+
+    /**
+     * POST application/x-www-form-urlencoded, trả về body khi provider trả 2xx
+     */
+    public CompletableFuture<byte[]> postForm(String uri, Map<String, String> form) {
+        String body = form.entrySet().stream()
+                .map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "="
+                        + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+        return execute(SimpleRequestBuilder.post(uri)
+                .setHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.getMimeType())
+                .setBody(body, ContentType.APPLICATION_FORM_URLENCODED)
+                .build());
+    }
+
+    /**
+     * false khi circuit breaker đang mở: nên báo lỗi cho người dùng ngay thay vì gọi provider
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.isCallPermitted();
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    private CompletableFuture<byte[]> execute(SimpleHttpRequest request) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            rejected("circuit_open");
+            return CompletableFuture.failedFuture(new OAuthProviderUnavailableException(provider,
+                    "Đăng nhập bằng " + provider + " đang tạm gián đoạn, vui lòng thử lại sau"));
+        }
+        if (!bulkhead.tryAcquire()) {
+            circuitBreaker.onIgnored();
+            rejected("bulkhead");
+            return CompletableFuture.failedFuture(new OAuthProviderUnavailableException(provider,
+                    "Đăng nhập bằng " + provider + " đang quá tải, vui lòng thử lại sau"));
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        client.execute(request, new FutureCallback<SimpleHttpResponse>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                int status = response.getCode();
+                // 4xx (code sai/hết hạn) là lỗi của request, không phải provider hỏng; 429 thì tính là lỗi
+                boolean providerFault = status >= 500 || status == 429;
+                finish(providerFault ? "server_error" : (status >= 400 ? "client_error" : "success"),
+                        providerFault);
+                completeOnCallbackExecutor(result, () -> {
+                    if (status < 200 || status >= 300) {
+                        throw new OAuthProviderException(provider,
+                                "Không thể xác thực với " + provider + ": provider trả về HTTP " + status);
+                    }
+                    return response.getBodyBytes();
+                });
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                finish(isTimeout(ex) ? "timeout" : "error", true);
+                completeOnCallbackExecutor(result, () -> {
+                    throw failure(ex);
+                });
+            }
+
+            @Override
+            public void cancelled() {
+                bulkhead.release();
+                circuitBreaker.onIgnored();
+                completeOnCallbackExecutor(result, () -> {
+                    throw new OAuthProviderException(provider, "Yêu cầu tới " + provider + " đã bị hủy");
+                });
+            }
+
+            private void finish(String outcome, boolean providerFault) {
+                bulkhead.release();
+                if (providerFault) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                }
+                Timer.builder("auth.oauth.request")
+                        .description("Độ trễ từng request tới provider OAuth")
+                        .tag("provider", provider)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        });
+        return result;
+    }
+
+    private void completeOnCallbackExecutor(CompletableFuture<byte[]> result, Supplier<byte[]> body) {
+        try {
+            callbackExecutor.execute(() -> {
+                try {
+                    result.complete(body.get());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new ServiceOverloadedException(
+                    "Hệ thống đang quá tải, vui lòng thử lại sau " + settings.retryAfterSeconds() + " giây",
+                    settings.retryAfterSeconds()));
+        }
+    }
+
+    private void rejected(String reason) {
+        Counter.builder("auth.oauth.rejected")
+                .description("Số request tới provider OAuth bị từ chối ngay (breaker mở / quá giới hạn đồng thời)")
+                .tag("provider", provider)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // connect/read timeout là InterruptedIOException, hết hạn chờ lấy kết nối từ pool là TimeoutException
+    private static boolean isTimeout(Exception ex) {
+        return ex instanceof InterruptedIOException || ex instanceof TimeoutException;
+    }
+
+    private OAuthProviderException failure(Exception ex) {
+        if (isTimeout(ex)) {
+            return new OAuthProviderException(provider, provider + " không phản hồi kịp thời gian chờ", ex);
+        }
+        return new OAuthProviderException(provider, "Không kết nối được tới " + provider + ": " + ex.getMessage(), ex);
+    }
+
+    @Override
+    public void close() {
+        client.close(CloseMode.GRACEFUL);
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
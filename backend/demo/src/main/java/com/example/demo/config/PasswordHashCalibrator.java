@@ -0,0 +1,49 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Chọn cost (log2 rounds) của BCrypt theo phần cứng đang chạy: cost lớn nhất mà
+ * một lần băm vẫn nằm trong ngân sách thời gian, giới hạn trong [min, max].
+ *
+ * Mỗi bậc cost gấp đôi thời gian băm, nên đo tăng dần và dừng ngay khi vượt ngân sách.
+ */
+public final class PasswordHashCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample-password";
+
+    private PasswordHashCalibrator() {
+    }
+
+    public static int calibrate(Duration target, int minStrength, int maxStrength) {
+        int chosen = minStrength;
+        for (int strength = minStrength; strength <= maxStrength; strength++) {
+            Duration elapsed = measure(strength);
+            if (elapsed.compareTo(target) > 0) {
+                break;
+            }
+            chosen = strength;
+            // bậc sau tốn gấp đôi: đoán trước để khỏi đo một lần chắc chắn vượt ngân sách
+            if (elapsed.multipliedBy(2).compareTo(target) > 0) {
+                break;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Thời gian một lần encode ở cost cho trước (lấy lần nhanh nhất trong 2 lần, lần đầu có warm-up JIT)
+     */
+    public static Duration measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return Duration.ofNanos(best);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.config;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.example.demo.util.error.ServiceOverloadedException;
+
+/**
+ * DaoAuthenticationProvider băm lại hash cũ (cost thấp / chưa có prefix) theo kiểu best-effort.
+ *
+ * Sau khi mật khẩu đã đúng, DaoAuthenticationProvider gọi encode() để nâng cấp hash; encode đó
+ * cũng chạy trên pool của BoundedPasswordEncoder, nên khi pool vừa đầy thì user nhập đúng mật
+ * khẩu lại nhận 503. Ở đây bỏ qua việc nâng cấp trong trường hợp đó: hash cũ vẫn kiểm tra được
+ * và sẽ được băm lại ở lần đăng nhập sau.
+ */
+public class PasswordUpgradeAuthenticationProvider extends DaoAuthenticationProvider {
+
+    public PasswordUpgradeAuthenticationProvider(PasswordEncoder passwordEncoder,
+            UserDetailsService userDetailsService, UserDetailsPasswordService userDetailsPasswordService) {
+        super(passwordEncoder);
+        setUserDetailsService(userDetailsService);
+        setUserDetailsPasswordService(userDetailsPasswordService);
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication,
+            UserDetails user) {
+        try {
+            return super.createSuccessAuthentication(principal, authentication, user);
+        } catch (ServiceOverloadedException e) {
+            // giống AbstractUserDetailsAuthenticationProvider.createSuccessAuthentication, không nâng cấp hash
+            UsernamePasswordAuthenticationToken result = UsernamePasswordAuthenticationToken.authenticated(principal,
+                    authentication.getCredentials(), user.getAuthorities());
+            result.setDetails(authentication.getDetails());
+            return result;
+        }
+    }
+}
@@ -1,16 +1,12 @@
 package com.example.demo.config;
 
-import java.util.List;
+import java.util.BitSet;
 
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.AntPathMatcher;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.HandlerMapping;
 
-import com.example.demo.domain.Permission;
-import com.example.demo.domain.Role;
-import com.example.demo.domain.User;
+import com.example.demo.domain.dto.PrincipalDTO;
 import com.example.demo.service.UserServices;
 import com.example.demo.util.SecurityUtil;
 import com.example.demo.util.error.PermissionException;
@@ -20,13 +16,20 @@ import jakarta.servlet.http.HttpServletResponse;
 
 public class PermissionInterceptor implements HandlerInterceptor {
 
-    @Autowired
-    private UserServices userService;
-
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final UserServices userService;
+    private final AuthorizationIndex authorizationIndex;
+    private final boolean permissionClaimsEnabled;
+
+    public PermissionInterceptor(
+            UserServices userService,
+            AuthorizationIndex authorizationIndex,
+            boolean permissionClaimsEnabled) {
+        this.userService = userService;
+        this.authorizationIndex = authorizationIndex;
+        this.permissionClaimsEnabled = permissionClaimsEnabled;
+    }
 
     @Override
-    @Transactional
     public boolean preHandle(
             HttpServletRequest request,
             HttpServletResponse response,
@@ -37,11 +40,6 @@ public class PermissionInterceptor implements HandlerInterceptor {
         String requestURI = request.getRequestURI();
         String httpMethod = request.getMethod();
 
-        System.out.println(">>> RUN preHandle");
-        System.out.println(">>> pathPattern = " + pathPattern);
-        System.out.println(">>> httpMethod = " + httpMethod);
-        System.out.println(">>> requestURI = " + requestURI);
-
         // ==================== CHECK PERMISSION ====================
 
         String email = SecurityUtil.getCurrentUserLogin().orElse("");
@@ -50,40 +48,11 @@ public class PermissionInterceptor implements HandlerInterceptor {
             return true; // chưa login thì cho đi tiếp (tuỳ policy)
         }
 
-        User user = userService.handleGetUserByUsername(email);
-        if (user == null) {
-            throw new PermissionException("Không tìm thấy người dùng.");
-        }
-
-        // Role role = user.getUserRole().getRole();
-        Role role = user.getRole();
-        if (role == null) {
-            throw new PermissionException("Người dùng chưa được gán role.");
-        }
-
-        List<Permission> permissions = role.getPermissions();
-
-        // So sánh path pattern với permission, hỗ trợ pattern matching
-        boolean isAllow = permissions.stream()
-                .anyMatch(permission -> {
-                    String permissionPath = permission.getApiPath();
-                    String permissionMethod = permission.getMethod();
-
-                    // So sánh method trước
-                    if (!permissionMethod.equalsIgnoreCase(httpMethod)) {
-                        return false;
-                    }
-
-                    // Nếu path pattern từ HandlerMapping có sẵn, so sánh trực tiếp
-                    if (pathPattern != null) {
-                        return permissionPath.equals(pathPattern);
-                    }
-
-                    // Nếu path pattern null, match requestURI với permission pattern
-                    // Convert {id} -> * để dùng với AntPathMatcher
-                    String antPattern = permissionPath.replaceAll("\\{[^}]+\\}", "*");
-                    return pathMatcher.match(antPattern, requestURI);
-                });
+        // Token còn khớp catalog quyền -> quyết định luôn, không truy vấn DB
+        Boolean allowedByToken = checkByTokenClaims(httpMethod, pathPattern, requestURI);
+        boolean isAllow = allowedByToken != null
+                ? allowedByToken
+                : checkByUserRole(email, httpMethod, pathPattern, requestURI);
 
         if (!isAllow) {
             throw new PermissionException(
@@ -95,4 +64,44 @@ public class PermissionInterceptor implements HandlerInterceptor {
 
         return true;
     }
-}
\ No newline at end of file
+
+    private boolean checkByUserRole(String email, String httpMethod, String pathPattern, String requestURI)
+            throws PermissionException {
+        // principal lấy từ PrincipalCache, chỉ truy DB khi cache miss
+        PrincipalDTO principal = userService.handleGetPrincipalByUsername(email);
+        if (principal == null) {
+            throw new PermissionException("Không tìm thấy người dùng.");
+        }
+
+        if (principal.getRoleId() == null) {
+            throw new PermissionException("Người dùng chưa được gán role.");
+        }
+
+        // Tra cứu trong index đã biên dịch sẵn, không load role.getPermissions() từ DB
+        return authorizationIndex.isAllowed(principal.getRoleId(), httpMethod, pathPattern, requestURI);
+    }
+
+    /**
+     * Phân quyền trực tiếp từ claim perm_bits của JWT (không truy vấn DB).
+     * Trả về null nếu không dùng được token (chế độ tắt, thiếu claim, hoặc
+     * catalog quyền đã thay đổi sau khi token được phát hành) -> fallback DB.
+     */
+    private Boolean checkByTokenClaims(String httpMethod, String pathPattern, String requestURI) {
+        if (!permissionClaimsEnabled) {
+            return null;
+        }
+        Jwt jwt = SecurityUtil.getCurrentJwt().orElse(null);
+        if (jwt == null) {
+            return null;
+        }
+        AuthorizationIndex.Snapshot snapshot = authorizationIndex.current();
+        if (!snapshot.version().equals(jwt.getClaimAsString(SecurityUtil.CLAIM_PERMISSION_VERSION))) {
+            return null;
+        }
+        BitSet granted = snapshot.decodePermissions(jwt.getClaimAsString(SecurityUtil.CLAIM_PERMISSIONS));
+        if (granted == null) {
+            return null;
+        }
+        return snapshot.isAllowed(granted, httpMethod, pathPattern, requestURI);
+    }
+}
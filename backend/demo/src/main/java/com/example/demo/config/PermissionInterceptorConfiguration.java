@@ -1,17 +1,31 @@
 package com.example.demo.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.example.demo.service.UserServices;
+
 @Configuration
 // Lớp cấu hình interceptor kiểm tra quyền hạn
 public class PermissionInterceptorConfiguration implements WebMvcConfigurer {
 
+    private final UserServices userService;
+    private final AuthorizationIndex authorizationIndex;
+
+    @Value("${app.security.permission-claims.enabled:false}")
+    private boolean permissionClaimsEnabled;
+
+    public PermissionInterceptorConfiguration(UserServices userService, AuthorizationIndex authorizationIndex) {
+        this.userService = userService;
+        this.authorizationIndex = authorizationIndex;
+    }
+
     @Bean
     public PermissionInterceptor permissionInterceptor() {
-        return new PermissionInterceptor();
+        return new PermissionInterceptor(userService, authorizationIndex, permissionClaimsEnabled);
     }
 
     /**
@@ -25,6 +39,7 @@ public class PermissionInterceptorConfiguration implements WebMvcConfigurer {
                 "/",
                 "/api/v1/auth/**",
                 "/api/v1/auth/social/login/**",
+                "/oauth-stub/**",
                 "/swagger-ui/**",
                 "/v3/api-docs/**"
         };
@@ -0,0 +1,121 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.domain.dto.PrincipalDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache principal theo email (đã chuẩn hoá), dùng chung cho UserDetailCustom,
+ * PermissionInterceptor và AuthController để không phải findByEmail nhiều lần.
+ *
+ * Có giới hạn kích thước + TTL; các thao tác ghi trong UserServicesImpl phải
+ * gọi evict. Số hit/miss/eviction được public qua actuator (cache.gets, cache.evictions).
+ */
+@Component
+public class PrincipalCache {
+
+    public static final String CACHE_NAME = "principals";
+
+    private final Cache<String, PrincipalDTO> cache;
+    private final ConcurrentMap<String, CompletableFuture<PrincipalDTO>> inFlight = new ConcurrentHashMap<>();
+    // tăng mỗi lần evict, để bỏ kết quả load bắt đầu trước khi dữ liệu bị sửa
+    private final AtomicLong evictions = new AtomicLong();
+
+    public PrincipalCache(
+            @Value("${app.cache.principal.max-size:10000}") long maxSize,
+            @Value("${app.cache.principal.ttl-seconds:300}") long ttlSeconds,
+            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, CACHE_NAME);
+    }
+
+    /**
+     * Lấy principal từ cache, nếu chưa có thì load bằng loader (kết quả null không được cache).
+     *
+     * Loader (truy vấn DB) chạy ngoài lock của cache: cache.get(key, loader) giữ lock
+     * synchronized của ConcurrentHashMap trong suốt lúc load, trên virtual thread sẽ ghim
+     * carrier thread khi chờ JDBC. Các request cùng email vẫn chỉ load một lần (in-flight).
+     */
+    public PrincipalDTO get(String email, Function<String, PrincipalDTO> loader) {
+        if (email == null) {
+            return null;
+        }
+        String key = normalize(email);
+        PrincipalDTO cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<PrincipalDTO> loading = new CompletableFuture<>();
+        CompletableFuture<PrincipalDTO> existing = inFlight.putIfAbsent(key, loading);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        long epoch = evictions.get();
+        try {
+            PrincipalDTO loaded = loader.apply(email);
+            // có evict xảy ra trong lúc load thì kết quả có thể đã cũ, không đưa vào cache
+            if (loaded != null && evictions.get() == epoch) {
+                cache.put(key, loaded);
+                // evict chen vào giữa lúc kiểm tra và put
+                if (evictions.get() != epoch) {
+                    cache.invalidate(key);
+                }
+            }
+            loading.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, loading);
+        }
+    }
+
+    public void evict(String email) {
+        if (email != null) {
+            evictions.incrementAndGet();
+            cache.invalidate(normalize(email));
+        }
+    }
+
+    /**
+     * Evict theo id (dùng khi không còn biết email cũ, vd: xoá user hoặc đổi email)
+     */
+    public void evict(long userId) {
+        evictions.incrementAndGet();
+        cache.asMap().values().removeIf(p -> p.getId() == userId);
+    }
+
+    public void evictAll() {
+        evictions.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
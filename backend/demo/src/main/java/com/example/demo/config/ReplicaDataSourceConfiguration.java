@@ -0,0 +1,115 @@
+package com.example.demo.config;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bật khi app.datasource.replica.urls khác rỗng: thay DataSource mặc định bằng
+ * ReplicaRoutingDataSource (pool "primary" từ spring.datasource.* và pool "replica-N" cho mỗi URL,
+ * cùng cấu hình spring.datasource.hikari.*). Mỗi pool có metrics hikaricp.connections.*{pool}.
+ */
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replica.urls:}'.isBlank()")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            DataSourceProperties properties,
+            Environment environment,
+            @Value("${app.datasource.replica.urls}") String replicaUrls,
+            @Value("${app.datasource.replica.username:}") String replicaUsername,
+            @Value("${app.datasource.replica.password:}") String replicaPassword,
+            @Value("${app.datasource.replica.maximum-pool-size:10}") int replicaPoolSize,
+            @Value("${app.datasource.replica.transaction-prefixes:com.example.demo.service.}") List<String> transactionPrefixes,
+            @Value("${app.datasource.replica.read-your-writes-ms:5000}") long readYourWritesMillis,
+            MeterRegistry meterRegistry) {
+        MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        bindHikariSettings(environment, primary);
+        primary.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        primary.setMetricsTrackerFactory(metrics);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : StringUtils.commaDelimitedListToStringArray(replicaUrls)) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = new HikariDataSource();
+            bindHikariSettings(environment, replica);
+            replica.setJdbcUrl(url.trim());
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setUsername(StringUtils.hasText(replicaUsername) ? replicaUsername : properties.determineUsername());
+            replica.setPassword(StringUtils.hasText(replicaUsername) ? replicaPassword : properties.determinePassword());
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setMetricsTrackerFactory(metrics);
+            replicas.add(replica);
+        }
+        System.out.println(">>> Read replica: " + replicas.size() + " pool, read-your-writes " + readYourWritesMillis + "ms");
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, transactionPrefixes,
+                Duration.ofMillis(readYourWritesMillis), meterRegistry);
+        return new RoutingConnectionProxy(routing);
+    }
+
+    /**
+     * Spring giữ connection của EntityManager (open-in-view) suốt request: connection replica lấy
+     * trong một transaction chỉ đọc sẽ bị dùng lại cho transaction ghi phía sau trong cùng request
+     * và ghi nhầm vào replica. Trả connection sau mỗi transaction để mỗi transaction được route lại.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    private static void bindHikariSettings(Environment environment, HikariDataSource dataSource) {
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+    }
+
+    /**
+     * Hoãn lấy connection thật tới câu lệnh đầu tiên (lúc đó đã biết transaction có readOnly hay
+     * không) và đóng các pool khi context tắt.
+     */
+    static final class RoutingConnectionProxy extends LazyConnectionDataSourceProxy implements Closeable {
+
+        private final ReplicaRoutingDataSource routing;
+
+        RoutingConnectionProxy(ReplicaRoutingDataSource routing) {
+            super(routing);
+            this.routing = routing;
+        }
+
+        @Override
+        public void close() {
+            routing.close();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.demo.config;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.util.SecurityUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Chọn pool cho mỗi connection vật lý: transaction @Transactional(readOnly = true) mở từ các
+ * class thuộc replicaTransactionPrefixes (mặc định tầng service) đi replica (xoay vòng), còn lại
+ * đi primary. Query method của Spring Data mặc định cũng readOnly nhưng không được tính: đó là
+ * các lần tra cứu lẻ (findByEmail lúc đăng nhập, existsByName trước khi insert, build
+ * AuthorizationIndex) cần dữ liệu mới nhất.
+ *
+ * Read-your-writes: sau khi transaction ghi của một user commit, các transaction chỉ đọc của
+ * chính user đó vẫn đi primary trong readYourWritesWindow (replica có thể chưa kịp đồng bộ).
+ *
+ * Phải được bọc trong LazyConnectionDataSourceProxy (xem ReplicaDataSourceConfiguration): lúc
+ * transaction bắt đầu, cờ readOnly chưa được gắn vào TransactionSynchronizationManager.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    static final String PRIMARY = "primary";
+
+    private final HikariDataSource primary;
+    private final List<HikariDataSource> replicas;
+    private final List<String> replicaTransactionPrefixes;
+    private final AtomicInteger next = new AtomicInteger();
+    // email -> thời điểm ghi gần nhất, tự hết hạn sau cửa sổ read-your-writes
+    private final Cache<String, Long> recentWriters;
+
+    private final Counter writes;
+    private final Counter nonTransactional;
+    private final Counter readYourWrites;
+    private final Counter lookups;
+    private final Counter replicaReads;
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+            List<String> replicaTransactionPrefixes, Duration readYourWritesWindow, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.replicaTransactionPrefixes = List.copyOf(replicaTransactionPrefixes);
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(readYourWritesWindow)
+                .build();
+        this.writes = routed(meterRegistry, PRIMARY, "write");
+        this.nonTransactional = routed(meterRegistry, PRIMARY, "non-transactional");
+        this.readYourWrites = routed(meterRegistry, PRIMARY, "read-your-writes");
+        this.lookups = routed(meterRegistry, PRIMARY, "lookup");
+        this.replicaReads = routed(meterRegistry, "replica", "read-only");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route().getConnection(username, password);
+    }
+
+    HikariDataSource route() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            nonTransactional.increment();
+            return primary;
+        }
+        String user = SecurityUtil.getCurrentUserLogin().map(email -> email.toLowerCase(Locale.ROOT)).orElse(null);
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            writes.increment();
+            rememberWriteOnCommit(user);
+            return primary;
+        }
+        if (replicas.isEmpty() || !isReplicaTransaction(TransactionSynchronizationManager.getCurrentTransactionName())) {
+            lookups.increment();
+            return primary;
+        }
+        if (user != null && recentWriters.getIfPresent(user) != null) {
+            readYourWrites.increment();
+            return primary;
+        }
+        replicaReads.increment();
+        return replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+    }
+
+    private boolean isReplicaTransaction(String transactionName) {
+        if (transactionName == null) {
+            return false;
+        }
+        for (String prefix : replicaTransactionPrefixes) {
+            if (transactionName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rememberWriteOnCommit(String user) {
+        if (user == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(user, System.currentTimeMillis());
+            }
+        });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        primary.close();
+    }
+
+    private static Counter routed(MeterRegistry meterRegistry, String route, String reason) {
+        return Counter.builder("datasource.routing")
+                .description("Số connection lấy theo đích (primary/replica) và lý do")
+                .tag("route", route)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Gộp các lần đọc giống hệt nhau đang chạy đồng thời (single-flight): mỗi key (tên handler +
+ * tham số đã chuẩn hoá) chỉ có 1 lần load, các request đến trong lúc đó nhận chung kết quả
+ * (hoặc chung exception). Không cache: load xong là key được bỏ, request sau load lại.
+ *
+ * Request đi sau chỉ chờ tối đa max-wait, quá thì tự load (không fail theo request dẫn đầu
+ * bị chậm). Kết quả dùng chung giữa nhiều request nên không được sửa sau khi trả về.
+ * Gọi ở ngoài transaction (controller), transaction nằm trong loader: request đi sau chờ mà
+ * không mở transaction, không giữ connection của pool.
+ * Thao tác ghi trên node này gọi forget() sau commit để request sau đó không nhận kết quả
+ * của lần load bắt đầu trước khi ghi.
+ *
+ * Metrics theo name: request.coalescing.calls{result=leader|coalesced|timeout} và
+ * request.coalescing.ratio (tỉ lệ request không phải tự load).
+ */
+@Component
+public class RequestCoalescer {
+
+    public static final String USERS_BY_ID = "users.by-id";
+    public static final String ROLES_FETCH_ALL = "roles.fetch-all";
+    public static final String PERMISSIONS_FETCH_ALL = "permissions.fetch-all";
+
+    private final boolean enabled;
+    private final Duration maxWait;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public RequestCoalescer(
+            @Value("${app.coalescing.enabled:true}") boolean enabled,
+            @Value("${app.coalescing.max-wait-ms:2000}") long maxWaitMillis,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxWait = Duration.ofMillis(maxWaitMillis);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Chạy loader, hoặc chờ lần load đang chạy cùng name + args. Args phải so sánh được bằng
+     * equals (String, số, ...) và khác null, không truyền Specification/Pageable trực tiếp.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String name, List<?> args, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Meters counters = meters.computeIfAbsent(name, this::register);
+        Key key = new Key(name, List.copyOf(args));
+
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                T shared = (T) existing.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+                counters.coalesced.increment();
+                return shared;
+            } catch (TimeoutException e) {
+                counters.timeout.increment();
+                return loader.get();
+            } catch (ExecutionException e) {
+                counters.coalesced.increment();
+                throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Bị ngắt khi chờ request " + name, e);
+            }
+        }
+
+        counters.leader.increment();
+        try {
+            T loaded = loader.get();
+            mine.complete(loaded);
+            return loaded;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Bỏ các lần load đang chạy của name (request đang chờ vẫn nhận kết quả của chúng)
+     */
+    public void forget(String name) {
+        inFlight.keySet().removeIf(key -> key.name().equals(name));
+    }
+
+    public void forget(String name, List<?> args) {
+        inFlight.remove(new Key(name, List.copyOf(args)));
+    }
+
+    private Meters register(String name) {
+        Counter leader = counter(name, "leader");
+        Counter coalesced = counter(name, "coalesced");
+        Counter timeout = counter(name, "timeout");
+        Gauge.builder("request.coalescing.ratio", () -> {
+            double total = leader.count() + coalesced.count() + timeout.count();
+            return total == 0 ? 0 : coalesced.count() / total;
+        })
+                .description("Tỉ lệ request nhận kết quả của lần load đang chạy thay vì tự truy vấn")
+                .tag("name", name)
+                .register(meterRegistry);
+        return new Meters(leader, coalesced, timeout);
+    }
+
+    private Counter counter(String name, String result) {
+        return Counter.builder("request.coalescing.calls")
+                .description("Số lần gọi qua RequestCoalescer: leader (tự load), coalesced (dùng chung), timeout")
+                .tag("name", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Key(String name, List<?> args) {
+    }
+
+    private record Meters(Counter leader, Counter coalesced, Counter timeout) {
+    }
+}
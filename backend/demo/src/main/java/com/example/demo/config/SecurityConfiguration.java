@@ -1,40 +1,110 @@
 package com.example.demo.config;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Supplier;
+
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
-import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 
+import com.example.demo.util.HmacJwtCodec;
 import com.example.demo.util.SecurityUtil;
-import com.nimbusds.jose.jwk.source.ImmutableSecret;
 import com.nimbusds.jose.util.Base64;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Configuration // quét tất cả các anotation
 @EnableMethodSecurity(securedEnabled = true) // để xem người dùng có quyền hạn hay không
 public class SecurityConfiguration {
 
+    private static final String BCRYPT_ID = "bcrypt";
+
     @Value("${hoidanit.jwt.base64-secret}")
     private String jwtKey;
 
+    @Value("${app.cache.jwt.max-size:10000}")
+    private long verifiedTokenCacheSize;
+
+    // số thread băm mật khẩu, <= 0 thì lấy theo số CPU
+    @Value("${app.security.password-hashing.threads:0}")
+    private int hashingThreads;
+
+    @Value("${app.security.password-hashing.queue-capacity:32}")
+    private int hashingQueueCapacity;
+
+    @Value("${app.security.password-hashing.wait-timeout-ms:3000}")
+    private long hashingWaitTimeoutMs;
+
+    @Value("${app.security.password-hashing.retry-after-seconds:2}")
+    private long hashingRetryAfterSeconds;
+
+    // cost BCrypt cố định (> 0) hoặc tự đo lúc khởi động theo ngân sách target-millis
+    @Value("${app.security.password-hashing.bcrypt.strength:0}")
+    private int bcryptStrength;
+
+    @Value("${app.security.password-hashing.bcrypt.target-millis:250}")
+    private long bcryptTargetMillis;
+
+    @Value("${app.security.password-hashing.bcrypt.min-strength:10}")
+    private int bcryptMinStrength;
+
+    @Value("${app.security.password-hashing.bcrypt.max-strength:14}")
+    private int bcryptMaxStrength;
+
+    // BCrypt chạy trên pool riêng có giới hạn, quá tải thì 503 thay vì chiếm thread Tomcat.
+    // Hash mới có prefix {bcrypt}; hash cũ không prefix vẫn kiểm tra được, và sẽ được băm
+    // lại khi đăng nhập thành công nếu cost thấp hơn hiện tại (UserDetailCustom.updatePassword)
+    @Bean
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        int strength = bcryptStrength > 0
+                ? bcryptStrength
+                : PasswordHashCalibrator.calibrate(Duration.ofMillis(bcryptTargetMillis), bcryptMinStrength,
+                        bcryptMaxStrength);
+        System.out.println(">>> BCrypt strength: " + strength);
+        Gauge.builder("auth.password.bcrypt.strength", () -> strength)
+                .description("Cost BCrypt đang dùng cho hash mới")
+                .register(meterRegistry);
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(BCRYPT_ID, Map.of(BCRYPT_ID, bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        int threads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(delegating, threads, hashingQueueCapacity,
+                Duration.ofMillis(hashingWaitTimeoutMs), hashingRetryAfterSeconds, meterRegistry);
+    }
+
+    // nâng cấp hash lúc đăng nhập là best-effort: pool băm đầy thì bỏ qua, không trả 503
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordUpgradeAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder,
+            UserDetailCustom userDetailCustom) {
+        return new PasswordUpgradeAuthenticationProvider(passwordEncoder, userDetailCustom, userDetailCustom);
     }
 
     @Bean
@@ -59,6 +129,10 @@ public class SecurityConfiguration {
                 // 3. Cấu hình quyền truy cập cho các request
                 .authorizeHttpRequests(
                         authz -> authz
+                                // actuator (metrics, sqlstatements, ...) chỉ cho admin; PermissionInterceptor
+                                // không chạy trên handler của actuator. health để Docker/LB kiểm tra
+                                .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                                .requestMatchers(EndpointRequest.toAnyEndpoint()).access(SecurityConfiguration::adminOnly)
                                 .requestMatchers(whiteList).permitAll()
                                 // 3.1 Cho phép truy cập không cần xác thực cho trang chủ ("/") và trang đăng
                                 // nhập ("/login")
@@ -79,6 +153,14 @@ public class SecurityConfiguration {
         return http.build();
     }
 
+    // chưa login -> 401 (entry point), đã login nhưng không phải admin -> 403.
+    // Claim user_is_admin không đổi qua API; khoá/xoá user thì token bị thu hồi qua tok_ver
+    private static AuthorizationDecision adminOnly(Supplier<Authentication> authentication,
+            RequestAuthorizationContext context) {
+        return new AuthorizationDecision(authentication.get() instanceof JwtAuthenticationToken token
+                && Boolean.TRUE.equals(token.getToken().getClaimAsBoolean("user_is_admin")));
+    }
+
     @Bean
     public JwtAuthenticationConverter jwtAuthenticationConverter() {
         JwtGrantedAuthoritiesConverter grantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
@@ -89,10 +171,10 @@ public class SecurityConfiguration {
     }
 
     @Bean
-    public JwtDecoder jwtDecoder() {
-        NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withSecretKey(
-                getSecretKey()).macAlgorithm(SecurityUtil.JWT_ALGORITHM).build();
-        return token -> {
+    public JwtDecoder jwtDecoder(HmacJwtCodec jwtCodec, TokenVersionRegistry tokenVersionRegistry,
+            MeterRegistry meterRegistry) {
+        NimbusJwtDecoder jwtDecoder = jwtCodec.decoder();
+        JwtDecoder verifying = token -> {
             try {
                 return jwtDecoder.decode(token);
             } catch (Exception e) {
@@ -100,11 +182,21 @@ public class SecurityConfiguration {
                 throw e;
             }
         };
+        // token đã xác thực được cache tới exp, hit không phải parse/kiểm HMAC lại
+        CachingJwtDecoder caching = new CachingJwtDecoder(verifying, verifiedTokenCacheSize, Clock.systemUTC(),
+                meterRegistry);
+        // kiểm tok_ver sau cache (cả khi hit): token bị thu hồi sau lần decode đầu vẫn bị chặn
+        return token -> {
+            Jwt jwt = caching.decode(token);
+            tokenVersionRegistry.check(jwt);
+            return jwt;
+        };
     }
 
+    // khóa HMAC được init một lần, dùng chung cho ký (SecurityUtil) và xác thực (jwtDecoder)
     @Bean
-    public JwtEncoder jwtEncoder() {
-        return new NimbusJwtEncoder(new ImmutableSecret<>(getSecretKey()));
+    public HmacJwtCodec jwtCodec() {
+        return new HmacJwtCodec(getSecretKey(), SecurityUtil.JWT_ALGORITHM);
     }
 
     // thuật toán mã hóa tự config
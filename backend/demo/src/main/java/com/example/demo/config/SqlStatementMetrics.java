@@ -0,0 +1,255 @@
+package com.example.demo.config;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+/**
+ * Đo thời gian từng câu SQL qua datasource-proxy (xem SqlStatementMetricsConfiguration), thay cho
+ * spring.jpa.show-sql. Câu lệnh được chuẩn hóa thành "shape" (literal, danh sách IN, khoảng trắng)
+ * để findByEmail với mọi email, hay query spring-filter với mọi giá trị lọc, gom về cùng một timer
+ * sql.statements{shape, operation}. Số shape có giới hạn, vượt quá thì gom vào shape "other".
+ *
+ * Câu chạy lâu hơn ngưỡng được ghi vào slow-query log trong bộ nhớ (giữ capacity câu gần nhất)
+ * kèm kiểu/độ dài tham số bind — không bao giờ ghi giá trị (email, hash...).
+ * Cả hai xem qua actuator: /actuator/metrics/sql.statements và /actuator/sqlstatements.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sql.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlStatementMetrics implements QueryExecutionListener {
+
+    static final String OTHER_SHAPE = "other";
+    private static final String START_NANOS = "sqlStatementMetrics.startNanos";
+    private static final int MAX_SQL_LENGTH = 2000;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern VALUES_LIST = Pattern.compile("(?i)(\\bvalues\\s*\\([^)]*\\))(?:\\s*,\\s*\\([^)]*\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final MeterRegistry meterRegistry;
+    private final int maxShapes;
+    private final long slowThresholdNanos;
+    private final int slowCapacity;
+    private final Counter slowCounter;
+
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+    // SQL gốc -> shape, để câu Hibernate lặp lại không phải chạy regex chuẩn hóa mỗi lần
+    private final Map<String, Shape> rawShapes = new ConcurrentHashMap<>();
+    private final ArrayDeque<SlowQuery> slowQueries = new ArrayDeque<>();
+
+    public SqlStatementMetrics(
+            @Value("${app.sql.metrics.max-shapes:500}") int maxShapes,
+            @Value("${app.sql.slow-query.threshold-ms:200}") long slowThresholdMillis,
+            @Value("${app.sql.slow-query.capacity:200}") int slowCapacity,
+            MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.maxShapes = maxShapes;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.slowCapacity = slowCapacity;
+        this.slowCounter = Counter.builder("sql.statements.slow")
+                .description("Số câu SQL chạy lâu hơn app.sql.slow-query.threshold-ms")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long start = execInfo.getCustomValue(START_NANOS, Long.class);
+        if (start == null || queryInfoList.isEmpty()) {
+            return;
+        }
+        // batch Statement có thể gồm nhiều câu khác nhau: chia đều thời gian cho từng câu
+        long elapsed = (System.nanoTime() - start) / queryInfoList.size();
+        for (QueryInfo query : queryInfoList) {
+            Shape shape = shapeOf(query.getQuery());
+            shape.timer.record(elapsed, TimeUnit.NANOSECONDS);
+            if (elapsed >= slowThresholdNanos) {
+                recordSlow(shape, query, execInfo, elapsed);
+            }
+        }
+    }
+
+    /**
+     * Các shape đã gặp, câu tốn tổng thời gian nhiều nhất trước
+     */
+    public List<ShapeStats> shapes() {
+        List<ShapeStats> stats = new ArrayList<>();
+        for (Shape shape : shapes.values()) {
+            stats.add(shape.stats());
+        }
+        stats.sort(Comparator.comparingDouble(ShapeStats::totalMs).reversed());
+        return stats;
+    }
+
+    /**
+     * Slow-query log, mới nhất trước
+     */
+    public List<SlowQuery> slowQueries() {
+        synchronized (slowQueries) {
+            List<SlowQuery> copy = new ArrayList<>(slowQueries);
+            Collections.reverse(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * Bỏ literal và độ dài danh sách IN/VALUES để các câu chỉ khác giá trị có cùng shape
+     */
+    static String normalize(String sql) {
+        String s = STRING_LITERAL.matcher(sql).replaceAll("?");
+        s = NUMBER_LITERAL.matcher(s).replaceAll("?");
+        s = IN_LIST.matcher(s).replaceAll("in (?)");
+        s = VALUES_LIST.matcher(s).replaceAll("$1");
+        s = WHITESPACE.matcher(s).replaceAll(" ").trim();
+        return s.length() > MAX_SQL_LENGTH ? s.substring(0, MAX_SQL_LENGTH) : s;
+    }
+
+    private Shape shapeOf(String rawSql) {
+        Shape shape = rawShapes.get(rawSql);
+        if (shape != null) {
+            return shape;
+        }
+        String sql = normalize(rawSql);
+        shape = shapes.get(sql);
+        if (shape == null) {
+            shape = shapes.size() >= maxShapes
+                    ? shapes.computeIfAbsent(OTHER_SHAPE, key -> new Shape(OTHER_SHAPE, OTHER_SHAPE, "other"))
+                    : shapes.computeIfAbsent(sql, key -> new Shape(idOf(key), key, operationOf(key)));
+        }
+        // câu có literal (spring-filter, IN với số phần tử khác nhau) sinh vô số chuỗi gốc: giới hạn cache
+        if (rawShapes.size() < maxShapes * 4) {
+            rawShapes.put(rawSql, shape);
+        }
+        return shape;
+    }
+
+    private void recordSlow(Shape shape, QueryInfo query, ExecutionInfo execInfo, long elapsedNanos) {
+        slowCounter.increment();
+        SlowQuery slow = new SlowQuery(
+                Instant.now(),
+                elapsedNanos / 1_000_000.0,
+                shape.id,
+                shape.sql,
+                parameterShapes(query),
+                execInfo.isBatch() ? execInfo.getBatchSize() : 0,
+                Thread.currentThread().getName());
+        synchronized (slowQueries) {
+            if (slowQueries.size() >= slowCapacity) {
+                slowQueries.pollFirst();
+            }
+            slowQueries.addLast(slow);
+        }
+        // không ghi console trên thread request: ring ở trên là log duy nhất (alert theo counter sql.statements.slow)
+    }
+
+    /**
+     * Kiểu của từng tham số bind (lần set đầu tiên), vd [String(24), Long, null]
+     */
+    private static List<String> parameterShapes(QueryInfo query) {
+        List<String> result = new ArrayList<>();
+        List<List<ParameterSetOperation>> parameters = query.getParametersList();
+        if (parameters.isEmpty()) {
+            return result;
+        }
+        for (ParameterSetOperation operation : parameters.get(0)) {
+            Object[] args = operation.getArgs();
+            Object value = args.length > 1 ? args[1] : null;
+            if (value == null || ParameterSetOperation.isSetNullParameterOperation(operation)) {
+                result.add("null");
+            } else if (value instanceof CharSequence text) {
+                result.add("String(" + text.length() + ")");
+            } else if (value instanceof byte[] bytes) {
+                result.add("byte[" + bytes.length + "]");
+            } else {
+                result.add(value.getClass().getSimpleName());
+            }
+        }
+        return result;
+    }
+
+    private static String idOf(String sql) {
+        return String.format("%08x", sql.hashCode());
+    }
+
+    private static String operationOf(String sql) {
+        int end = sql.indexOf(' ');
+        String first = (end < 0 ? sql : sql.substring(0, end)).toLowerCase(Locale.ROOT);
+        return switch (first) {
+            case "select", "insert", "update", "delete", "with", "call" -> first;
+            default -> "other";
+        };
+    }
+
+    private final class Shape {
+        final String id;
+        final String sql;
+        final String operation;
+        final Timer timer;
+
+        Shape(String id, String sql, String operation) {
+            this.id = id;
+            this.sql = sql;
+            this.operation = operation;
+            this.timer = Timer.builder("sql.statements")
+                    .description("Thời gian chạy câu SQL theo shape (đã chuẩn hóa tham số)")
+                    .tag("shape", id)
+                    .tag("operation", operation)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+        }
+
+        ShapeStats stats() {
+            double p50 = 0;
+            double p95 = 0;
+            double p99 = 0;
+            for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                double value = percentile.value(TimeUnit.MILLISECONDS);
+                if (percentile.percentile() == 0.5) {
+                    p50 = value;
+                } else if (percentile.percentile() == 0.95) {
+                    p95 = value;
+                } else if (percentile.percentile() == 0.99) {
+                    p99 = value;
+                }
+            }
+            return new ShapeStats(id, operation, sql, timer.count(),
+                    timer.totalTime(TimeUnit.MILLISECONDS), timer.mean(TimeUnit.MILLISECONDS),
+                    timer.max(TimeUnit.MILLISECONDS), p50, p95, p99);
+        }
+    }
+
+    public record ShapeStats(String shape, String operation, String sql, long count, double totalMs,
+            double meanMs, double maxMs, double p50Ms, double p95Ms, double p99Ms) {
+    }
+
+    public record SlowQuery(Instant at, double elapsedMs, String shape, String sql, List<String> parameters,
+            int batchSize, String thread) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo.config;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/**
+ * Bọc DataSource (Hikari) bằng datasource-proxy để SqlStatementMetrics đo mọi câu lệnh, kể cả
+ * JdbcTemplate (import) và StatelessSession (export), không chỉ những câu Hibernate sinh ra.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sql.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlStatementMetricsConfiguration {
+
+    // static: BeanPostProcessor phải được tạo trước các bean khác; SqlStatementMetrics (cần
+    // MeterRegistry) chỉ được lấy ra khi có câu SQL đầu tiên
+    @Bean
+    public static BeanPostProcessor sqlStatementMetricsDataSourceWrapper(ObjectProvider<SqlStatementMetrics> metrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                return ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .listener(new LazyListener(metrics))
+                        .build();
+            }
+        };
+    }
+
+    private static final class LazyListener implements QueryExecutionListener {
+
+        private final ObjectProvider<SqlStatementMetrics> provider;
+        private volatile SqlStatementMetrics metrics;
+
+        LazyListener(ObjectProvider<SqlStatementMetrics> provider) {
+            this.provider = provider;
+        }
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            SqlStatementMetrics target = resolve();
+            if (target != null) {
+                target.beforeQuery(execInfo, queryInfoList);
+            }
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            SqlStatementMetrics target = resolve();
+            if (target != null) {
+                target.afterQuery(execInfo, queryInfoList);
+            }
+        }
+
+        private SqlStatementMetrics resolve() {
+            SqlStatementMetrics target = metrics;
+            if (target == null) {
+                target = provider.getIfAvailable();
+                metrics = target;
+            }
+            return target;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * /actuator/sqlstatements: latency theo shape (count, tổng, mean, max, p50/p95/p99, ms) và
+ * slow-query log. Cần thêm "sqlstatements" vào management.endpoints.web.exposure.include.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sql.metrics.enabled", havingValue = "true", matchIfMissing = true)
+@Endpoint(id = "sqlstatements")
+public class SqlStatementsEndpoint {
+
+    private final SqlStatementMetrics metrics;
+
+    public SqlStatementsEndpoint(SqlStatementMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statements() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("shapes", metrics.shapes());
+        body.put("slowQueries", metrics.slowQueries());
+        return body;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.demo.config;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.repository.UserServiceRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Version tối thiểu còn hợp lệ của token theo user id, để thu hồi access token mà không truy DB.
+ *
+ * Mỗi token mang claim tok_ver = users.token_version lúc phát hành; khoá tài khoản, đổi role,
+ * logout thì tăng token_version, các token cũ hơn bị decoder từ chối (401). User chưa từng bị thu
+ * hồi không có trong map (version 0); user đã xoá có version Long.MAX_VALUE.
+ *
+ * Map là bảng băm địa chỉ mở long -> long (không boxing): đọc không khoá (acquire), ghi tuần tự
+ * dưới lock và chỉ tăng. Dữ liệu được nạp khi app sẵn sàng và cập nhật qua CacheInvalidationLog
+ * (PRINCIPAL) trên mọi node. Số token bị từ chối ở counter auth.token.revoked.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    public static final String CLAIM_TOKEN_VERSION = "tok_ver";
+    // user đã bị xoá: mọi token đều không còn hợp lệ
+    public static final long DELETED = Long.MAX_VALUE;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final UserServiceRepository userServiceRepository;
+    private final Counter rejected;
+
+    // [key, value] xen kẽ, key 0 là ô trống (id IDENTITY bắt đầu từ 1); thay cả bảng khi resize
+    private volatile AtomicLongArray table = new AtomicLongArray(INITIAL_CAPACITY * 2);
+    // chỉ ghi dưới synchronized
+    private volatile int size;
+
+    public TokenVersionRegistry(UserServiceRepository userServiceRepository, MeterRegistry meterRegistry) {
+        this.userServiceRepository = userServiceRepository;
+        this.rejected = Counter.builder("auth.token.revoked")
+                .description("Số access token bị từ chối vì token_version đã bị tăng")
+                .register(meterRegistry);
+        Gauge.builder("auth.token.versions", this, registry -> registry.size)
+                .description("Số user có token_version > 0 trong bộ nhớ")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Nạp toàn bộ user có token_version > 0 (gọi khi khởi động, sau khi chốt watermark của
+     * cache_invalidation_log để không bỏ sót thay đổi ở giữa)
+     */
+    public void loadAll() {
+        List<Object[]> rows = userServiceRepository.findRevokedTokenVersions();
+        for (Object[] row : rows) {
+            raise(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        System.out.println(">>> Token versions: " + rows.size() + " user");
+    }
+
+    /**
+     * Đọc lại version của 1 user từ DB (sau khi user bị sửa/xoá trên node này hoặc node khác)
+     */
+    public void reload(long userId) {
+        raise(userId, userServiceRepository.findTokenVersionById(userId).orElse(DELETED));
+    }
+
+    /**
+     * Ném BadJwtException (401) nếu token được phát hành trước lần thu hồi gần nhất của user.
+     * Token không có tok_ver (phát hành trước khi có cơ chế này) được coi là version 0.
+     */
+    public void check(Jwt jwt) {
+        Object userId = jwt.getClaims().get("user_id");
+        if (!(userId instanceof Number id)) {
+            return;
+        }
+        Object claim = jwt.getClaims().get(CLAIM_TOKEN_VERSION);
+        long version = claim instanceof Number number ? number.longValue() : 0;
+        if (version < minVersion(id.longValue())) {
+            rejected.increment();
+            throw new BadJwtException("Token đã bị thu hồi");
+        }
+    }
+
+    public long minVersion(long userId) {
+        AtomicLongArray current = table;
+        int mask = current.length() / 2 - 1;
+        for (int slot = hash(userId) & mask;; slot = (slot + 1) & mask) {
+            long key = current.getAcquire(slot * 2);
+            if (key == userId) {
+                return current.getAcquire(slot * 2 + 1);
+            }
+            if (key == 0) {
+                return 0;
+            }
+        }
+    }
+
+    // version chỉ tăng: event đến trễ hoặc trùng không kéo version lùi lại
+    private synchronized void raise(long userId, long version) {
+        if (userId <= 0 || version <= 0) {
+            return;
+        }
+        if ((size + 1) * 4 > (table.length() / 2) * 3) {
+            table = resize(table);
+        }
+        AtomicLongArray current = table;
+        int mask = current.length() / 2 - 1;
+        for (int slot = hash(userId) & mask;; slot = (slot + 1) & mask) {
+            long key = current.get(slot * 2);
+            if (key == userId) {
+                if (current.get(slot * 2 + 1) < version) {
+                    current.setRelease(slot * 2 + 1, version);
+                }
+                return;
+            }
+            if (key == 0) {
+                // value trước, key sau: thread đọc thấy key thì cũng thấy value
+                current.setRelease(slot * 2 + 1, version);
+                current.setRelease(slot * 2, userId);
+                size++;
+                return;
+            }
+        }
+    }
+
+    private static AtomicLongArray resize(AtomicLongArray old) {
+        AtomicLongArray resized = new AtomicLongArray(old.length() * 2);
+        int mask = resized.length() / 2 - 1;
+        for (int i = 0; i < old.length(); i += 2) {
+            long key = old.get(i);
+            if (key == 0) {
+                continue;
+            }
+            int slot = hash(key) & mask;
+            while (resized.get(slot * 2) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            resized.set(slot * 2 + 1, old.get(i + 1));
+            resized.set(slot * 2, key);
+        }
+        return resized;
+    }
+
+    // id liên tiếp -> rải đều các ô (fmix64 của MurmurHash3)
+    private static int hash(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -5,14 +5,16 @@ import java.util.Collections;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 
+import com.example.demo.domain.dto.PrincipalDTO;
 import com.example.demo.service.UserServices;
 
 @Component("userDetailsService")
-public class UserDetailCustom implements UserDetailsService {
+public class UserDetailCustom implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserServices userService;
 
@@ -22,15 +24,26 @@ public class UserDetailCustom implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        com.example.demo.domain.User user = this.userService.handleGetUserByUsername(username);
-        if (user == null) {
+        PrincipalDTO principal = this.userService.handleGetPrincipalByUsername(username);
+        if (principal == null) {
             throw new UsernameNotFoundException("Username/password không hợp lệ");
         }
         return new User(
-                user.getEmail(),
-                user.getPassword(),
+                principal.getEmail(),
+                principal.getPassword(),
                 Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
 
     }
 
+    /**
+     * Gọi bởi DaoAuthenticationProvider ngay sau khi đăng nhập đúng mật khẩu mà hash
+     * đang lưu cũ hơn cấu hình hiện tại (cost thấp hơn / chưa có prefix {bcrypt}). Pool băm
+     * đầy thì không được gọi (PasswordUpgradeAuthenticationProvider), lần đăng nhập sau băm lại.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        this.userService.handleUpdatePasswordHash(user.getUsername(), newPassword);
+        return User.withUserDetails(user).password(newPassword).build();
+    }
+
 }
\ No newline at end of file
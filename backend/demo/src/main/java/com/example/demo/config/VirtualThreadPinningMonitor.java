@@ -0,0 +1,105 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Phát hiện virtual thread bị ghim vào carrier thread (block trong synchronized hoặc native)
+ * bằng sự kiện JFR jdk.VirtualThreadPinned, bật theo app.threads.pinning-monitor.enabled
+ * (profile vthreads).
+ *
+ * Mỗi lần ghim lâu hơn ngưỡng được đo vào timer threads.virtual.pinned; stack trace được
+ * log một lần cho mỗi vị trí khác nhau để tìm đoạn synchronized cần đổi sang ReentrantLock.
+ */
+@Component
+@ConditionalOnProperty(name = "app.threads.pinning-monitor.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+
+    static final String EVENT_NAME = "jdk.VirtualThreadPinned";
+    private static final int STACK_DEPTH = 12;
+
+    private final Duration threshold;
+    private final int maxLoggedStacks;
+    private final Timer pinned;
+    private final Set<String> loggedStacks = ConcurrentHashMap.newKeySet();
+
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(
+            @Value("${app.threads.pinning-monitor.threshold-ms:20}") long thresholdMillis,
+            @Value("${app.threads.pinning-monitor.max-logged-stacks:100}") int maxLoggedStacks,
+            MeterRegistry meterRegistry) {
+        this.threshold = Duration.ofMillis(thresholdMillis);
+        this.maxLoggedStacks = maxLoggedStacks;
+        this.pinned = Timer.builder("threads.virtual.pinned")
+                .description("Thời gian virtual thread bị ghim vào carrier thread (JFR jdk.VirtualThreadPinned)")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (stream != null) {
+            return;
+        }
+        if (Runtime.version().feature() < 21) {
+            System.out.println(">>> Pinning monitor: JDK " + Runtime.version().feature()
+                    + " không có virtual thread, bỏ qua");
+            return;
+        }
+        RecordingStream recording = new RecordingStream();
+        recording.enable(EVENT_NAME).withThreshold(threshold).withStackTrace();
+        recording.onEvent(EVENT_NAME, this::onPinned);
+        recording.startAsync();
+        stream = recording;
+        System.out.println(">>> Pinning monitor: theo dõi virtual thread bị ghim > " + threshold.toMillis() + "ms");
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return stream != null;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        String stack = stackOf(event);
+        if (loggedStacks.size() < maxLoggedStacks && loggedStacks.add(stack)) {
+            System.out.println(">>> Virtual thread bị ghim " + event.getDuration().toMillis() + "ms tại:\n" + stack);
+        }
+    }
+
+    private static String stackOf(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "\t(không có stack trace)";
+        }
+        return event.getStackTrace().getFrames().stream()
+                .limit(STACK_DEPTH)
+                .map(VirtualThreadPinningMonitor::frameOf)
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String frameOf(RecordedFrame frame) {
+        return "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + "(line " + frame.getLineNumber() + ")";
+    }
+}
@@ -1,7 +1,8 @@
 package com.example.demo.controller;
 
-import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
@@ -21,18 +22,23 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import com.example.demo.domain.User;
+import com.example.demo.domain.dto.PrincipalDTO;
 import com.example.demo.domain.request.auth.ReqLoginDTO;
 import com.example.demo.domain.request.auth.ReqRegisterDTO;
 import com.example.demo.domain.response.ResCreateUserDTO;
 import com.example.demo.domain.response.ResLoginDTO;
 import com.example.demo.service.AuthService;
+import com.example.demo.service.RefreshTokenService;
 import com.example.demo.service.UserServices;
 import com.example.demo.util.SecurityUtil;
 import com.example.demo.util.annotation.ApiMessage;
 import com.example.demo.util.error.IdInvalidException;
+import com.example.demo.util.error.OAuthProviderUnavailableException;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 @RestController
@@ -43,6 +49,7 @@ public class AuthController {
     private final UserServices userService;
     private final PasswordEncoder passwordEncoder;
     private final AuthService authService;
+    private final RefreshTokenService refreshTokenService;
 
     @Value("${hoidanit.jwt.refresh-token-validity-in-seconds}")
     private long refreshTokenExpiration;
@@ -70,28 +77,34 @@ public class AuthController {
             SecurityUtil securityUtil,
             UserServices userService,
             PasswordEncoder passwordEncoder,
-            AuthService authService) {
+            AuthService authService,
+            RefreshTokenService refreshTokenService) {
         this.authenticationManagerBuilder = authenticationManagerBuilder;
         this.securityUtil = securityUtil;
         this.userService = userService;
         this.passwordEncoder = passwordEncoder;
         this.authService = authService;
+        this.refreshTokenService = refreshTokenService;
     }
 
     @PostMapping("/auth/login")
-    public ResponseEntity<ResLoginDTO> login(@Valid @RequestBody ReqLoginDTO loginDto) throws IdInvalidException {
+    public ResponseEntity<ResLoginDTO> login(@Valid @RequestBody ReqLoginDTO loginDto, HttpServletRequest request)
+            throws IdInvalidException {
         // Authenticate user
         Authentication authentication = authenticateUser(loginDto.getEmail(), loginDto.getPassword());
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
-        // Get and validate user
+        // Validate bằng principal đã được cache khi authenticate, rồi mới load entity để build response
+        PrincipalDTO principal = userService.handleGetPrincipalByUsername(loginDto.getEmail());
+        if (principal != null && principal.isBlocked()) {
+            throw new IdInvalidException("Tài khoản của bạn đã bị khóa");
+        }
         User user = userService.handleGetUserByUsername(loginDto.getEmail());
-        validateUserNotBlocked(user);
 
         // Build response with tokens
         ResLoginDTO response = buildLoginResponse(user, loginDto.getEmail());
         String refreshToken = securityUtil.createRefreshToken(loginDto.getEmail(), response);
-        userService.updateUserToken(refreshToken, loginDto.getEmail());
+        storeRefreshToken(user, refreshToken, request);
 
         // Return response with cookie
         return ResponseEntity.ok()
@@ -128,30 +141,35 @@ public class AuthController {
         Jwt decodedToken = securityUtil.checkValidRefreshToken(refreshToken);
         String email = decodedToken.getSubject();
 
-        // Verify user exists and token matches
-        User user = userService.getUserByRefreshTokenAndEmail(refreshToken, email);
-        if (user == null) {
-            throw new IdInvalidException("Refresh Token không hợp lệ");
-        }
-
-        // Build response and generate new tokens
-        ResLoginDTO response = buildLoginResponse(user, email);
-        String newRefreshToken = securityUtil.createRefreshToken(email, response);
-        userService.updateUserToken(newRefreshToken, email);
+        // Rotate bằng compare-and-swap; các tab refresh cùng lúc nhận cùng một cặp token mới
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(
+                refreshToken, email, user -> buildLoginResponse(user, email));
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.SET_COOKIE, createRefreshTokenCookie(newRefreshToken).toString())
-                .body(response);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (rotation.refreshToken() != null) {
+            builder.header(HttpHeaders.SET_COOKIE, createRefreshTokenCookie(rotation.refreshToken()).toString());
+        }
+        return builder.body(rotation.response());
     }
 
     @PostMapping("/auth/logout")
     @ApiMessage("Logout User")
-    public ResponseEntity<Void> logout() throws IdInvalidException {
+    public ResponseEntity<Void> logout(
+            @CookieValue(name = "refresh_token", defaultValue = "") String refreshToken) throws IdInvalidException {
         String email = SecurityUtil.getCurrentUserLogin()
                 .orElseThrow(() -> new IdInvalidException("Access Token không hợp lệ"));
 
-        // Clear refresh token
-        userService.updateUserToken(null, email);
+        // Thu hồi refresh token của thiết bị hiện tại; không có cookie thì đăng xuất mọi thiết bị
+        PrincipalDTO principal = userService.handleGetPrincipalByUsername(email);
+        if (!refreshToken.isEmpty()) {
+            refreshTokenService.revoke(refreshToken);
+        } else if (principal != null) {
+            refreshTokenService.revokeAll(principal.getId());
+        }
+        // access token đã phát hành hết hiệu lực ngay; thiết bị khác còn refresh token thì refresh lại
+        if (principal != null) {
+            userService.handleRevokeTokens(principal.getId());
+        }
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.SET_COOKIE, createDeleteCookie().toString())
@@ -183,6 +201,10 @@ public class AuthController {
     @ApiMessage("Redirect to OAuth provider (Google/Facebook)")
     public ResponseEntity<String> socialLogin(@RequestParam("login_type") String loginType) throws IdInvalidException {
         String normalizedLoginType = validateAndNormalizeLoginType(loginType);
+        if (!authService.isProviderAvailable(normalizedLoginType)) {
+            // provider đang gián đoạn: không đưa người dùng sang trang đăng nhập của provider
+            return providerUnavailableRedirect(normalizedLoginType);
+        }
         String authUrl = authService.generateAuthUrl(normalizedLoginType);
 
         return ResponseEntity.status(HttpStatus.FOUND)
@@ -192,26 +214,66 @@ public class AuthController {
 
     @GetMapping("/auth/social/callback")
     @ApiMessage("OAuth callback handler for Google/Facebook")
-    public ResponseEntity<ResLoginDTO> socialCallback(
+    public CompletableFuture<ResponseEntity<ResLoginDTO>> socialCallback(
             @RequestParam(value = "login_type", required = false) String loginType,
             @RequestParam(value = "state", required = false) String state,
             @RequestParam(value = "code", required = false) String code,
-            @RequestParam(value = "error", required = false) String error) throws IdInvalidException, IOException {
+            @RequestParam(value = "error", required = false) String error,
+            HttpServletRequest request) throws IdInvalidException {
 
         // Validate OAuth callback parameters
         validateOAuthCallback(error, code, loginType, state);
         String normalizedLoginType = validateAndNormalizeLoginType(loginType != null ? loginType : state);
 
-        // Fetch user info from OAuth provider
-        Map<String, Object> userInfo = authService.authenticateAndFetchProfile(code, normalizedLoginType);
+        // Lấy thông tin thiết bị ngay: phần sau chạy trên thread khác, không dùng request nữa
+        String userAgent = request.getHeader(HttpHeaders.USER_AGENT);
+        String ipAddress = request.getRemoteAddr();
+
+        // Gọi provider bất đồng bộ: thread Tomcat được trả lại ngay, phần còn lại chạy khi có userinfo
+        return authService.authenticateAndFetchProfile(code, normalizedLoginType)
+                .thenApply(userInfo -> {
+                    try {
+                        return completeSocialLogin(userInfo, normalizedLoginType, userAgent, ipAddress);
+                    } catch (IdInvalidException e) {
+                        throw new CompletionException(e);
+                    }
+                })
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof OAuthProviderUnavailableException) {
+                        // breaker mở / quá giới hạn đồng thời: trả người dùng về frontend ngay
+                        return providerUnavailableRedirect(normalizedLoginType);
+                    }
+                    throw ex instanceof CompletionException completion ? completion : new CompletionException(ex);
+                });
+    }
+
+    /**
+     * Redirect về trang đăng nhập của frontend kèm thông báo provider đang gián đoạn
+     */
+    private <T> ResponseEntity<T> providerUnavailableRedirect(String loginType) {
+        String redirectUrl = UriComponentsBuilder.fromUriString(frontendUrl + "/login")
+                .queryParam("error", "Đăng nhập bằng " + loginType + " đang tạm gián đoạn, vui lòng thử lại sau")
+                .encode()
+                .toUriString();
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .header(HttpHeaders.LOCATION, redirectUrl)
+                .build();
+    }
+
+    /**
+     * Tạo/cập nhật user từ thông tin provider, phát hành token và redirect về frontend
+     */
+    private ResponseEntity<ResLoginDTO> completeSocialLogin(Map<String, Object> userInfo, String loginType,
+            String userAgent, String ipAddress) throws IdInvalidException {
         if (userInfo == null) {
-            throw new IdInvalidException("Không thể lấy thông tin từ " + normalizedLoginType);
+            throw new IdInvalidException("Không thể lấy thông tin từ " + loginType);
         }
 
         // Extract and validate user information
-        OAuthUserInfo oauthUserInfo = extractOAuthUserInfo(userInfo, normalizedLoginType);
+        OAuthUserInfo oauthUserInfo = extractOAuthUserInfo(userInfo, loginType);
         if (oauthUserInfo.email() == null || oauthUserInfo.email().isEmpty()) {
-            throw new IdInvalidException("Không thể lấy email từ " + normalizedLoginType);
+            throw new IdInvalidException("Không thể lấy email từ " + loginType);
         }
 
         // Create or update user
@@ -220,7 +282,7 @@ public class AuthController {
         // Build response and generate tokens
         ResLoginDTO response = buildLoginResponse(user, oauthUserInfo.email());
         String refreshToken = securityUtil.createRefreshToken(oauthUserInfo.email(), response);
-        userService.updateUserToken(refreshToken, oauthUserInfo.email());
+        refreshTokenService.issue(user, refreshToken, userAgent, ipAddress);
 
         // Redirect to frontend with token
         String redirectUrl = frontendUrl + "/login?token=" + response.getAccessToken() + "&success=true";
@@ -277,7 +339,8 @@ public class AuthController {
                 user.getAvatar(),
                 user.getCoverPhoto(),
                 user.getIs_blocked(),
-                user.getRole());
+                user.getRole(),
+                user.getTokenVersion());
     }
 
     /**
@@ -289,6 +352,14 @@ public class AuthController {
         return (last + " " + first).trim();
     }
 
+    /**
+     * Lưu refresh token mới kèm thông tin thiết bị (User-Agent, IP)
+     */
+    private void storeRefreshToken(User user, String refreshToken, HttpServletRequest request) {
+        refreshTokenService.issue(user, refreshToken, request.getHeader(HttpHeaders.USER_AGENT),
+                request.getRemoteAddr());
+    }
+
     /**
      * Create refresh token cookie
      */
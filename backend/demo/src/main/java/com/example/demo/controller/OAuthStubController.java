@@ -0,0 +1,202 @@
+package com.example.demo.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Provider Google/Facebook giả lập, chỉ bật với profile "oauth-stub"
+ * (application-oauth-stub.properties trỏ gg-* / fb-* về đây) để load test
+ * /api/v1/auth/social/callback mà không cần mạng.
+ *
+ * Code hợp lệ là chuỗi [A-Za-z0-9._-]{1,64}; user tương ứng có email {code}@oauth-stub.local.
+ * Code khác trả 400 invalid_grant như provider thật.
+ *
+ * Giả lập provider gián đoạn: app.oauth.stub.latency-ms / failure-rate lúc khởi động,
+ * hoặc đổi lúc đang chạy qua PUT /oauth-stub/faults?latency_ms=..&failure_rate=..
+ */
+@RestController
+@Profile("oauth-stub")
+@RequestMapping("/oauth-stub")
+public class OAuthStubController {
+
+    private static final Pattern CODE = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+    private static final String EMAIL_DOMAIN = "@oauth-stub.local";
+    private static final String GOOGLE_TOKEN_PREFIX = "stub-google.";
+    private static final String FACEBOOK_TOKEN_PREFIX = "stub-facebook.";
+
+    private final ObjectMapper objectMapper;
+
+    private volatile long latencyMillis;
+    private volatile double failureRate;
+
+    public OAuthStubController(ObjectMapper objectMapper,
+            @Value("${app.oauth.stub.latency-ms:0}") long latencyMillis,
+            @Value("${app.oauth.stub.failure-rate:0}") double failureRate) {
+        this.objectMapper = objectMapper;
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * Đặt lỗi giả lập: latency_ms cộng vào mọi response, failure_rate (0..1) tỉ lệ trả 503
+     */
+    @PutMapping("/faults")
+    public ResponseEntity<String> setFaults(
+            @RequestParam(value = "latency_ms", defaultValue = "0") long latencyMillis,
+            @RequestParam(value = "failure_rate", defaultValue = "0") double failureRate) {
+        this.latencyMillis = Math.max(0, latencyMillis);
+        this.failureRate = Math.min(1, Math.max(0, failureRate));
+        return faults();
+    }
+
+    @DeleteMapping("/faults")
+    public ResponseEntity<String> clearFaults() {
+        return setFaults(0, 0);
+    }
+
+    @GetMapping("/faults")
+    public ResponseEntity<String> faults() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("latency_ms", latencyMillis);
+        body.put("failure_rate", failureRate);
+        return json(HttpStatus.OK, body);
+    }
+
+    @PostMapping(value = "/google/token", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public CompletableFuture<ResponseEntity<String>> googleToken(@RequestParam("code") String code) {
+        return withFaults(() -> googleTokenResponse(code));
+    }
+
+    @GetMapping("/google/userinfo")
+    public CompletableFuture<ResponseEntity<String>> googleUserInfo(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        return withFaults(() -> googleUserInfoResponse(authorization));
+    }
+
+    @GetMapping("/facebook/token")
+    public CompletableFuture<ResponseEntity<String>> facebookToken(@RequestParam("code") String code) {
+        return withFaults(() -> facebookTokenResponse(code));
+    }
+
+    @GetMapping("/facebook/me")
+    public CompletableFuture<ResponseEntity<String>> facebookMe(
+            @RequestParam(value = "access_token", required = false) String accessToken) {
+        return withFaults(() -> facebookMeResponse(accessToken));
+    }
+
+    /**
+     * Áp dụng latency/failure_rate; response trễ được hoàn thành bằng delayedExecutor
+     * nên provider giả lập không giữ thread Tomcat trong lúc "treo"
+     */
+    private CompletableFuture<ResponseEntity<String>> withFaults(Supplier<ResponseEntity<String>> handler) {
+        long latency = latencyMillis;
+        double failures = failureRate;
+        Executor executor = latency > 0
+                ? CompletableFuture.delayedExecutor(latency, TimeUnit.MILLISECONDS)
+                : Runnable::run;
+        return CompletableFuture.supplyAsync(() -> {
+            if (failures > 0 && ThreadLocalRandom.current().nextDouble() < failures) {
+                return json(HttpStatus.SERVICE_UNAVAILABLE, Map.of("error", "temporarily_unavailable"));
+            }
+            return handler.get();
+        }, executor);
+    }
+
+    private ResponseEntity<String> googleTokenResponse(String code) {
+        if (!CODE.matcher(code).matches()) {
+            return invalidGrant();
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("access_token", GOOGLE_TOKEN_PREFIX + code);
+        body.put("token_type", "Bearer");
+        body.put("expires_in", 3599);
+        return json(HttpStatus.OK, body);
+    }
+
+    private ResponseEntity<String> googleUserInfoResponse(String authorization) {
+        String code = codeFromToken(authorization != null ? authorization.replaceFirst("^Bearer ", "") : null,
+                GOOGLE_TOKEN_PREFIX);
+        if (code == null) {
+            return json(HttpStatus.UNAUTHORIZED, Map.of("error", "invalid_token"));
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("sub", code);
+        body.put("email", code + EMAIL_DOMAIN);
+        body.put("email_verified", true);
+        body.put("given_name", code);
+        body.put("family_name", "Stub");
+        body.put("picture", "https://example.invalid/avatar/" + code + ".png");
+        return json(HttpStatus.OK, body);
+    }
+
+    private ResponseEntity<String> facebookTokenResponse(String code) {
+        if (!CODE.matcher(code).matches()) {
+            return invalidGrant();
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("access_token", FACEBOOK_TOKEN_PREFIX + code);
+        body.put("token_type", "bearer");
+        body.put("expires_in", 5183944);
+        return json(HttpStatus.OK, body);
+    }
+
+    private ResponseEntity<String> facebookMeResponse(String accessToken) {
+        String code = codeFromToken(accessToken, FACEBOOK_TOKEN_PREFIX);
+        if (code == null) {
+            return json(HttpStatus.UNAUTHORIZED, Map.of("error", Map.of("message", "Invalid OAuth access token.")));
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", code);
+        body.put("name", code + " Stub");
+        body.put("email", code + EMAIL_DOMAIN);
+        body.put("picture", Map.of("data", Map.of("url", "https://example.invalid/avatar/" + code + ".png")));
+        return json(HttpStatus.OK, body);
+    }
+
+    private static String codeFromToken(String token, String prefix) {
+        if (token == null || !token.startsWith(prefix)) {
+            return null;
+        }
+        String code = token.substring(prefix.length());
+        return CODE.matcher(code).matches() ? code : null;
+    }
+
+    private ResponseEntity<String> invalidGrant() {
+        return json(HttpStatus.BAD_REQUEST, Map.of("error", "invalid_grant"));
+    }
+
+    // trả String để FormarRestResponse không bọc body vào RestResponse
+    private ResponseEntity<String> json(HttpStatus status, Map<String, Object> body) {
+        try {
+            return ResponseEntity.status(status)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(objectMapper.writeValueAsString(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.example.demo.controller;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -14,14 +17,18 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.demo.domain.Role;
+import com.example.demo.config.CatalogVersion;
+import com.example.demo.config.RequestCoalescer;
 import com.example.demo.domain.dto.ResultPaginationDTO;
 import com.example.demo.domain.request.Role.UpsertRoleDTO;
 import com.example.demo.service.RoleService;
+import com.example.demo.util.ETags;
 import com.example.demo.util.annotation.ApiMessage;
 import com.example.demo.util.error.IdInvalidException;
 import com.turkraft.springfilter.boot.Filter;
@@ -33,9 +40,13 @@ import jakarta.validation.Valid;
 public class RoleController {
 
     private final RoleService roleService;
+    private final RequestCoalescer requestCoalescer;
+    private final CatalogVersion catalogVersion;
 
-    public RoleController(RoleService roleService) {
+    public RoleController(RoleService roleService, RequestCoalescer requestCoalescer, CatalogVersion catalogVersion) {
         this.roleService = roleService;
+        this.requestCoalescer = requestCoalescer;
+        this.catalogVersion = catalogVersion;
     }
 
     @PostMapping("/create")
@@ -67,13 +78,24 @@ public class RoleController {
     public ResponseEntity<ResultPaginationDTO> getAllRoles(
             @Filter Specification<Role> spec,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "100") int size) {
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(name = "filter", defaultValue = "") String filter,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
         // Convert one-based page to zero-based for Spring Boot
         Pageable pageable = PageRequest.of(page - 1, size);
 
-        return ResponseEntity.status(HttpStatus.OK).body(
-                this.roleService.getRoles(spec, pageable));
+        // version catalog có sẵn trong bộ nhớ: client đã có bản mới nhất thì 304, không truy vấn DB
+        Optional<String> etag = this.catalogVersion.current().map(version -> ETags.strong("roles", version));
+        if (etag.isPresent() && ETags.matches(ifNoneMatch, etag.get())) {
+            return ETags.notModified(etag.get());
+        }
+
+        // key theo chuỗi filter (spec không so sánh được) + trang: request giống nhau dùng chung 1 lần load
+        ResultPaginationDTO result = this.requestCoalescer.execute(RequestCoalescer.ROLES_FETCH_ALL,
+                List.of(filter.strip(), page, size), () -> this.roleService.getRoles(spec, pageable));
+        return etag.map(tag -> ETags.ok(tag, result))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.OK).body(result));
     }
 
 }
@@ -1,18 +1,27 @@
 package com.example.demo.controller;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -21,22 +30,31 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.demo.config.CatalogVersion;
+import com.example.demo.config.RequestCoalescer;
 import com.example.demo.domain.User;
+import com.example.demo.domain.dto.ResultCursorDTO;
 import com.example.demo.domain.dto.ResultPaginationDTO;
+import com.example.demo.domain.dto.UserImportJobDTO;
 import com.example.demo.domain.request.User.UpsertAdminDTO;
 import com.example.demo.domain.response.ResCreateUserDTO;
 import com.example.demo.domain.response.ResUpdateUserDTO;
 import com.example.demo.domain.response.ResUserDTO;
+import com.example.demo.service.UserImportService;
 import com.example.demo.service.UserServices;
+import com.example.demo.util.ETags;
+import com.example.demo.util.UserExportWriter;
 import com.example.demo.util.annotation.ApiMessage;
 import com.example.demo.util.error.IdInvalidException;
 import com.turkraft.springfilter.boot.Filter;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -49,7 +67,10 @@ import lombok.experimental.FieldDefaults;
 public class UserController {
 
     private UserServices userService;
+    private UserImportService userImportService;
     private PasswordEncoder passwordEncoder;
+    private CatalogVersion catalogVersion;
+    private RequestCoalescer requestCoalescer;
 
     @PostMapping("/add-user")
     @ApiMessage("Create a new user")
@@ -70,13 +91,37 @@ public class UserController {
     // tìm 1 giá trị
     @GetMapping("/{id}")
     @ApiMessage("fetch user by id")
-    public ResponseEntity<ResUserDTO> getUserById(@PathVariable("id") Long id) throws IdInvalidException {
-        User fetUser = this.userService.handleFindByIdUser(id);
+    public ResponseEntity<ResUserDTO> getUserById(@PathVariable("id") Long id,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+            throws IdInvalidException {
+        // ETag = row_version của user + version catalog (tên role nằm trong response)
+        Optional<String> catalog = this.catalogVersion.current();
+        if (ifNoneMatch != null && catalog.isPresent()) {
+            // chỉ đọc row_version theo khoá chính, khớp thì 304 không select projection
+            Long rowVersion = this.userService.handleFindUserRowVersion(id);
+            if (rowVersion != null) {
+                String etag = userETag(id, rowVersion, catalog.get());
+                if (ETags.matches(ifNoneMatch, etag)) {
+                    return ETags.notModified(etag);
+                }
+            }
+        }
+
+        // dashboard mở ra gọi cùng 1 id nhiều lần gần như đồng thời: chỉ 1 câu select. Gộp ở
+        // ngoài transaction: request đi sau chờ mà không mở transaction / giữ connection
+        ResUserDTO fetUser = this.requestCoalescer.execute(RequestCoalescer.USERS_BY_ID, List.of(id),
+                () -> this.userService.handleFindUserViewById(id));
         if (fetUser == null) {
             throw new IdInvalidException("User với id = " + id + " không tồn tại");
         }
 
-        return ResponseEntity.ok(this.userService.convertToResUserDTO(fetUser));
+        // version lấy từ chính dòng vừa đọc (có thể từ replica), không phải từ câu kiểm tra ở trên
+        return catalog.map(version -> ETags.ok(userETag(id, fetUser.getRowVersion(), version), fetUser))
+                .orElseGet(() -> ResponseEntity.ok(fetUser));
+    }
+
+    private static String userETag(long id, long rowVersion, String catalogVersion) {
+        return ETags.strong("user", id, rowVersion, catalogVersion);
     }
 
     @PutMapping("/changeActivity/{id}")
@@ -202,6 +247,76 @@ public class UserController {
                 this.userService.fetchAllUsers(spec, pageable));
     }
 
+    // fetch all users theo cursor: gửi cursor rỗng để lấy trang đầu, sau đó gửi lại meta.next
+    @GetMapping(value = "/fetch-all", params = "cursor")
+    @ApiMessage("fetch all users")
+    public ResponseEntity<ResultCursorDTO> getAllUserByCursor(
+            @Filter Specification<User> spec,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "100") int size) throws IdInvalidException {
+        if (size < 1 || size > 1000) {
+            throw new IdInvalidException("size phải nằm trong khoảng 1 - 1000");
+        }
+
+        return ResponseEntity.status(HttpStatus.OK).body(
+                this.userService.fetchAllUsersByCursor(spec, cursor, size));
+    }
+
+    // export users theo cùng filter với fetch-all: ghi thẳng ra response từng dòng (NDJSON hoặc CSV),
+    // nén gzip nếu client hỗ trợ; chạy đồng bộ trên request thread nên không dính async timeout
+    @GetMapping("/export")
+    public void exportUsers(
+            @Filter Specification<User> spec,
+            @RequestParam(defaultValue = UserExportWriter.NDJSON) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IdInvalidException, IOException {
+        if (!UserExportWriter.isSupported(format)) {
+            throw new IdInvalidException("format chỉ nhận ndjson hoặc csv");
+        }
+        boolean gzip = UserExportWriter.acceptsGzip(acceptEncoding);
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(UserExportWriter.contentType(format));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("users." + format)
+                .build()
+                .toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        OutputStream out = response.getOutputStream();
+        this.userService.handleExportUsers(spec, format, gzip ? new GZIPOutputStream(out, 8192) : out);
+    }
+
+    // import user hàng loạt từ CSV (email, password, first_name, last_name, role_id): chạy nền,
+    // trả về id để theo dõi tiến độ
+    @PostMapping("/import")
+    @ApiMessage("Import users from CSV")
+    public ResponseEntity<UserImportJobDTO> importUsers(@RequestParam("file") MultipartFile file)
+            throws IdInvalidException, IOException {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(this.userImportService.startImport(file));
+    }
+
+    @GetMapping("/import/{id}")
+    @ApiMessage("Get user import progress")
+    public ResponseEntity<UserImportJobDTO> getImport(@PathVariable String id) throws IdInvalidException {
+        return ResponseEntity.ok(this.userImportService.getImport(id));
+    }
+
+    // file CSV các dòng bị bỏ qua (line, email, error), có sau khi import xong
+    @GetMapping("/import/{id}/errors")
+    public ResponseEntity<Resource> getImportErrors(@PathVariable String id) throws IdInvalidException {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv; charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("import-" + id + "-errors.csv")
+                        .build()
+                        .toString())
+                .body(new FileSystemResource(this.userImportService.getImportErrors(id)));
+    }
+
     // Admin create user
     @PostMapping("/admin/create")
     @ApiMessage("Admin create a new user")
@@ -218,7 +333,11 @@ public class UserController {
     public ResponseEntity<ResUpdateUserDTO> adminUpdateUser(
             @PathVariable Long id,
             @Valid @RequestBody UpsertAdminDTO dto) throws IdInvalidException {
-        User updatedUser = userService.handleAdminUpdateUser(id, dto);
+        // băm trước khi service mở transaction: không giữ connection trong lúc chờ pool băm
+        String passwordHash = dto.getPassword() != null && !dto.getPassword().isBlank()
+                ? this.passwordEncoder.encode(dto.getPassword())
+                : null;
+        User updatedUser = userService.handleAdminUpdateUser(id, dto, passwordHash);
         return ResponseEntity.ok(userService.convertToResUpdateUserDTO(updatedUser));
     }
 
@@ -0,0 +1,58 @@
+package com.example.demo.domain;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * Một dòng trong cache_invalidation_log: dữ liệu (role, permission, principal) vừa bị sửa,
+ * được ghi cùng transaction với thao tác ghi. Các node khác poll bảng này theo id tăng dần
+ * và evict cache của mình (xem CacheInvalidationLog).
+ */
+@Entity
+@Data
+@Table(name = "cache_invalidation_log", indexes = {
+        @Index(name = "idx_cache_invalidation_log_created_at", columnList = "created_at")
+})
+public class CacheInvalidation {
+
+    public enum Target {
+        ROLE, PERMISSION, PRINCIPAL
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Target target;
+
+    // id của role/permission/user bị sửa
+    @Column(name = "target_id", nullable = false)
+    private long targetId;
+
+    // node đã ghi dòng này (node đó tự evict sau commit, không cần xử lý lại)
+    @Column(nullable = false, length = 64)
+    private String origin;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @PrePersist
+    public void handleBeforeCreate() {
+        if (this.createdAt == null) {
+            this.createdAt = Instant.now();
+        }
+    }
+}
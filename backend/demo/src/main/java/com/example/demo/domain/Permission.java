@@ -3,6 +3,10 @@ package com.example.demo.domain;
 import java.time.Instant;
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.example.demo.config.HibernateCacheConfiguration;
 import com.example.demo.util.SecurityUtil;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -21,6 +25,7 @@ import jakarta.persistence.PreUpdate;
 @Entity
 @Data
 @Table(name = "permissions")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfiguration.PERMISSIONS)
 public class Permission {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
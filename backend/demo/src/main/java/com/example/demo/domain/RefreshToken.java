@@ -0,0 +1,91 @@
+package com.example.demo.domain;
+
+import java.time.Instant;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Refresh token đang còn hiệu lực của một thiết bị.
+ *
+ * Chỉ lưu SHA-256 (hex, cố định 64 ký tự) của JWT, không lưu chuỗi token; tra cứu
+ * bằng unique index trên token_hash. Mỗi user có thể có nhiều dòng (nhiều thiết bị),
+ * số dòng tối đa do RefreshTokenService giới hạn.
+ *
+ * Mỗi lần rotate: token_hash mới, previous_token_hash = hash cũ, generation + 1.
+ * Request đến muộn với token vừa bị thay (tab khác, instance khác) vẫn được nhận
+ * ra nhờ previous_token_hash + rotated_at trong khoảng grace.
+ */
+@Entity
+@Data
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "uk_refresh_tokens_token_hash", columnList = "token_hash", unique = true),
+        @Index(name = "idx_refresh_tokens_user_created", columnList = "user_id, created_at"),
+        @Index(name = "idx_refresh_tokens_previous_hash", columnList = "previous_token_hash")
+})
+public class RefreshToken {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "token_hash", columnDefinition = "CHAR(64)", nullable = false)
+    private String tokenHash;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private User user;
+
+    // hash của token vừa bị thay ở lần rotate gần nhất
+    @Column(name = "previous_token_hash", columnDefinition = "CHAR(64)")
+    private String previousTokenHash;
+
+    // số lần đã rotate, chỉ tăng qua compare-and-swap
+    @Column(nullable = false)
+    private long generation;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    private Instant rotatedAt;
+
+    // User-Agent và IP lúc đăng nhập, để hiển thị/thu hồi theo thiết bị
+    private String deviceInfo;
+
+    @Column(length = 45)
+    private String ipAddress;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    private Instant lastUsedAt;
+
+    @PrePersist
+    public void handleBeforeCreate() {
+        this.createdAt = Instant.now();
+    }
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
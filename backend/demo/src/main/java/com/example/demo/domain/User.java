@@ -2,6 +2,7 @@ package com.example.demo.domain;
 
 import com.example.demo.domain.Enum.genderEnum;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
@@ -12,7 +13,10 @@ import java.time.LocalDate;
 @Entity
 @Data
 @FieldDefaults(level = AccessLevel.PRIVATE)
-@Table(name = "users")
+// index cho phân trang keyset (cursor) theo (createdAt, id); email unique: findByEmail trả 1 user,
+// và insert trùng (vd: import chạy song song với đăng ký) bị DB từ chối thay vì tạo bản sao
+@Table(name = "users", indexes = @Index(name = "idx_users_created_at_id", columnList = "created_at, id"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_users_email", columnNames = "email"))
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -32,9 +36,6 @@ public class User {
     @Enumerated(EnumType.STRING)
     genderEnum gender;
 
-    @Column(columnDefinition = "MEDIUMTEXT")
-    String refreshToken;
-
     String work; // Công việc hiện tại
     String education; // Học vấn
     String current_city; // nơi đang sống
@@ -44,6 +45,17 @@ public class User {
     Boolean is_blocked = false;
     Instant createdAt;
 
+    // tăng khi khoá tài khoản / đổi role / logout: access token có tok_ver nhỏ hơn bị từ chối
+    @Column(name = "token_version", nullable = false)
+    @ColumnDefault("0")
+    long tokenVersion;
+
+    // tăng mỗi lần entity được update (ETag của /users/{id}); update bằng câu lệnh trực tiếp
+    // làm đổi dữ liệu trả về thì phải tự tăng cột này
+    @Column(name = "row_version", nullable = false)
+    @ColumnDefault("0")
+    long rowVersion;
+
     @ManyToOne
     @JoinColumn(name = "role_id")
     private Role role;
@@ -60,4 +72,9 @@ public class User {
 
     }
 
+    @PreUpdate
+    public void handleBeforeUpdate() {
+        this.rowVersion++;
+    }
+
 }
@@ -0,0 +1,19 @@
+package com.example.demo.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Một dòng (role, permission) đọc từ bảng permissions left join permission_role, dùng để build
+ * AuthorizationIndex. roleId null: permission chưa gán cho role nào (chỉ có trong catalog route)
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PermissionRouteDTO {
+    private Long roleId;
+    private long permissionId;
+    private String method;
+    private String apiPath;
+}
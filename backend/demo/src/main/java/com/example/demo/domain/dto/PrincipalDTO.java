@@ -0,0 +1,16 @@
+package com.example.demo.domain.dto;
+
+import lombok.Value;
+
+/**
+ * Snapshot gọn, bất biến của người dùng đang đăng nhập.
+ * Chỉ chứa những gì cần cho xác thực/phân quyền để có thể cache an toàn.
+ */
+@Value
+public class PrincipalDTO {
+    long id;
+    String email;
+    Long roleId;
+    boolean blocked;
+    String password;
+}
@@ -0,0 +1,19 @@
+package com.example.demo.domain.dto;
+
+import lombok.Data;
+
+/**
+ * DTO cho kết quả phân trang theo cursor (không có tổng số bản ghi / số trang)
+ */
+@Data
+public class ResultCursorDTO {
+    private Meta meta;
+    private Object result;
+
+    @Data
+    public static class Meta {
+        private int pageSize;
+        // cursor của trang kế tiếp, null khi đã hết dữ liệu
+        private String next;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.domain.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tiến độ của một lượt import user từ CSV
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportJobDTO {
+    private String id;
+    // PENDING, RUNNING, COMPLETED, FAILED
+    private String status;
+    private String fileName;
+    // số dòng dữ liệu trong file (không tính header)
+    private long total;
+    private long processed;
+    private long imported;
+    private long failed;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String message;
+}
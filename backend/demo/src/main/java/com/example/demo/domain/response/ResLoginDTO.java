@@ -1,6 +1,7 @@
 package com.example.demo.domain.response;
 
 import com.example.demo.domain.Role;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import lombok.AccessLevel;
@@ -30,6 +31,9 @@ public class ResLoginDTO {
         String coverPhoto;
         Boolean is_blocked;
         Role role;
+        // nhúng vào access token (tok_ver), không trả về client
+        @JsonIgnore
+        long tokenVersion;
     }
 
     @Data
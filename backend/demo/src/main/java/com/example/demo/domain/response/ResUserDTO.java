@@ -4,6 +4,7 @@ import java.time.Instant;
 import java.time.LocalDate;
 
 import com.example.demo.domain.Enum.genderEnum;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -34,6 +35,9 @@ public class ResUserDTO {
     boolean isBlocked;
     // có 16 field
     RoleUser role;
+    // cho ETag, không trả về client
+    @JsonIgnore
+    long rowVersion;
 
     @Data
     @AllArgsConstructor
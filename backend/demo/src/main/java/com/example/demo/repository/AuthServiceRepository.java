@@ -9,7 +9,5 @@ public interface AuthServiceRepository extends JpaRepository<User, Long>, JpaSpe
 
     User findByEmail(String email);
 
-    User findByRefreshTokenAndEmail(String token, String email);
-
     boolean existsByEmail(String email);
 }
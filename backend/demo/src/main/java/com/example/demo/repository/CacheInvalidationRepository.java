@@ -0,0 +1,38 @@
+package com.example.demo.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.domain.CacheInvalidation;
+
+@Repository
+public interface CacheInvalidationRepository extends JpaRepository<CacheInvalidation, Long> {
+
+    @Query("select coalesce(max(c.id), 0) from CacheInvalidation c")
+    long findMaxId();
+
+    // dòng mới sau watermark, theo thứ tự id
+    List<CacheInvalidation> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    // các id bị bỏ qua trước đó (transaction cấp id trước nhưng commit sau)
+    List<CacheInvalidation> findByIdIn(Collection<Long> ids);
+
+    // [số dòng, id lớn nhất] của các target cho CatalogVersion; chỉ tăng vì dòng của các target
+    // này không bị dọn (deleteCreatedBefore với kept)
+    @Query("select count(c), max(c.id) from CacheInvalidation c where c.target in :targets")
+    List<Object[]> findStamp(@Param("targets") Collection<CacheInvalidation.Target> targets);
+
+    @Modifying
+    @Transactional
+    @Query("delete from CacheInvalidation c where c.createdAt < :before and c.target not in :kept")
+    int deleteCreatedBefore(@Param("before") Instant before, @Param("kept") Collection<CacheInvalidation.Target> kept);
+}
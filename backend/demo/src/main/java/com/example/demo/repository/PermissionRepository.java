@@ -3,18 +3,51 @@ package com.example.demo.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.demo.domain.Permission;
+import com.example.demo.domain.dto.PermissionRouteDTO;
+
+import jakarta.persistence.QueryHint;
 
 @Repository
 public interface PermissionRepository extends JpaRepository<Permission, Long>,
         JpaSpecificationExecutor<Permission> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     boolean existsByModuleAndApiPathAndMethod(String module, String apiPath, String method);
 
+    // query cache: danh sách permission khi tạo/sửa role (entity lấy từ region permissions)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Permission> findByIdIn(List<Long> id);
 
     Optional<Permission> findByModuleAndApiPathAndMethod(String module, String apiPath, String method);
+
+    // [số permission, id lớn nhất, createdAt/updatedAt mới nhất] cho CatalogVersion
+    @Query("select count(p), max(p.id), max(p.createdAt), max(p.updatedAt) from Permission p")
+    List<Object[]> findCatalogStamp();
+
+    // 1 query duy nhất cho toàn bộ catalog permission kèm bảng permission_role, không hydrate entity.
+    // Đi từ Permission (left join): permission chưa gán role nào vẫn có 1 dòng (roleId null)
+    @Query("select new com.example.demo.domain.dto.PermissionRouteDTO(r.id, p.id, p.method, p.apiPath) "
+            + "from Permission p left join p.roles r")
+    List<PermissionRouteDTO> findAllPermissionRoutes();
+
+    // xóa mọi liên kết role của 1 permission bằng 1 câu, không nạp Permission.roles / Role.permissions.
+    // Query space: permission_role để query cache trên bảng nối hết hiệu lực; permissions để Hibernate
+    // evict các collection chứa Permission (Role.permissions) khi commit. Không khai báo thì native
+    // update xóa trắng toàn bộ second-level cache
+    @Modifying
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "permission_role"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "permissions")
+    })
+    @Query(value = "delete from permission_role where permission_id = :permissionId", nativeQuery = true)
+    int deleteRoleLinks(@Param("permissionId") long permissionId);
 }
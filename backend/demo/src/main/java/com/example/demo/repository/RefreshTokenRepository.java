@@ -0,0 +1,59 @@
+package com.example.demo.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.domain.RefreshToken;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    // 1 lần đọc theo unique index, lấy luôn user + role + permissions để build response.
+    // Response có thể được trả cho nhiều request đồng thời nên không được còn lazy association.
+    @Query("select t from RefreshToken t join fetch t.user u left join fetch u.role r left join fetch r.permissions "
+            + "where t.tokenHash = :hash")
+    Optional<RefreshToken> findByTokenHashWithUser(@Param("hash") String hash);
+
+    @Query("select t.id from RefreshToken t where t.user.id = :userId order by t.createdAt desc, t.id desc")
+    List<Long> findIdsByUserNewestFirst(@Param("userId") long userId);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    // token vừa bị rotate (request đến muộn trong khoảng grace)
+    @Query("select t from RefreshToken t join fetch t.user u left join fetch u.role r left join fetch r.permissions "
+            + "where t.previousTokenHash = :hash and t.rotatedAt >= :since")
+    Optional<RefreshToken> findRecentlyRotatedWithUser(@Param("hash") String hash, @Param("since") Instant since);
+
+    // compare-and-swap: chỉ 1 request thắng cho mỗi (token_hash, generation); 0 dòng = đã bị rotate/thu hồi
+    @Modifying
+    @Transactional
+    @Query("update RefreshToken t set t.previousTokenHash = t.tokenHash, t.tokenHash = :newHash, "
+            + "t.generation = t.generation + 1, t.expiresAt = :expiresAt, t.rotatedAt = :now, t.lastUsedAt = :now "
+            + "where t.tokenHash = :oldHash and t.generation = :generation")
+    int compareAndRotate(@Param("oldHash") String oldHash, @Param("generation") long generation,
+            @Param("newHash") String newHash, @Param("expiresAt") Instant expiresAt, @Param("now") Instant now);
+
+    // khớp cả token vừa bị rotate: client thua race vẫn giữ token cũ và đăng xuất bằng nó
+    @Modifying
+    @Query("delete from RefreshToken t where t.tokenHash = :hash or t.previousTokenHash = :hash")
+    int deleteByTokenHashOrPreviousTokenHash(@Param("hash") String hash);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.user.id = :userId")
+    int deleteByUserId(@Param("userId") long userId);
+
+    @Modifying
+    @Query("delete from RefreshToken t where t.user.id = :userId and t.expiresAt <= :now")
+    int deleteExpiredByUserId(@Param("userId") long userId, @Param("now") Instant now);
+}
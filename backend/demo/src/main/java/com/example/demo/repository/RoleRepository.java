@@ -1,13 +1,40 @@
 package com.example.demo.repository;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import com.example.demo.domain.Role;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface RoleRepository extends JpaRepository<Role, Long>,
         JpaSpecificationExecutor<Role> {
+    // query cache: kiểm tra trùng tên mỗi lần tạo/sửa role, tự hết hiệu lực khi bảng roles bị ghi
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     boolean existsByName(String name);
+
+    @EntityGraph(attributePaths = "permissions")
+    Role findWithPermissionsById(long id);
+
+    // nạp permissions cho cả trang role trong 1 câu (join fetch), thay vì lazy load từng role
+    @EntityGraph(attributePaths = "permissions")
+    List<Role> findWithPermissionsByIdIn(Collection<Long> ids);
+
+    // [số role, id lớn nhất, createdAt/updatedAt mới nhất] cho CatalogVersion
+    @Query("select count(r), max(r.id), max(r.createdAt), max(r.updatedAt) from Role r")
+    List<Object[]> findCatalogStamp();
+
+    // [số dòng permission_role, checksum]: đổi quyền của role không làm đổi Role.updatedAt. Có thể
+    // quay về giá trị cũ, CatalogVersion dựa chính vào cache_invalidation_log
+    @Query("select count(p), sum(r.id * 1000003 + p.id) from Role r join r.permissions p")
+    List<Object[]> findPermissionLinkStamp();
 }
@@ -1,13 +1,43 @@
 package com.example.demo.repository;
 
+import java.util.List;
+import java.util.Optional;
+
 import com.example.demo.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface UserServiceRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
+public interface UserServiceRepository
+        extends JpaRepository<User, Long>, JpaSpecificationExecutor<User>, UserViewRepository {
     User findByEmail(String email);
-    User findByRefreshTokenAndEmail(String token, String email);
     boolean existsByEmail(String email);
+
+    // rehash mật khẩu khi đăng nhập: cập nhật thẳng 1 cột; clear để các lần đọc sau
+    // trong cùng request (open-in-view) không lấy lại User cũ từ persistence context
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update User u set u.password = :password where u.email = :email")
+    int updatePasswordByEmail(@Param("password") String password, @Param("email") String email);
+
+    // thu hồi mọi token đã phát hành của user (TokenVersionRegistry)
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.tokenVersion = u.tokenVersion + 1 where u.id = :id")
+    int incrementTokenVersion(@Param("id") Long id);
+
+    // ETag của /users/{id}: kiểm tra If-None-Match mà không đọc cả dòng
+    @Query("select u.rowVersion from User u where u.id = :id")
+    Optional<Long> findRowVersionById(@Param("id") Long id);
+
+    @Query("select u.tokenVersion from User u where u.id = :id")
+    Optional<Long> findTokenVersionById(@Param("id") Long id);
+
+    // [id, token_version] của các user đã từng bị thu hồi token
+    @Query("select u.id, u.tokenVersion from User u where u.tokenVersion > 0")
+    List<Object[]> findRevokedTokenVersions();
 }
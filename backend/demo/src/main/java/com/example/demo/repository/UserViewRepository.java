@@ -0,0 +1,32 @@
+package com.example.demo.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.example.demo.domain.User;
+import com.example.demo.domain.response.ResUserDTO;
+
+/**
+ * Truy vấn danh sách / chi tiết user dạng projection (xem UserViews), gắn vào UserServiceRepository
+ */
+public interface UserViewRepository {
+
+    /**
+     * Một trang theo spec (kèm 1 câu COUNT cho tổng số bản ghi)
+     */
+    Page<ResUserDTO> findUserViews(Specification<User> spec, Pageable pageable);
+
+    /**
+     * Tối đa limit dòng theo spec và sort, không đếm tổng
+     */
+    List<ResUserDTO> findUserViews(Specification<User> spec, Sort sort, int limit);
+
+    /**
+     * null nếu không tồn tại
+     */
+    ResUserDTO findUserViewById(long id);
+}
@@ -0,0 +1,87 @@
+package com.example.demo.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import com.example.demo.domain.User;
+import com.example.demo.domain.response.ResUserDTO;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+public class UserViewRepositoryImpl implements UserViewRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<ResUserDTO> findUserViews(Specification<User> spec, Pageable pageable) {
+        TypedQuery<Tuple> query = entityManager.createQuery(viewQuery(spec, pageable.getSort()));
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<ResUserDTO> content = query.getResultList().stream().map(UserViews::toResUserDTO).toList();
+        // như SimpleJpaRepository: bỏ câu COUNT khi trang đầu/cuối đã đủ biết tổng
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(spec));
+    }
+
+    @Override
+    public List<ResUserDTO> findUserViews(Specification<User> spec, Sort sort, int limit) {
+        return entityManager.createQuery(viewQuery(spec, sort))
+                .setMaxResults(limit)
+                .getResultList()
+                .stream()
+                .map(UserViews::toResUserDTO)
+                .toList();
+    }
+
+    @Override
+    public ResUserDTO findUserViewById(long id) {
+        Specification<User> byId = (root, query, cb) -> cb.equal(root.get("id"), id);
+        return entityManager.createQuery(viewQuery(byId, Sort.unsorted()))
+                .getResultStream()
+                .findFirst()
+                .map(UserViews::toResUserDTO)
+                .orElse(null);
+    }
+
+    private CriteriaQuery<Tuple> viewQuery(Specification<User> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        UserViews.select(query, root);
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, cb) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+        return query;
+    }
+
+    private long count(Specification<User> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<User> root = query.from(User.class);
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, cb) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(cb.count(root));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo.repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import com.example.demo.domain.Role;
+import com.example.demo.domain.User;
+import com.example.demo.domain.Enum.genderEnum;
+import com.example.demo.domain.response.ResUserDTO;
+
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * Projection của User cho các API danh sách / chi tiết: chỉ select các cột ResUserDTO cần
+ * (không có password) và lấy id/tên role trong cùng câu lệnh bằng left join, không hydrate
+ * entity User/Role.
+ */
+public final class UserViews {
+
+    private UserViews() {
+    }
+
+    /**
+     * Đặt các cột cần lấy vào query (alias trùng tên field của ResUserDTO)
+     */
+    public static void select(CriteriaQuery<Tuple> query, Root<User> root) {
+        Join<User, Role> role = root.join("role", JoinType.LEFT);
+        query.multiselect(
+                root.get("id").alias("id"),
+                root.get("email").alias("email"),
+                root.get("avatar").alias("avatar"),
+                root.get("coverPhoto").alias("coverPhoto"),
+                root.get("firstName").alias("firstName"),
+                root.get("lastName").alias("lastName"),
+                root.get("dateOfBirth").alias("dateOfBirth"),
+                root.get("gender").alias("gender"),
+                root.get("work").alias("work"),
+                root.get("education").alias("education"),
+                root.get("current_city").alias("currentCity"),
+                root.get("hometown").alias("hometown"),
+                root.get("bio").alias("bio"),
+                root.get("createdAt").alias("createdAt"),
+                root.get("is_admin").alias("isAdmin"),
+                root.get("is_blocked").alias("isBlocked"),
+                role.get("id").alias("roleId"),
+                role.get("name").alias("roleName"),
+                root.get("rowVersion").alias("rowVersion"));
+    }
+
+    /**
+     * Giống UserServices.convertToResUserDTO nhưng từ một dòng projection
+     */
+    public static ResUserDTO toResUserDTO(Tuple row) {
+        Long roleId = row.get("roleId", Long.class);
+        ResUserDTO.RoleUser role = roleId == null ? null
+                : ResUserDTO.RoleUser.builder()
+                        .id(roleId)
+                        .name(row.get("roleName", String.class))
+                        .build();
+
+        return ResUserDTO.builder()
+                .id(row.get("id", Long.class))
+                .email(row.get("email", String.class))
+                .avatar(row.get("avatar", String.class))
+                .coverPhoto(row.get("coverPhoto", String.class))
+                .fullname(row.get("firstName", String.class) + " " + row.get("lastName", String.class))
+                .dateOfBirth(row.get("dateOfBirth", LocalDate.class))
+                .gender(row.get("gender", genderEnum.class))
+                .work(row.get("work", String.class))
+                .education(row.get("education", String.class))
+                .currentCity(row.get("currentCity", String.class))
+                .hometown(row.get("hometown", String.class))
+                .bio(row.get("bio", String.class))
+                .createdAt(row.get("createdAt", Instant.class))
+                .isAdmin(Boolean.TRUE.equals(row.get("isAdmin", Boolean.class)))
+                .isBlocked(Boolean.TRUE.equals(row.get("isBlocked", Boolean.class)))
+                .role(role)
+                .rowVersion(row.get("rowVersion", Long.class))
+                .build();
+    }
+}
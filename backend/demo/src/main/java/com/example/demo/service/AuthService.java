@@ -1,20 +1,26 @@
 package com.example.demo.service;
 
-import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.example.demo.domain.User;
 
 public interface AuthService {
 
-    void updateUserToken(String token, String email);
-
     User handleGetUserByUsername(String username);
 
-    User getUserByRefreshTokenAndEmail(String token, String email);
-
     String generateAuthUrl(String loginType);
 
-    Map<String, Object> authenticateAndFetchProfile(String code, String loginType) throws IOException;
+    /**
+     * Đổi authorization code lấy access token rồi lấy thông tin người dùng từ provider,
+     * không chặn thread gọi. Future hoàn thành trên pool callback của provider
+     * (lỗi provider: OAuthProviderException), null nếu loginType không hỗ trợ.
+     */
+    CompletableFuture<Map<String, Object>> authenticateAndFetchProfile(String code, String loginType);
+
+    /**
+     * false khi circuit breaker của provider đang mở
+     */
+    boolean isProviderAvailable(String loginType);
 
 }
@@ -0,0 +1,27 @@
+package com.example.demo.service;
+
+import java.util.function.Function;
+
+import com.example.demo.domain.User;
+import com.example.demo.domain.response.ResLoginDTO;
+import com.example.demo.util.error.IdInvalidException;
+
+public interface RefreshTokenService {
+
+    void issue(User user, String token, String deviceInfo, String ipAddress);
+
+    /**
+     * Đổi refresh token (compare-and-swap). Các request đồng thời với cùng token nhận
+     * cùng một cặp token mới; refreshToken trong kết quả null nghĩa là token đã được
+     * rotate ở nơi khác trong khoảng grace, chỉ cấp access token, không set lại cookie.
+     */
+    Rotation rotate(String refreshToken, String email, Function<User, ResLoginDTO> responseBuilder)
+            throws IdInvalidException;
+
+    void revoke(String token);
+
+    void revokeAll(long userId);
+
+    record Rotation(ResLoginDTO response, String refreshToken) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.demo.domain.dto.UserImportJobDTO;
+import com.example.demo.util.error.IdInvalidException;
+
+public interface UserImportService {
+
+    UserImportJobDTO startImport(MultipartFile file) throws IdInvalidException, IOException;
+
+    UserImportJobDTO getImport(String id) throws IdInvalidException;
+
+    Path getImportErrors(String id) throws IdInvalidException;
+}
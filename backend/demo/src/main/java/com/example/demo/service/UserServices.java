@@ -1,9 +1,14 @@
 package com.example.demo.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 
 import com.example.demo.domain.User;
+import com.example.demo.domain.dto.PrincipalDTO;
+import com.example.demo.domain.dto.ResultCursorDTO;
 import com.example.demo.domain.dto.ResultPaginationDTO;
 import com.example.demo.domain.request.User.UpsertAdminDTO;
 import com.example.demo.domain.response.ResCreateUserDTO;
@@ -17,9 +22,9 @@ public interface UserServices {
 
     User handleGetUserByUsername(String username);
 
-    void updateUserToken(String token, String email);
+    PrincipalDTO handleGetPrincipalByUsername(String username);
 
-    User getUserByRefreshTokenAndEmail(String token, String email);
+    void handleUpdatePasswordHash(String email, String encodedPassword);
 
     boolean isEmailExist(String email);
 
@@ -29,6 +34,16 @@ public interface UserServices {
 
     User handleFindByIdUser(Long id);
 
+    /**
+     * ResUserDTO đọc bằng projection (1 câu select, không có password), null nếu không tồn tại
+     */
+    ResUserDTO handleFindUserViewById(Long id);
+
+    /**
+     * row_version hiện tại của user (1 cột theo khoá chính, đọc từ primary), null nếu không tồn tại
+     */
+    Long handleFindUserRowVersion(Long id);
+
     ResUserDTO convertToResUserDTO(User user);
 
     User handleChangeActivityUser(Long id);
@@ -39,11 +54,20 @@ public interface UserServices {
 
     void handleDeleteUser(Long id);
 
+    /**
+     * Tăng token_version: mọi access token đã phát hành của user bị từ chối trên mọi node
+     */
+    void handleRevokeTokens(Long id);
+
     void handleSaveImg(User user);
 
     ResultPaginationDTO fetchAllUsers(Specification<User> spec, Pageable pageable);
 
+    ResultCursorDTO fetchAllUsersByCursor(Specification<User> spec, String cursor, int size) throws IdInvalidException;
+
+    void handleExportUsers(Specification<User> spec, String format, OutputStream out) throws IOException;
+
     User handleAdminCreateUser(UpsertAdminDTO dto) throws IdInvalidException;
 
-    User handleAdminUpdateUser(Long id, UpsertAdminDTO dto) throws IdInvalidException;
+    User handleAdminUpdateUser(Long id, UpsertAdminDTO dto, String passwordHash) throws IdInvalidException;
 }
@@ -2,27 +2,26 @@ package com.example.demo.service.impl;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 // import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.example.demo.config.OAuthClientConfiguration;
+import com.example.demo.config.OAuthHttpClient;
 import com.example.demo.domain.User;
 import com.example.demo.repository.AuthServiceRepository;
 import com.example.demo.service.AuthService;
+import com.example.demo.util.error.OAuthProviderException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeRequestUrl;
-import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeTokenRequest;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.gson.GsonFactory;
 
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
@@ -31,6 +30,9 @@ import lombok.experimental.FieldDefaults;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class AuthServiceImpl implements AuthService {
 
+    private static final TypeReference<Map<String, Object>> PROFILE_TYPE = new TypeReference<>() {
+    };
+
     // google config
     @Value("${gg-client-id}")
     private String googleClientId;
@@ -44,6 +46,9 @@ public class AuthServiceImpl implements AuthService {
     @Value("${gg-user-info-uri}")
     private String googleUserInfoUri;
 
+    @Value("${gg-token-uri:https://oauth2.googleapis.com/token}")
+    private String googleTokenUri;
+
     // facebook config
     @Value("${fb-client-id}")
     private String facebookClientId;
@@ -66,25 +71,23 @@ public class AuthServiceImpl implements AuthService {
     @Autowired
     AuthServiceRepository authServiceRepository;
 
-    @Override
-    public void updateUserToken(String token, String email) {
-        User currentUser = this.handleGetUserByUsername(email);
-        if (currentUser != null) {
-            currentUser.setRefreshToken(token);
-            this.authServiceRepository.save(currentUser);
-        }
-    }
+    // client dùng chung (pool keep-alive, deadline theo provider), xem OAuthClientConfiguration
+    @Autowired
+    @Qualifier("googleOAuthClient")
+    OAuthHttpClient googleOAuthClient;
+
+    @Autowired
+    @Qualifier("facebookOAuthClient")
+    OAuthHttpClient facebookOAuthClient;
+
+    @Autowired
+    ObjectMapper objectMapper;
 
     @Override
     public User handleGetUserByUsername(String username) {
         return this.authServiceRepository.findByEmail(username);
     }
 
-    @Override
-    public User getUserByRefreshTokenAndEmail(String token, String email) {
-        return this.authServiceRepository.findByRefreshTokenAndEmail(token, email);
-    }
-
     public String generateAuthUrl(String loginType) {
         String url = "";
         loginType = loginType.trim().toLowerCase(); // Normalize the login type
@@ -117,36 +120,22 @@ public class AuthServiceImpl implements AuthService {
         return url;
     }
 
-    public Map<String, Object> authenticateAndFetchProfile(String code, String loginType) throws IOException {
-        RestTemplate restTemplate = new RestTemplate();
-        restTemplate.setRequestFactory(new HttpComponentsClientHttpRequestFactory());
-        String accessToken;
-        // Gson gson = new Gson();
-
+    public CompletableFuture<Map<String, Object>> authenticateAndFetchProfile(String code, String loginType) {
         switch (loginType.toLowerCase()) {
-            case "google":
-                accessToken = new GoogleAuthorizationCodeTokenRequest(
-                        new NetHttpTransport(), new GsonFactory(),
-                        googleClientId,
-                        googleClientSecret,
-                        code,
-                        googleRedirectUri).execute().getAccessToken();
-
-                // Configure RestTemplate to include the access token in the Authorization
-                // header
-                restTemplate.getInterceptors().add((req, body, executionContext) -> {
-                    req.getHeaders().set("Authorization", "Bearer " + accessToken);
-                    return executionContext.execute(req, body);
-                });
-
-                // Make a GET request to fetch user information
-                return new ObjectMapper().readValue(
-                        restTemplate.getForEntity(googleUserInfoUri, String.class).getBody(),
-                        new TypeReference<>() {
-                        });
-            // break;
-
-            case "facebook":
+            case OAuthClientConfiguration.GOOGLE:
+                // Đổi authorization code lấy access token rồi gọi userinfo với Bearer token
+                Map<String, String> form = new LinkedHashMap<>();
+                form.put("code", code);
+                form.put("client_id", googleClientId);
+                form.put("client_secret", googleClientSecret);
+                form.put("redirect_uri", googleRedirectUri);
+                form.put("grant_type", "authorization_code");
+                return googleOAuthClient.postForm(googleTokenUri, form)
+                        .thenCompose(body -> googleOAuthClient.get(googleUserInfoUri,
+                                readAccessToken(OAuthClientConfiguration.GOOGLE, body)))
+                        .thenApply(body -> readProfile(OAuthClientConfiguration.GOOGLE, body));
+
+            case OAuthClientConfiguration.FACEBOOK:
                 // Facebook token request setup
                 String urlGetAccessToken = UriComponentsBuilder
                         .fromUriString(facebookTokenUri)
@@ -154,26 +143,48 @@ public class AuthServiceImpl implements AuthService {
                         .queryParam("redirect_uri", facebookRedirectUri)
                         .queryParam("client_secret", facebookClientSecret)
                         .queryParam("code", code)
+                        .encode()
                         .toUriString();
 
-                // Use RestTemplate to fetch the Facebook access token
-                ResponseEntity<String> response = restTemplate.getForEntity(urlGetAccessToken, String.class);
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode node = mapper.readTree(response.getBody());
-                accessToken = node.get("access_token").asText();
-
-                // Set the URL for the Facebook API to fetch user info
-                // Lấy thông tin người dùng
-                String userInfoUri = facebookUserInfoUri + "&access_token=" + accessToken;
-                return mapper.readValue(
-                        restTemplate.getForEntity(userInfoUri, String.class).getBody(),
-                        new TypeReference<>() {
-                        });
-            // break;
+                // Lấy access token rồi lấy thông tin người dùng
+                return facebookOAuthClient.get(urlGetAccessToken, null)
+                        .thenCompose(body -> facebookOAuthClient.get(facebookUserInfoUri + "&access_token="
+                                + readAccessToken(OAuthClientConfiguration.FACEBOOK, body), null))
+                        .thenApply(body -> readProfile(OAuthClientConfiguration.FACEBOOK, body));
 
             default:
                 System.out.println("Unsupported login type: " + loginType);
-                return null;
+                return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    @Override
+    public boolean isProviderAvailable(String loginType) {
+        return switch (loginType.toLowerCase()) {
+            case OAuthClientConfiguration.GOOGLE -> googleOAuthClient.isAvailable();
+            case OAuthClientConfiguration.FACEBOOK -> facebookOAuthClient.isAvailable();
+            default -> true;
+        };
+    }
+
+    private String readAccessToken(String provider, byte[] body) {
+        String accessToken;
+        try {
+            accessToken = objectMapper.readTree(body).path("access_token").asText(null);
+        } catch (IOException e) {
+            throw new OAuthProviderException(provider, "Phản hồi token không hợp lệ từ " + provider, e);
+        }
+        if (accessToken == null || accessToken.isEmpty()) {
+            throw new OAuthProviderException(provider, "Không nhận được access token từ " + provider);
+        }
+        return accessToken;
+    }
+
+    private Map<String, Object> readProfile(String provider, byte[] body) {
+        try {
+            return objectMapper.readValue(body, PROFILE_TYPE);
+        } catch (IOException e) {
+            throw new OAuthProviderException(provider, "Thông tin người dùng không hợp lệ từ " + provider, e);
         }
     }
 }
@@ -6,7 +6,10 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.demo.config.CacheInvalidationLog;
+import com.example.demo.domain.CacheInvalidation;
 import com.example.demo.domain.Permission;
 import com.example.demo.domain.dto.ResultPaginationDTO;
 import com.example.demo.domain.request.Permission.UpsertPermissionDTO;
@@ -18,9 +21,11 @@ import com.example.demo.util.error.IdInvalidException;
 public class PermissionServiceImpl implements PermissionService {
 
     private final PermissionRepository permissionRepository;
+    private final CacheInvalidationLog cacheInvalidationLog;
 
-    public PermissionServiceImpl(PermissionRepository permissionRepository) {
+    public PermissionServiceImpl(PermissionRepository permissionRepository, CacheInvalidationLog cacheInvalidationLog) {
         this.permissionRepository = permissionRepository;
+        this.cacheInvalidationLog = cacheInvalidationLog;
     }
 
     @Override
@@ -40,11 +45,15 @@ public class PermissionServiceImpl implements PermissionService {
     }
 
     @Override
+    @Transactional
     public Permission create(Permission p) {
-        return this.permissionRepository.save(p);
+        Permission saved = this.permissionRepository.save(p);
+        this.cacheInvalidationLog.publish(CacheInvalidation.Target.PERMISSION, saved.getId());
+        return saved;
     }
 
     @Override
+    @Transactional(rollbackFor = IdInvalidException.class)
     public Permission createFromDTO(UpsertPermissionDTO dto) throws IdInvalidException {
         // Map từ DTO sang Entity
         Permission newPermission = new Permission();
@@ -58,10 +67,13 @@ public class PermissionServiceImpl implements PermissionService {
             throw new IdInvalidException("Permission đã tồn tại.");
         }
 
-        return this.permissionRepository.save(newPermission);
+        Permission saved = this.permissionRepository.save(newPermission);
+        this.cacheInvalidationLog.publish(CacheInvalidation.Target.PERMISSION, saved.getId());
+        return saved;
     }
 
     @Override
+    @Transactional
     public Permission updatePermission(Permission p) {
         Permission permissionDB = this.fetchById(p.getId());
         if (permissionDB != null) {
@@ -71,12 +83,14 @@ public class PermissionServiceImpl implements PermissionService {
             permissionDB.setModule(p.getModule());
 
             permissionDB = this.permissionRepository.save(permissionDB);
+            this.cacheInvalidationLog.publish(CacheInvalidation.Target.PERMISSION, permissionDB.getId());
             return permissionDB;
         }
         return null;
     }
 
     @Override
+    @Transactional(rollbackFor = IdInvalidException.class)
     public Permission updatePermissionFromDTO(long id, UpsertPermissionDTO dto) throws IdInvalidException {
         // check exist by id
         Permission existingPermission = this.fetchById(id);
@@ -105,18 +119,22 @@ public class PermissionServiceImpl implements PermissionService {
     }
 
     @Override
+    @Transactional(rollbackFor = IdInvalidException.class)
     public void delete(long id) throws IdInvalidException {
         Optional<Permission> permissionOptional = this.permissionRepository.findById(id);
         if (permissionOptional.isEmpty()) {
             throw new IdInvalidException("Permission với id = " + id + " không tồn tại.");
         }
 
-        Permission currentPermission = permissionOptional.get();
-        currentPermission.getRoles().forEach(role -> role.getPermissions().remove(currentPermission));
-        this.permissionRepository.delete(currentPermission);
+        // gỡ khỏi các role bằng 1 câu DELETE trên permission_role; duyệt getRoles() rồi
+        // role.getPermissions() sẽ lazy load từng role và ghi lại toàn bộ bảng nối của role đó
+        this.permissionRepository.deleteRoleLinks(id);
+        this.permissionRepository.delete(permissionOptional.get());
+        this.cacheInvalidationLog.publish(CacheInvalidation.Target.PERMISSION, id);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public ResultPaginationDTO getPermissions(Specification<Permission> spec, Pageable pageable) {
         Page<Permission> pPermissions = this.permissionRepository.findAll(spec, pageable);
         ResultPaginationDTO rs = new ResultPaginationDTO();
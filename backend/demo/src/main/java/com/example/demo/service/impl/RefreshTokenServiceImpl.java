@@ -0,0 +1,200 @@
+package com.example.demo.service.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.domain.RefreshToken;
+import com.example.demo.domain.User;
+import com.example.demo.domain.response.ResLoginDTO;
+import com.example.demo.repository.RefreshTokenRepository;
+import com.example.demo.service.RefreshTokenService;
+import com.example.demo.util.SecurityUtil;
+import com.example.demo.util.TokenDigest;
+import com.example.demo.util.error.IdInvalidException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Lưu refresh token theo SHA-256, mỗi user tối đa maxPerUser thiết bị
+ * (đăng nhập thêm sẽ đẩy phiên cũ nhất ra).
+ *
+ * Rotate: request đầu tiên cho một token chạy UPDATE có điều kiện (hash + generation),
+ * các request cùng token trên instance này chờ và nhận lại đúng cặp token đó
+ * (giữ trong bộ nhớ graceSeconds). Thua ở DB (instance khác đã rotate) thì tra
+ * previous_token_hash trong khoảng grace và chỉ cấp access token mới.
+ */
+@Service
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private static final int DEVICE_INFO_MAX_LENGTH = 255;
+    private static final int IP_ADDRESS_MAX_LENGTH = 45;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final SecurityUtil securityUtil;
+    private final Cache<String, CompletableFuture<Rotation>> rotations;
+    private final Duration grace;
+    private final Counter rotated;
+    private final Counter coalesced;
+    private final Counter graceReissued;
+    private final Counter rejected;
+
+    @Value("${hoidanit.jwt.refresh-token-validity-in-seconds}")
+    private long refreshTokenExpiration;
+
+    @Value("${app.security.refresh-token.max-per-user:5}")
+    private int maxPerUser;
+
+    public RefreshTokenServiceImpl(
+            RefreshTokenRepository refreshTokenRepository,
+            SecurityUtil securityUtil,
+            @Value("${app.security.refresh-token.grace-seconds:10}") long graceSeconds,
+            MeterRegistry meterRegistry) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.securityUtil = securityUtil;
+        this.grace = Duration.ofSeconds(graceSeconds);
+        this.rotations = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(this.grace)
+                .build();
+        this.rotated = rotationCounter(meterRegistry, "rotated");
+        this.coalesced = rotationCounter(meterRegistry, "coalesced");
+        this.graceReissued = rotationCounter(meterRegistry, "grace");
+        this.rejected = rotationCounter(meterRegistry, "rejected");
+    }
+
+    @Override
+    @Transactional
+    public void issue(User user, String token, String deviceInfo, String ipAddress) {
+        Instant now = Instant.now();
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(TokenDigest.sha256Hex(token));
+        refreshToken.setUser(user);
+        refreshToken.setExpiresAt(now.plusSeconds(refreshTokenExpiration));
+        refreshToken.setDeviceInfo(truncate(deviceInfo, DEVICE_INFO_MAX_LENGTH));
+        refreshToken.setIpAddress(truncate(ipAddress, IP_ADDRESS_MAX_LENGTH));
+        refreshToken.setLastUsedAt(now);
+        this.refreshTokenRepository.save(refreshToken);
+
+        // dọn token hết hạn của user rồi giữ lại maxPerUser phiên mới nhất
+        this.refreshTokenRepository.deleteExpiredByUserId(user.getId(), now);
+        List<Long> ids = this.refreshTokenRepository.findIdsByUserNewestFirst(user.getId());
+        if (ids.size() > maxPerUser) {
+            this.refreshTokenRepository.deleteByIds(ids.subList(maxPerUser, ids.size()));
+        }
+    }
+
+    @Override
+    public Rotation rotate(String refreshToken, String email, Function<User, ResLoginDTO> responseBuilder)
+            throws IdInvalidException {
+        String oldHash = TokenDigest.sha256Hex(refreshToken);
+
+        CompletableFuture<Rotation> mine = new CompletableFuture<>();
+        CompletableFuture<Rotation> inFlight = this.rotations.asMap().putIfAbsent(oldHash, mine);
+        if (inFlight != null) {
+            // tab khác vừa (hoặc đang) rotate đúng token này: trả lại cùng cặp token
+            Rotation rotation = await(inFlight);
+            this.coalesced.increment();
+            return rotation;
+        }
+
+        try {
+            Rotation rotation = rotateInDatabase(oldHash, email, responseBuilder);
+            mine.complete(rotation);
+            return rotation;
+        } catch (IdInvalidException | RuntimeException e) {
+            // không giữ kết quả lỗi, request sau được thử lại
+            this.rotations.asMap().remove(oldHash, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Rotation rotateInDatabase(String oldHash, String email, Function<User, ResLoginDTO> responseBuilder)
+            throws IdInvalidException {
+        Instant now = Instant.now();
+        // user bị khoá không được cấp access token mới (token cũ đã bị thu hồi qua token_version)
+        Optional<RefreshToken> current = this.refreshTokenRepository.findByTokenHashWithUser(oldHash)
+                .filter(t -> !t.isExpired(now) && !t.getUser().isBlocked() && t.getUser().getEmail().equals(email));
+
+        if (current.isPresent()) {
+            RefreshToken stored = current.get();
+            ResLoginDTO response = responseBuilder.apply(stored.getUser());
+            String newToken = this.securityUtil.createRefreshToken(email, response);
+
+            int updated = this.refreshTokenRepository.compareAndRotate(oldHash, stored.getGeneration(),
+                    TokenDigest.sha256Hex(newToken), now.plusSeconds(refreshTokenExpiration), now);
+            if (updated == 1) {
+                this.rotated.increment();
+                return new Rotation(response, newToken);
+            }
+        }
+
+        // token đã bị rotate ở instance khác trong khoảng grace: cấp access token, giữ cookie hiện tại
+        Optional<RefreshToken> recentlyRotated = this.refreshTokenRepository
+                .findRecentlyRotatedWithUser(oldHash, now.minus(this.grace))
+                .filter(t -> !t.isExpired(now) && !t.getUser().isBlocked() && t.getUser().getEmail().equals(email));
+        if (recentlyRotated.isPresent()) {
+            this.graceReissued.increment();
+            return new Rotation(responseBuilder.apply(recentlyRotated.get().getUser()), null);
+        }
+
+        this.rejected.increment();
+        throw new IdInvalidException("Refresh Token không hợp lệ");
+    }
+
+    @Override
+    @Transactional
+    public void revoke(String token) {
+        String hash = TokenDigest.sha256Hex(token);
+        this.refreshTokenRepository.deleteByTokenHashOrPreviousTokenHash(hash);
+        // cặp token đang giữ cho grace cũng không được trả ra nữa: theo token cũ (key) và token mới
+        this.rotations.invalidate(hash);
+        this.rotations.asMap().values().removeIf(f -> f.isDone() && !f.isCompletedExceptionally()
+                && token.equals(f.join().refreshToken()));
+    }
+
+    @Override
+    @Transactional
+    public void revokeAll(long userId) {
+        this.refreshTokenRepository.deleteByUserId(userId);
+        this.rotations.asMap().values().removeIf(f -> f.isDone() && !f.isCompletedExceptionally()
+                && f.join().response().getUser().getId() == userId);
+    }
+
+    private static Rotation await(CompletableFuture<Rotation> inFlight) throws IdInvalidException {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IdInvalidException invalid) {
+                throw invalid;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    private static Counter rotationCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("auth.refresh.rotations")
+                .description("Kết quả /auth/refresh: rotated, coalesced, grace, rejected")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+}
@@ -1,13 +1,18 @@
 package com.example.demo.service.impl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.demo.config.CacheInvalidationLog;
+import com.example.demo.domain.CacheInvalidation;
 import com.example.demo.domain.Permission;
 import com.example.demo.domain.Role;
 import com.example.demo.domain.dto.ResultPaginationDTO;
@@ -22,12 +27,15 @@ public class RoleServiceImpl implements RoleService {
 
     private final RoleRepository roleRepository;
     private final PermissionRepository permissionRepository;
+    private final CacheInvalidationLog cacheInvalidationLog;
 
     public RoleServiceImpl(
             RoleRepository roleRepository,
-            PermissionRepository permissionRepository) {
+            PermissionRepository permissionRepository,
+            CacheInvalidationLog cacheInvalidationLog) {
         this.roleRepository = roleRepository;
         this.permissionRepository = permissionRepository;
+        this.cacheInvalidationLog = cacheInvalidationLog;
     }
 
     @Override
@@ -36,13 +44,17 @@ public class RoleServiceImpl implements RoleService {
     }
 
     @Override
+    @Transactional(rollbackFor = IdInvalidException.class)
     public Role createFromDTO(UpsertRoleDTO dto) throws IdInvalidException {
         validateRoleNameNotExists(dto.getName());
 
         Role newRole = mapDtoToRole(dto);
         newRole.setPermissions(getValidatedPermissions(dto.getPermissionIds()));
 
-        return roleRepository.save(newRole);
+        Role saved = roleRepository.save(newRole);
+        // AuthorizationIndex/cache của mọi node được làm mới sau commit
+        cacheInvalidationLog.publish(CacheInvalidation.Target.ROLE, saved.getId());
+        return saved;
     }
 
     @Override
@@ -51,6 +63,7 @@ public class RoleServiceImpl implements RoleService {
     }
 
     @Override
+    @Transactional(rollbackFor = IdInvalidException.class)
     public Role updateRoleFromDTO(long id, UpsertRoleDTO dto) throws IdInvalidException {
         Role existingRole = fetchById(id);
         if (existingRole == null) {
@@ -58,24 +71,32 @@ public class RoleServiceImpl implements RoleService {
         }
 
         validateRoleNameForUpdate(existingRole.getName(), dto.getName());
+        // kiểm tra hết trước khi sửa entity đang managed
+        List<Permission> permissions = getValidatedPermissions(dto.getPermissionIds());
 
         updateRoleFromDto(existingRole, dto);
-        existingRole.setPermissions(getValidatedPermissions(dto.getPermissionIds()));
+        existingRole.setPermissions(permissions);
 
-        return roleRepository.save(existingRole);
+        Role saved = roleRepository.save(existingRole);
+        cacheInvalidationLog.publish(CacheInvalidation.Target.ROLE, saved.getId());
+        return saved;
     }
 
     @Override
+    @Transactional(rollbackFor = IdInvalidException.class)
     public void delete(long id) throws IdInvalidException {
         if (!roleRepository.existsById(id)) {
             throw new IdInvalidException("Role với id = " + id + " không tồn tại");
         }
         roleRepository.deleteById(id);
+        cacheInvalidationLog.publish(CacheInvalidation.Target.ROLE, id);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public ResultPaginationDTO getRoles(Specification<Role> spec, Pageable pageable) {
         Page<Role> page = roleRepository.findAll(spec, pageable);
+        List<Role> roles = withPermissions(page.getContent());
 
         ResultPaginationDTO result = new ResultPaginationDTO();
         ResultPaginationDTO.Meta meta = new ResultPaginationDTO.Meta();
@@ -86,13 +107,28 @@ public class RoleServiceImpl implements RoleService {
         meta.setTotal(page.getTotalElements());
 
         result.setMeta(meta);
-        result.setResult(page.getContent());
+        result.setResult(roles);
 
         return result;
     }
 
     // Private helper methods
 
+    /**
+     * Nạp permissions của cả trang trong 1 câu, giữ nguyên thứ tự trang. Để Jackson tự chạm vào
+     * Role.permissions (LAZY) sẽ sinh 1 select cho mỗi role.
+     */
+    private List<Role> withPermissions(List<Role> roles) {
+        if (roles.isEmpty()) {
+            return roles;
+        }
+        Map<Long, Role> loaded = new HashMap<>();
+        for (Role role : roleRepository.findWithPermissionsByIdIn(roles.stream().map(Role::getId).toList())) {
+            loaded.put(role.getId(), role);
+        }
+        return roles.stream().map(role -> loaded.getOrDefault(role.getId(), role)).toList();
+    }
+
     private void validateRoleNameNotExists(String name) throws IdInvalidException {
         if (existByName(name)) {
             throw new IdInvalidException("Role với name = " + name + " đã tồn tại");
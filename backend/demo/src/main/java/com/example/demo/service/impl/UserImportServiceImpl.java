@@ -0,0 +1,498 @@
+package com.example.demo.service.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.demo.config.BoundedPasswordEncoder;
+import com.example.demo.domain.Role;
+import com.example.demo.domain.dto.UserImportJobDTO;
+import com.example.demo.repository.RoleRepository;
+import com.example.demo.service.UserImportService;
+import com.example.demo.util.CsvReader;
+import com.example.demo.util.error.IdInvalidException;
+import com.example.demo.util.error.ServiceOverloadedException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Import hàng loạt user từ file CSV (cột bắt buộc: email, password; tuỳ chọn: first_name,
+ * last_name, role_id), chạy nền và báo tiến độ qua getImport.
+ *
+ * Thay vì existsByEmail + BCrypt + insert cho từng user như handleAdminCreateUser, file được
+ * đọc tuần tự theo từng chunk: kiểm tra email đã tồn tại bằng một câu IN cho cả chunk, băm mật khẩu
+ * song song trên pool riêng (không tranh CPU/hàng đợi với pool băm của đăng nhập), rồi insert bằng
+ * JDBC batch trong một transaction. Dòng lỗi được ghi vào file lỗi (line, email, error).
+ *
+ * Batch của một chunk bị DB từ chối (email vừa được request khác tạo sau câu IN, dữ liệu vi phạm
+ * ràng buộc) thì chunk đó được ghi lại từng dòng: chỉ dòng lỗi bị bỏ, job vẫn chạy tiếp.
+ */
+@Service
+public class UserImportServiceImpl implements UserImportService {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    // độ dài varchar mặc định của các cột String trong User
+    private static final int MAX_LENGTH = 255;
+    private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+    private static final String EXISTING_EMAILS_SQL = "select email from users where email in (:emails)";
+    private static final String INSERT_SQL = "insert into users (email, password, first_name, last_name, role_id,"
+            + " is_admin, is_blocked, created_at) values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder passwordHasher;
+    private final RoleRepository roleRepository;
+    private final int chunkSize;
+    private final int batchSize;
+    private final long retryAfterSeconds;
+    private final ThreadPoolExecutor jobPool;
+    private final ExecutorService jobExecutor;
+    private final ExecutorService hashPool;
+    private final ExecutorService hashExecutor;
+    private final Cache<String, ImportJob> jobs;
+    private final Counter importedRows;
+    private final Counter failedRows;
+
+    public UserImportServiceImpl(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            PasswordEncoder passwordEncoder,
+            RoleRepository roleRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.users.import.chunk-size:1000}") int chunkSize,
+            @Value("${app.users.import.batch-size:500}") int batchSize,
+            @Value("${app.users.import.hash-threads:0}") int hashThreads,
+            @Value("${app.users.import.queue-capacity:2}") int queueCapacity,
+            @Value("${app.users.import.retention-minutes:120}") long retentionMinutes,
+            @Value("${app.users.import.retry-after-seconds:30}") long retryAfterSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        // băm thẳng bằng encoder gốc, pool giới hạn của đăng nhập sẽ từ chối cả nghìn phép băm dồn vào
+        this.passwordHasher = passwordEncoder instanceof BoundedPasswordEncoder bounded
+                ? bounded.getDelegate()
+                : passwordEncoder;
+        this.roleRepository = roleRepository;
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        // mỗi lúc chỉ chạy 1 lượt import, thêm queueCapacity lượt chờ
+        this.jobPool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory("user-import-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.jobExecutor = ExecutorServiceMetrics.monitor(meterRegistry, this.jobPool, "userImport");
+        // mặc định một nửa số CPU: phần còn lại cho request đang chạy (kể cả pool băm của đăng nhập)
+        int threads = hashThreads > 0 ? hashThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.hashPool = Executors.newFixedThreadPool(threads, threadFactory("user-import-hashing-"));
+        this.hashExecutor = ExecutorServiceMetrics.monitor(meterRegistry, this.hashPool, "userImportHashing");
+
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(retentionMinutes))
+                .removalListener((String id, ImportJob job, RemovalCause cause) -> {
+                    if (job != null && cause != RemovalCause.REPLACED) {
+                        deleteQuietly(job.errorsFile);
+                    }
+                })
+                .build();
+        this.importedRows = rowsCounter(meterRegistry, "imported");
+        this.failedRows = rowsCounter(meterRegistry, "failed");
+    }
+
+    @Override
+    public UserImportJobDTO startImport(MultipartFile file) throws IdInvalidException, IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IdInvalidException("File import không được để trống");
+        }
+        String fileName = file.getOriginalFilename();
+        if (fileName == null || !fileName.toLowerCase(Locale.ROOT).endsWith(".csv")) {
+            throw new IdInvalidException("Chỉ hỗ trợ file .csv");
+        }
+
+        // file multipart bị xoá khi request kết thúc, chép ra file tạm để job chạy nền đọc dần
+        Path upload = Files.createTempFile("user-import-", ".csv");
+        file.transferTo(upload);
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), fileName,
+                Files.createTempFile("user-import-errors-", ".csv"));
+        this.jobs.put(job.id, job);
+        try {
+            this.jobExecutor.execute(() -> run(job, upload));
+        } catch (RejectedExecutionException e) {
+            this.jobs.invalidate(job.id);
+            deleteQuietly(upload);
+            throw new ServiceOverloadedException(
+                    "Đang có quá nhiều lượt import chờ xử lý, vui lòng thử lại sau " + retryAfterSeconds + " giây",
+                    retryAfterSeconds);
+        }
+        return job.snapshot();
+    }
+
+    @Override
+    public UserImportJobDTO getImport(String id) throws IdInvalidException {
+        return findJob(id).snapshot();
+    }
+
+    @Override
+    public Path getImportErrors(String id) throws IdInvalidException {
+        ImportJob job = findJob(id);
+        if (!STATUS_COMPLETED.equals(job.status) && !STATUS_FAILED.equals(job.status)) {
+            throw new IdInvalidException("Lượt import " + id + " chưa hoàn tất");
+        }
+        return job.errorsFile;
+    }
+
+    private ImportJob findJob(String id) throws IdInvalidException {
+        ImportJob job = this.jobs.getIfPresent(id);
+        if (job == null) {
+            throw new IdInvalidException("Lượt import với id = " + id + " không tồn tại hoặc đã hết hạn");
+        }
+        return job;
+    }
+
+    private void run(ImportJob job, Path upload) {
+        job.status = STATUS_RUNNING;
+        System.out.println(">>> Import user " + job.id + ": bắt đầu " + job.fileName);
+        try (BufferedWriter errors = Files.newBufferedWriter(job.errorsFile, StandardCharsets.UTF_8)) {
+            errors.write("line,email,error\r\n");
+            job.total = countDataRows(upload);
+            Set<Long> roleIds = this.roleRepository.findAll().stream()
+                    .map(Role::getId)
+                    .collect(Collectors.toSet());
+
+            try (CsvReader csv = new CsvReader(Files.newBufferedReader(upload, StandardCharsets.UTF_8))) {
+                Map<String, Integer> columns = columns(csv.readRecord());
+                if (!columns.containsKey("email") || !columns.containsKey("password")) {
+                    throw new IllegalArgumentException("File CSV phải có cột email và password");
+                }
+                Set<String> seen = new HashSet<>();
+                List<ImportRow> chunk = new ArrayList<>(this.chunkSize);
+                List<String> record;
+                while ((record = csv.readRecord()) != null) {
+                    ImportRow row = parse(csv.getRecordLine(), record, columns, roleIds, seen, job, errors);
+                    if (row != null) {
+                        chunk.add(row);
+                    }
+                    if (chunk.size() >= this.chunkSize) {
+                        importChunk(job, chunk, errors);
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    importChunk(job, chunk, errors);
+                }
+            }
+            job.status = STATUS_COMPLETED;
+        } catch (Exception e) {
+            job.status = STATUS_FAILED;
+            job.message = e.getMessage();
+        } finally {
+            job.finishedAt = Instant.now();
+            deleteQuietly(upload);
+            // put lại để tính thời gian giữ kết quả từ lúc xong
+            this.jobs.put(job.id, job);
+            System.out.println(">>> Import user " + job.id + ": " + job.status + ", " + job.imported.get()
+                    + " thành công, " + job.failed.get() + " lỗi");
+        }
+    }
+
+    private ImportRow parse(int line, List<String> record, Map<String, Integer> columns, Set<Long> roleIds,
+            Set<String> seen, ImportJob job, BufferedWriter errors) throws IOException {
+        String email = value(record, columns, "email");
+        String password = value(record, columns, "password");
+        String firstName = value(record, columns, "firstname");
+        String lastName = value(record, columns, "lastname");
+        String error = null;
+        Long roleId = null;
+        if (email == null) {
+            error = "email không được để trống";
+        } else if (!EMAIL.matcher(email).matches()) {
+            error = "email không hợp lệ";
+        } else if (email.length() > MAX_LENGTH) {
+            error = "email dài quá " + MAX_LENGTH + " ký tự";
+        } else if (password == null) {
+            error = "password không được để trống";
+        } else if (firstName != null && firstName.length() > MAX_LENGTH) {
+            error = "first_name dài quá " + MAX_LENGTH + " ký tự";
+        } else if (lastName != null && lastName.length() > MAX_LENGTH) {
+            error = "last_name dài quá " + MAX_LENGTH + " ký tự";
+        } else if (!seen.add(email.toLowerCase(Locale.ROOT))) {
+            error = "email bị trùng với dòng trước trong file";
+        } else {
+            String role = value(record, columns, "roleid");
+            if (role != null) {
+                try {
+                    roleId = Long.parseLong(role);
+                    if (!roleIds.contains(roleId)) {
+                        error = "Role với id = " + roleId + " không tồn tại";
+                    }
+                } catch (NumberFormatException e) {
+                    error = "role_id không hợp lệ";
+                }
+            }
+        }
+        if (error != null) {
+            reject(job, errors, line, email, error);
+            return null;
+        }
+        return new ImportRow(line, email, password, firstName, lastName, roleId);
+    }
+
+    private void importChunk(ImportJob job, List<ImportRow> chunk, BufferedWriter errors)
+            throws IOException, InterruptedException {
+        // một câu IN cho cả chunk thay cho existsByEmail từng dòng
+        List<String> emails = chunk.stream().map(ImportRow::email).collect(Collectors.toList());
+        Set<String> existing = this.jdbcTemplate
+                .queryForList(EXISTING_EMAILS_SQL, Map.of("emails", emails), String.class)
+                .stream()
+                .map(email -> email.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+
+        List<ImportRow> rows = new ArrayList<>(chunk.size());
+        List<Future<String>> hashes = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            if (existing.contains(row.email().toLowerCase(Locale.ROOT))) {
+                reject(job, errors, row.line(), row.email(), "Email đã tồn tại");
+                continue;
+            }
+            rows.add(row);
+            hashes.add(this.hashExecutor.submit(() -> this.passwordHasher.encode(row.password())));
+        }
+
+        List<String> encoded = new ArrayList<>(rows.size());
+        try {
+            for (Future<String> hash : hashes) {
+                encoded.add(hash.get());
+            }
+        } catch (ExecutionException e) {
+            hashes.forEach(hash -> hash.cancel(true));
+            throw new IllegalStateException("Băm mật khẩu thất bại", e.getCause());
+        }
+
+        Timestamp createdAt = Timestamp.from(Instant.now());
+        try {
+            insert(rows, encoded, createdAt);
+            imported(job, rows.size());
+        } catch (DataAccessException e) {
+            if (!rejectedByDatabase(e)) {
+                throw e;
+            }
+            // cả chunk đã rollback: ghi lại từng dòng, mỗi dòng 1 transaction, để chỉ bỏ dòng lỗi
+            for (int i = 0; i < rows.size(); i++) {
+                ImportRow row = rows.get(i);
+                try {
+                    insert(List.of(row), List.of(encoded.get(i)), createdAt);
+                    imported(job, 1);
+                } catch (DuplicateKeyException duplicate) {
+                    reject(job, errors, row.line(), row.email(), "Email đã tồn tại");
+                } catch (DataAccessException rowError) {
+                    if (!rejectedByDatabase(rowError)) {
+                        throw rowError;
+                    }
+                    reject(job, errors, row.line(), row.email(), "Dữ liệu không hợp lệ với bảng users");
+                }
+            }
+        }
+    }
+
+    private void insert(List<ImportRow> rows, List<String> encoded, Timestamp createdAt) {
+        this.transactionTemplate.executeWithoutResult(status -> this.jdbcTemplate.getJdbcOperations()
+                .batchUpdate(INSERT_SQL, indexes(rows.size()), this.batchSize, (ps, i) -> {
+                    ImportRow row = rows.get(i);
+                    ps.setString(1, row.email());
+                    ps.setString(2, encoded.get(i));
+                    ps.setString(3, row.firstName());
+                    ps.setString(4, row.lastName());
+                    if (row.roleId() != null) {
+                        ps.setLong(5, row.roleId());
+                    } else {
+                        ps.setNull(5, Types.BIGINT);
+                    }
+                    ps.setBoolean(6, false);
+                    ps.setBoolean(7, false);
+                    ps.setTimestamp(8, createdAt);
+                }));
+    }
+
+    // lỗi do dữ liệu của dòng (không phải mất kết nối...): driver không phân loại được lỗi trong
+    // batch thì Spring trả về lỗi chung bọc BatchUpdateException
+    private static boolean rejectedByDatabase(DataAccessException e) {
+        return e instanceof DataIntegrityViolationException || e.getCause() instanceof BatchUpdateException;
+    }
+
+    private void imported(ImportJob job, int rows) {
+        job.imported.addAndGet(rows);
+        job.processed.addAndGet(rows);
+        this.importedRows.increment(rows);
+    }
+
+    private void reject(ImportJob job, BufferedWriter errors, int line, String email, String error)
+            throws IOException {
+        errors.write(line + "," + csvValue(email) + "," + csvValue(error) + "\r\n");
+        job.failed.incrementAndGet();
+        job.processed.incrementAndGet();
+        this.failedRows.increment();
+    }
+
+    private static long countDataRows(Path upload) throws IOException {
+        long records = 0;
+        try (CsvReader csv = new CsvReader(Files.newBufferedReader(upload, StandardCharsets.UTF_8))) {
+            while (csv.readRecord() != null) {
+                records++;
+            }
+        }
+        return Math.max(0, records - 1);
+    }
+
+    /**
+     * Vị trí các cột theo tên header, không phân biệt hoa thường và dấu gạch dưới (first_name = firstName)
+     */
+    private static Map<String, Integer> columns(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        if (header != null) {
+            for (int i = 0; i < header.size(); i++) {
+                columns.putIfAbsent(header.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT), i);
+            }
+        }
+        return columns;
+    }
+
+    private static String value(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static List<Integer> indexes(int size) {
+        List<Integer> indexes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            indexes.add(i);
+        }
+        return indexes;
+    }
+
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.out.println(">>> Không xoá được file tạm " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static Counter rowsCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("users.import.rows")
+                .description("Số dòng CSV đã xử lý khi import user")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void close() {
+        this.jobPool.shutdownNow();
+        this.hashPool.shutdownNow();
+    }
+
+    private record ImportRow(int line, String email, String password, String firstName, String lastName,
+            Long roleId) {
+    }
+
+    private static final class ImportJob {
+        final String id;
+        final String fileName;
+        final Path errorsFile;
+        final Instant startedAt = Instant.now();
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong imported = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        volatile String status = STATUS_PENDING;
+        volatile long total;
+        volatile Instant finishedAt;
+        volatile String message;
+
+        ImportJob(String id, String fileName, Path errorsFile) {
+            this.id = id;
+            this.fileName = fileName;
+            this.errorsFile = errorsFile;
+        }
+
+        UserImportJobDTO snapshot() {
+            return UserImportJobDTO.builder()
+                    .id(id)
+                    .status(status)
+                    .fileName(fileName)
+                    .total(total)
+                    .processed(processed.get())
+                    .imported(imported.get())
+                    .failed(failed.get())
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .message(message)
+                    .build();
+        }
+    }
+}
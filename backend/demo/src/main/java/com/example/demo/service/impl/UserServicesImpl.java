@@ -1,27 +1,57 @@
 package com.example.demo.service.impl;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.demo.config.CacheInvalidationLog;
+import com.example.demo.config.PrincipalCache;
+import com.example.demo.domain.CacheInvalidation;
 import com.example.demo.domain.Role;
 import com.example.demo.domain.User;
 import com.example.demo.domain.request.User.UpsertAdminDTO;
 import com.example.demo.util.error.IdInvalidException;
+import com.example.demo.domain.dto.PrincipalDTO;
+import com.example.demo.domain.dto.ResultCursorDTO;
 import com.example.demo.domain.dto.ResultPaginationDTO;
 import com.example.demo.domain.response.ResCreateUserDTO;
 import com.example.demo.domain.response.ResUpdateUserDTO;
 import com.example.demo.domain.response.ResUserDTO;
 import com.example.demo.repository.UserServiceRepository;
+import com.example.demo.repository.UserViews;
 import com.example.demo.service.RoleService;
 import com.example.demo.service.UserServices;
+import com.example.demo.util.UserCursor;
+import com.example.demo.util.UserExportWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -31,6 +61,13 @@ import lombok.experimental.FieldDefaults;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 @AllArgsConstructor
 public class UserServicesImpl implements UserServices {
+    // thứ tự của cursor phải khớp index (created_at, id) trên bảng users
+    private static final String CURSOR_SORT_CREATED_AT = "createdAt";
+    private static final String CURSOR_SORT_ID = "id";
+    private static final Sort CURSOR_SORT = Sort.by(CURSOR_SORT_CREATED_AT, CURSOR_SORT_ID);
+    // số dòng mỗi lần driver lấy về khi export
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
     @Autowired
     UserServiceRepository userServiceRepository;
 
@@ -40,6 +77,18 @@ public class UserServicesImpl implements UserServices {
     @Autowired
     PasswordEncoder passwordEncoder;
 
+    @Autowired
+    PrincipalCache principalCache;
+
+    @Autowired
+    CacheInvalidationLog cacheInvalidationLog;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
     @Override
     public User handleGetUserByUsernames(String username) {
         User user = this.userServiceRepository.findByEmail(username);
@@ -58,17 +107,26 @@ public class UserServicesImpl implements UserServices {
     }
 
     @Override
-    public void updateUserToken(String token, String email) {
-        User currentUser = this.handleGetUserByUsername(email);
-        if (currentUser != null) {
-            currentUser.setRefreshToken(token);
-            this.userServiceRepository.save(currentUser);
-        }
+    public PrincipalDTO handleGetPrincipalByUsername(String username) {
+        return this.principalCache.get(username, email -> {
+            User user = this.userServiceRepository.findByEmail(email);
+            if (user == null) {
+                return null;
+            }
+            return new PrincipalDTO(
+                    user.getId(),
+                    user.getEmail(),
+                    user.getRole() != null ? user.getRole().getId() : null,
+                    user.isBlocked(),
+                    user.getPassword());
+        });
     }
 
     @Override
-    public User getUserByRefreshTokenAndEmail(String token, String email) {
-        return this.userServiceRepository.findByRefreshTokenAndEmail(token, email);
+    public void handleUpdatePasswordHash(String email, String encodedPassword) {
+        // chỉ ghi 1 cột, không load lại entity
+        this.userServiceRepository.updatePasswordByEmail(encodedPassword, email);
+        this.principalCache.evict(email);
     }
 
     @Override
@@ -82,7 +140,9 @@ public class UserServicesImpl implements UserServices {
             Role r = this.roleService.fetchById(user.getRole().getId());
             user.setRole(r != null ? r : null);
         }
-        return this.userServiceRepository.save(user);
+        User saved = this.userServiceRepository.save(user);
+        this.principalCache.evict(saved.getEmail());
+        return saved;
     }
 
     @Override
@@ -105,6 +165,17 @@ public class UserServicesImpl implements UserServices {
         return null;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ResUserDTO handleFindUserViewById(Long id) {
+        return this.userServiceRepository.findUserViewById(id);
+    }
+
+    @Override
+    public Long handleFindUserRowVersion(Long id) {
+        return this.userServiceRepository.findRowVersionById(id).orElse(null);
+    }
+
     @Override
     public ResUserDTO convertToResUserDTO(User user) {
         ResUserDTO.RoleUser roleUser = null;
@@ -132,23 +203,33 @@ public class UserServicesImpl implements UserServices {
                 .isAdmin(user.getIs_admin())
                 .isBlocked(user.isBlocked())
                 .role(roleUser)
+                .rowVersion(user.getRowVersion())
                 .build();
     }
 
     @Override
+    @Transactional
     public User handleChangeActivityUser(Long id) {
         User currentUser = this.handleFindByIdUser(id);
         if (currentUser != null) {
             currentUser.setIs_blocked(!currentUser.isBlocked());
-            return this.userServiceRepository.save(currentUser);
+            if (currentUser.isBlocked()) {
+                revokeTokens(currentUser);
+            }
+            User saved = this.userServiceRepository.save(currentUser);
+            // evict principal trên mọi node (node này: sau commit)
+            this.cacheInvalidationLog.publish(CacheInvalidation.Target.PRINCIPAL, saved.getId());
+            return saved;
         }
         return null;
     }
 
     @Override
+    @Transactional
     public User handleUpdateUser(User updateUser) {
         User currentUser = this.handleFindByIdUser(updateUser.getId());
         if (currentUser != null) {
+            Long previousRoleId = roleIdOf(currentUser);
 
             if (updateUser.getEmail() != null && !updateUser.getEmail().isBlank()) {
                 currentUser.setEmail(updateUser.getEmail());
@@ -202,8 +283,15 @@ public class UserServicesImpl implements UserServices {
                 Role r = this.roleService.fetchById(updateUser.getRole().getId());
                 currentUser.setRole(r != null ? r : null);
             }
+            // token cũ mang role/quyền cũ
+            if (!Objects.equals(previousRoleId, roleIdOf(currentUser))) {
+                revokeTokens(currentUser);
+            }
 
-            return this.userServiceRepository.save(currentUser);
+            User saved = this.userServiceRepository.save(currentUser);
+            // email có thể đã đổi -> evict theo id để xoá cả entry của email cũ
+            this.cacheInvalidationLog.publish(CacheInvalidation.Target.PRINCIPAL, saved.getId());
+            return saved;
         }
         return null;
     }
@@ -226,8 +314,26 @@ public class UserServicesImpl implements UserServices {
     }
 
     @Override
+    @Transactional
     public void handleDeleteUser(Long id) {
         this.userServiceRepository.deleteById(id);
+        this.cacheInvalidationLog.publish(CacheInvalidation.Target.PRINCIPAL, id);
+    }
+
+    @Override
+    @Transactional
+    public void handleRevokeTokens(Long id) {
+        this.userServiceRepository.incrementTokenVersion(id);
+        // TokenVersionRegistry đọc lại version khi xử lý event PRINCIPAL
+        this.cacheInvalidationLog.publish(CacheInvalidation.Target.PRINCIPAL, id);
+    }
+
+    private void revokeTokens(User user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
+    }
+
+    private static Long roleIdOf(User user) {
+        return user.getRole() != null ? user.getRole().getId() : null;
     }
 
     @Override
@@ -235,9 +341,12 @@ public class UserServicesImpl implements UserServices {
         this.userServiceRepository.save(user);
     }
 
+    // readOnly: đi replica khi có app.datasource.replica.urls (xem ReplicaRoutingDataSource)
     @Override
+    @Transactional(readOnly = true)
     public ResultPaginationDTO fetchAllUsers(Specification<User> spec, Pageable pageable) {
-        Page<User> pageUser = this.userServiceRepository.findAll(spec, pageable);
+        // projection: chỉ các cột của ResUserDTO + tên role trong cùng câu select, không hydrate entity
+        Page<ResUserDTO> pageUser = this.userServiceRepository.findUserViews(spec, pageable);
         ResultPaginationDTO rs = new ResultPaginationDTO();
         ResultPaginationDTO.Meta mt = new ResultPaginationDTO.Meta();
 
@@ -248,16 +357,119 @@ public class UserServicesImpl implements UserServices {
         mt.setTotal(pageUser.getTotalElements());
 
         rs.setMeta(mt);
+        rs.setResult(pageUser.getContent());
 
-        List<ResUserDTO> listUser = pageUser.getContent()
-                .stream().map(item -> this.convertToResUserDTO(item))
-                .collect(Collectors.toList());
-
-        rs.setResult(listUser);
+        return rs;
+    }
 
+    /**
+     * Phân trang keyset theo (createdAt, id): WHERE createdAt > c OR (createdAt = c AND id > i)
+     * ORDER BY createdAt, id LIMIT size + 1, đi thẳng vào index idx_users_created_at_id nên trang
+     * thứ 10.000 nhanh như trang đầu. Không chạy COUNT(*); dòng thừa chỉ để biết còn trang sau.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ResultCursorDTO fetchAllUsersByCursor(Specification<User> spec, String cursor, int size)
+            throws IdInvalidException {
+        Specification<User> where = Specification.where(spec);
+        if (cursor != null && !cursor.isBlank()) {
+            where = where.and(after(UserCursor.decode(cursor)));
+        }
+        List<ResUserDTO> rows = this.userServiceRepository.findUserViews(where, CURSOR_SORT, size + 1);
+
+        List<ResUserDTO> page = rows.size() > size ? rows.subList(0, size) : rows;
+        ResultCursorDTO rs = new ResultCursorDTO();
+        ResultCursorDTO.Meta mt = new ResultCursorDTO.Meta();
+        mt.setPageSize(size);
+        if (rows.size() > size) {
+            ResUserDTO last = page.get(page.size() - 1);
+            mt.setNext(new UserCursor(last.getCreatedAt(), last.getId()).encode());
+        }
+        rs.setMeta(mt);
+        rs.setResult(page);
         return rs;
     }
 
+    /**
+     * Export toàn bộ user khớp filter ra out, bộ nhớ dùng không phụ thuộc số dòng:
+     * StatelessSession (không có persistence context giữ lại entity) + scroll FORWARD_ONLY
+     * với fetch size cố định, mỗi dòng được map và ghi ra ngay.
+     *
+     * StatelessSession chạy trên connection của transaction: openStatelessSession() tự lấy thêm
+     * một connection, mỗi lượt export đang tải sẽ giữ 2 connection của pool.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void handleExportUsers(Specification<User> spec, String format, OutputStream out) throws IOException {
+        SessionFactory sessionFactory = this.entityManagerFactory.unwrap(SessionFactory.class);
+        Session transactional = EntityManagerFactoryUtils.getTransactionalEntityManager(this.entityManagerFactory)
+                .unwrap(Session.class);
+        try {
+            transactional.doWork(connection -> {
+                try (StatelessSession session = sessionFactory.openStatelessSession(connection)) {
+                    exportUsers(session, sessionFactory, spec, format, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void exportUsers(StatelessSession session, SessionFactory sessionFactory, Specification<User> spec,
+            String format, OutputStream out) throws IOException {
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> root = query.from(User.class);
+        // chỉ các cột cần export, role lấy cùng query (left join), không có cột password
+        UserViews.select(query, root);
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, cb) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.asc(root.get("id")));
+
+        try (ScrollableResults<Tuple> rows = session.createSelectionQuery(query)
+                .setFetchSize(exportFetchSize(sessionFactory))
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+                UserExportWriter writer = UserExportWriter.open(format, out, this.objectMapper)) {
+            while (rows.next()) {
+                writer.write(UserViews.toResUserDTO(rows.get()));
+            }
+        }
+    }
+
+    /**
+     * Connector/J bỏ qua fetch size dương (trừ khi bật useCursorFetch, kéo theo server-side prepare
+     * cho mọi câu lệnh) và đọc hết result set vào heap; Integer.MIN_VALUE bật chế độ stream từng dòng.
+     */
+    private static int exportFetchSize(SessionFactory sessionFactory) {
+        Dialect dialect = sessionFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        return dialect instanceof MySQLDialect ? Integer.MIN_VALUE : EXPORT_FETCH_SIZE;
+    }
+
+    /**
+     * createdAt null đứng trước mọi giá trị khác (ORDER BY tăng dần của MySQL/H2 để NULL lên đầu):
+     * cursor dừng ở dòng null thì trang sau là các dòng null còn lại theo id rồi toàn bộ dòng có
+     * createdAt; cursor có createdAt thì "createdAt > c" đã loại sẵn các dòng null.
+     */
+    private static Specification<User> after(UserCursor cursor) {
+        if (cursor.createdAt() == null) {
+            return (root, query, cb) -> cb.or(
+                    cb.isNotNull(root.get(CURSOR_SORT_CREATED_AT)),
+                    cb.and(
+                            cb.isNull(root.get(CURSOR_SORT_CREATED_AT)),
+                            cb.greaterThan(root.get(CURSOR_SORT_ID), cursor.id())));
+        }
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get(CURSOR_SORT_CREATED_AT), cursor.createdAt()),
+                cb.and(
+                        cb.equal(root.get(CURSOR_SORT_CREATED_AT), cursor.createdAt()),
+                        cb.greaterThan(root.get(CURSOR_SORT_ID), cursor.id())));
+    }
+
     @Override
     public User handleAdminCreateUser(UpsertAdminDTO dto) throws IdInvalidException {
         // Check email exists
@@ -284,7 +496,8 @@ public class UserServicesImpl implements UserServices {
     }
 
     @Override
-    public User handleAdminUpdateUser(Long id, UpsertAdminDTO dto) throws IdInvalidException {
+    @Transactional(rollbackFor = IdInvalidException.class)
+    public User handleAdminUpdateUser(Long id, UpsertAdminDTO dto, String passwordHash) throws IdInvalidException {
         User existingUser = handleFindByIdUser(id);
         if (existingUser == null) {
             throw new IdInvalidException("User với id = " + id + " không tồn tại");
@@ -296,24 +509,27 @@ public class UserServicesImpl implements UserServices {
                     "Email " + dto.getEmail() + " đã tồn tại, vui lòng sử dụng email khác.");
         }
 
+        // kiểm tra role trước khi sửa entity đang managed; roleId null thì gỡ role
+        Role role = null;
+        if (dto.getRoleId() != null) {
+            role = roleService.fetchById(dto.getRoleId());
+            if (role == null) {
+                throw new IdInvalidException("Role với id = " + dto.getRoleId() + " không tồn tại");
+            }
+        }
+
         // Update email
         existingUser.setEmail(dto.getEmail());
 
-        // Update password if provided
-        if (dto.getPassword() != null && !dto.getPassword().isBlank()) {
-            existingUser.setPassword(passwordEncoder.encode(dto.getPassword()));
+        // Update password if provided (đã băm ở controller, ngoài transaction)
+        if (passwordHash != null) {
+            existingUser.setPassword(passwordHash);
         }
 
-        // Update role if provided
-        if (dto.getRoleId() != null) {
-            Role role = roleService.fetchById(dto.getRoleId());
-            if (role == null) {
-                throw new IdInvalidException("Role với id = " + dto.getRoleId() + " không tồn tại");
-            }
-            existingUser.setRole(role);
-        } else {
-            // If roleId is null, remove role
-            existingUser.setRole(null);
+        Long previousRoleId = roleIdOf(existingUser);
+        existingUser.setRole(role);
+        if (!Objects.equals(previousRoleId, roleIdOf(existingUser))) {
+            revokeTokens(existingUser);
         }
 
         // Ensure id is set for handleUpdateUser
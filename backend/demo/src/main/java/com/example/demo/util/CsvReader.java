@@ -0,0 +1,124 @@
+package com.example.demo.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Đọc CSV (RFC 4180) từng bản ghi một từ Reader: hỗ trợ giá trị trong ngoặc kép, "" bên trong,
+ * xuống dòng trong ngoặc kép, CRLF/LF và bỏ BOM đầu file. Không giữ cả file trong bộ nhớ.
+ */
+public final class CsvReader implements Closeable {
+
+    private final Reader reader;
+    private int lineNumber = 1;
+    private int recordLine;
+    private boolean started;
+    private int pushedBack = -2;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Bản ghi kế tiếp, null khi hết file. Dòng trống bị bỏ qua.
+     */
+    public List<String> readRecord() throws IOException {
+        while (true) {
+            int c = read();
+            if (!started) {
+                started = true;
+                if (c == '\uFEFF') {
+                    c = read();
+                }
+            }
+            if (c == -1) {
+                return null;
+            }
+            if (c == '\n') {
+                lineNumber++;
+                continue;
+            }
+            if (c == '\r') {
+                continue;
+            }
+            recordLine = lineNumber;
+            return readFields(c);
+        }
+    }
+
+    /**
+     * Dòng bắt đầu của bản ghi vừa đọc (đếm từ 1, tính cả dòng header)
+     */
+    public int getRecordLine() {
+        return recordLine;
+    }
+
+    private List<String> readFields(int c) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Thiếu dấu \" đóng ở bản ghi bắt đầu tại dòng " + recordLine);
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                }
+                if (c != -1) {
+                    lineNumber++;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
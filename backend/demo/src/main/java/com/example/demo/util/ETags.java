@@ -0,0 +1,64 @@
+package com.example.demo.util;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * ETag theo version (không hash body) cho GET có điều kiện: controller so If-None-Match với
+ * version hiện tại trước khi load dữ liệu, khớp thì trả 304 không body (FormarRestResponse
+ * không bọc gì).
+ */
+public final class ETags {
+
+    // client được lưu response nhưng lần nào cũng phải hỏi lại (If-None-Match);
+    // private: dữ liệu sau phân quyền, proxy dùng chung không được cache
+    public static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private ETags() {
+    }
+
+    /**
+     * ETag strong: "part1-part2-..."
+     */
+    public static String strong(Object... parts) {
+        StringBuilder value = new StringBuilder("\"");
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                value.append('-');
+            }
+            value.append(parts[i]);
+        }
+        return value.append('"').toString();
+    }
+
+    /**
+     * If-None-Match có chứa etag không (so sánh weak theo RFC 9110: bỏ qua tiền tố W/)
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+    }
+
+    public static <T> ResponseEntity<T> ok(String etag, T body) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(body);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.demo.util;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtEncodingException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.proc.JWSVerifierFactory;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+/**
+ * Ký và xác thực JWT HMAC với khóa đã khởi tạo sẵn.
+ *
+ * NimbusJwtEncoder/NimbusJwtDecoder mặc định tra JWK, tạo MACSigner/MACVerifier và
+ * gọi Mac.getInstance + init cho từng token. Ở đây Mac được init một lần rồi clone
+ * cho mỗi lần ký/xác thực, header {"alg":"HS512"} được encode sẵn và decoder chỉ
+ * build một lần. Token sinh ra giống hệt NimbusJwtEncoder.
+ */
+public final class HmacJwtCodec implements JwtEncoder {
+
+    private final MacAlgorithm algorithm;
+    private final JWSAlgorithm jwsAlgorithm;
+    private final Mac prototype;
+    private final JwsHeader defaultHeader;
+    private final String defaultHeaderSegment;
+    private final PreKeyedVerifier verifier;
+    private final NimbusJwtDecoder decoder;
+
+    public HmacJwtCodec(SecretKey secretKey, MacAlgorithm algorithm) {
+        this.algorithm = algorithm;
+        this.jwsAlgorithm = JWSAlgorithm.parse(algorithm.getName());
+        try {
+            this.prototype = Mac.getInstance(javaAlgorithm(algorithm));
+            this.prototype.init(secretKey);
+            // kiểm tra provider hỗ trợ clone ngay lúc khởi động thay vì lúc ký token đầu tiên
+            this.prototype.clone();
+        } catch (GeneralSecurityException | CloneNotSupportedException e) {
+            throw new IllegalStateException("Không khởi tạo được khóa ký JWT: " + e.getMessage(), e);
+        }
+        this.defaultHeader = JwsHeader.with(algorithm).build();
+        this.defaultHeaderSegment = Base64URL.encode(
+                JSONObjectUtils.toJSONString(Map.of("alg", algorithm.getName()))).toString();
+        this.verifier = new PreKeyedVerifier();
+        this.decoder = NimbusJwtDecoder.withSecretKey(secretKey)
+                .macAlgorithm(algorithm)
+                .jwtProcessorCustomizer(processor -> processor.setJWSVerifierFactory(this.verifier))
+                .build();
+    }
+
+    @Override
+    public Jwt encode(JwtEncoderParameters parameters) {
+        JwsHeader header = parameters.getJwsHeader() != null ? parameters.getJwsHeader() : this.defaultHeader;
+        if (!this.algorithm.equals(header.getAlgorithm())) {
+            throw new JwtEncodingException("Thuật toán ký không được hỗ trợ: " + header.getAlgorithm());
+        }
+        JwtClaimsSet claims = parameters.getClaims();
+
+        String headerSegment = isDefaultHeader(header)
+                ? this.defaultHeaderSegment
+                : Base64URL.encode(JSONObjectUtils.toJSONString(header.getHeaders())).toString();
+        String payloadSegment = Base64URL.encode(toNimbusClaims(claims).toString()).toString();
+        String signingInput = headerSegment + "." + payloadSegment;
+        String signature = Base64URL.encode(mac().doFinal(signingInput.getBytes(StandardCharsets.US_ASCII))).toString();
+
+        return Jwt.withTokenValue(signingInput + "." + signature)
+                .headers(h -> h.putAll(header.getHeaders()))
+                .claims(c -> c.putAll(claims.getClaims()))
+                .build();
+    }
+
+    /**
+     * Decoder dùng chung (thread-safe), xác thực chữ ký bằng Mac đã init sẵn
+     */
+    public NimbusJwtDecoder decoder() {
+        return this.decoder;
+    }
+
+    private Mac mac() {
+        try {
+            return (Mac) this.prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            // đã kiểm tra ở constructor
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isDefaultHeader(JwsHeader header) {
+        return header.getHeaders().size() == 1;
+    }
+
+    // giống cách NimbusJwtEncoder chuyển JwtClaimsSet sang JWTClaimsSet (Instant -> epoch seconds)
+    private static JWTClaimsSet toNimbusClaims(JwtClaimsSet claims) {
+        JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder();
+        for (Map.Entry<String, Object> entry : claims.getClaims().entrySet()) {
+            String name = entry.getKey();
+            Object value = entry.getValue();
+            switch (name) {
+                case JwtClaimNames.ISS -> builder.issuer(value instanceof URL url ? url.toExternalForm() : value.toString());
+                case JwtClaimNames.SUB -> builder.subject(value.toString());
+                case JwtClaimNames.AUD -> builder.audience(claims.getAudience());
+                case JwtClaimNames.EXP -> builder.expirationTime(toDate(value));
+                case JwtClaimNames.NBF -> builder.notBeforeTime(toDate(value));
+                case JwtClaimNames.IAT -> builder.issueTime(toDate(value));
+                case JwtClaimNames.JTI -> builder.jwtID(value.toString());
+                default -> builder.claim(name, value);
+            }
+        }
+        return builder.build();
+    }
+
+    private static Date toDate(Object value) {
+        return value instanceof Instant instant ? Date.from(instant) : (Date) value;
+    }
+
+    private static String javaAlgorithm(MacAlgorithm algorithm) {
+        return switch (algorithm) {
+            case HS256 -> "HmacSHA256";
+            case HS384 -> "HmacSHA384";
+            case HS512 -> "HmacSHA512";
+        };
+    }
+
+    /**
+     * Verifier dùng lại cho mọi token; đồng thời là factory trả về chính nó
+     */
+    private final class PreKeyedVerifier implements JWSVerifier, JWSVerifierFactory {
+
+        private final JCAContext jcaContext = new JCAContext();
+
+        @Override
+        public boolean verify(JWSHeader header, byte[] signingInput, Base64URL signature) {
+            if (!jwsAlgorithm.equals(header.getAlgorithm())) {
+                return false;
+            }
+            byte[] expected = mac().doFinal(signingInput);
+            return MessageDigest.isEqual(expected, signature.decode());
+        }
+
+        @Override
+        public JWSVerifier createJWSVerifier(JWSHeader header, Key key) throws JOSEException {
+            return this;
+        }
+
+        @Override
+        public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+            return Set.of(jwsAlgorithm);
+        }
+
+        @Override
+        public JCAContext getJCAContext() {
+            return this.jcaContext;
+        }
+    }
+}
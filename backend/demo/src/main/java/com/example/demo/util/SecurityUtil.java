@@ -2,10 +2,9 @@ package com.example.demo.util;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Map;
 import java.util.Optional;
-
-import javax.crypto.SecretKey;
-import javax.crypto.spec.SecretKeySpec;
+import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
@@ -16,26 +15,34 @@ import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
 import org.springframework.security.oauth2.jwt.JwsHeader;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtClaimsSet;
-import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
-import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.stereotype.Service;
 
+import com.example.demo.config.AuthorizationIndex;
+import com.example.demo.config.TokenVersionRegistry;
 import com.example.demo.domain.response.ResLoginDTO;
-import com.nimbusds.jose.util.Base64;
 
 @Service
 public class SecurityUtil {
-    private final JwtEncoder jwtEncoder;
+    private final HmacJwtCodec jwtCodec;
+    private final AuthorizationIndex authorizationIndex;
 
-    public SecurityUtil(JwtEncoder jwtEncoder) {
-        this.jwtEncoder = jwtEncoder;
+    public SecurityUtil(HmacJwtCodec jwtCodec, AuthorizationIndex authorizationIndex) {
+        this.jwtCodec = jwtCodec;
+        this.authorizationIndex = authorizationIndex;
     }
 
     public static final MacAlgorithm JWT_ALGORITHM = MacAlgorithm.HS512;
 
-    @Value("${hoidanit.jwt.base64-secret}")
-    private String jwtKey;
+    // header chỉ có alg, tạo một lần
+    private static final JwsHeader JWS_HEADER = JwsHeader.with(JWT_ALGORITHM).build();
+
+    // bitset quyền của role (base64url) và version của catalog quyền lúc phát hành token
+    public static final String CLAIM_PERMISSIONS = "perm_bits";
+    public static final String CLAIM_PERMISSION_VERSION = "perm_ver";
+
+    @Value("${app.security.permission-claims.enabled:false}")
+    private boolean permissionClaimsEnabled;
 
     @Value("${hoidanit.jwt.access-token-validity-in-seconds}")
     private long accessTokenExpiration;
@@ -62,20 +69,38 @@ public class SecurityUtil {
                 .claim("user_is_admin", dto.getUser().getIs_admin())
                 .claim("user_role_id", dto.getUser().getRole() != null ? dto.getUser().getRole().getId() : "")
                 .claim("user_role_name", dto.getUser().getRole() != null ? dto.getUser().getRole().getName() : "")
+                .claim(TokenVersionRegistry.CLAIM_TOKEN_VERSION, dto.getUser().getTokenVersion())
+                .claims(this::addPermissionClaims)
                 .build();
 
 //        Mã hóa JWT bằng thuật toán HS512 và trả về chuỗi token dạng eyJhbGciOi...
-        JwsHeader jwsHeader = JwsHeader.with(JWT_ALGORITHM).build();
-        return this.jwtEncoder.encode(JwtEncoderParameters.from(jwsHeader, claims)).getTokenValue();
+        return this.jwtCodec.encode(JwtEncoderParameters.from(JWS_HEADER, claims)).getTokenValue();
 
     }
 
+    // nhúng bitset quyền để PermissionInterceptor phân quyền trực tiếp từ token
+    private void addPermissionClaims(Map<String, Object> claims) {
+        Object roleId = claims.get("user_role_id");
+        if (!permissionClaimsEnabled || !(roleId instanceof Long id)) {
+            return;
+        }
+        AuthorizationIndex.Snapshot snapshot = this.authorizationIndex.current();
+        claims.put(CLAIM_PERMISSIONS, snapshot.encodedPermissions(id));
+        claims.put(CLAIM_PERMISSION_VERSION, snapshot.version());
+    }
+
+    public boolean isPermissionClaimsEnabled() {
+        return permissionClaimsEnabled;
+    }
+
     public String createRefreshToken(String email, ResLoginDTO dto) {
         Instant now = Instant.now();
         Instant validity = now.plus(this.refreshTokenExpiration, ChronoUnit.SECONDS);
 
         // @formatter:off
+        // jti ngẫu nhiên: 2 token cấp trong cùng 1 giây vẫn khác nhau (token_hash là unique)
         JwtClaimsSet claims = JwtClaimsSet.builder()
+                .id(UUID.randomUUID().toString())
                 .issuedAt(now)
                 .expiresAt(validity)
                 .subject(email)
@@ -87,24 +112,14 @@ public class SecurityUtil {
                 .claim("user_role_name", dto.getUser().getRole() != null ? dto.getUser().getRole().getName() : "")
                 .build();
 
-        JwsHeader jwsHeader = JwsHeader.with(JWT_ALGORITHM).build();
-        return this.jwtEncoder.encode(JwtEncoderParameters.from(jwsHeader, claims)).getTokenValue();
-
-    }
+        return this.jwtCodec.encode(JwtEncoderParameters.from(JWS_HEADER, claims)).getTokenValue();
 
-    // mã hóa token
-    private SecretKey getSecretKey() {
-        // giải mã key
-        byte[] keyBytes = Base64.from(jwtKey).decode();
-        return new SecretKeySpec(keyBytes, 0, keyBytes.length,
-                JWT_ALGORITHM.getName());
     }
 
     public Jwt checkValidRefreshToken(String token){
-        NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withSecretKey(
-                getSecretKey()).macAlgorithm(SecurityUtil.JWT_ALGORITHM).build();
+        // decoder dựng sẵn trong HmacJwtCodec, không tạo lại SecretKeySpec/NimbusJwtDecoder mỗi lần
         try {
-            return jwtDecoder.decode(token);
+            return this.jwtCodec.decoder().decode(token);
         } catch (Exception e) {
             System.out.println(">>> Refresh Token error: " + e.getMessage());
             throw e;
@@ -130,6 +145,14 @@ public class SecurityUtil {
         return null;
     }
 
+    public static Optional<Jwt> getCurrentJwt() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof Jwt jwt) {
+            return Optional.of(jwt);
+        }
+        return Optional.empty();
+    }
+
     public static Optional<String> getCurrentUserJWT() {
         SecurityContext securityContext = SecurityContextHolder.getContext();
         return Optional.ofNullable(securityContext.getAuthentication())
@@ -0,0 +1,43 @@
+package com.example.demo.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 của token: làm key cache / khóa tra cứu mà không phải giữ hay so sánh cả chuỗi JWT
+ */
+public final class TokenDigest {
+
+    private TokenDigest() {
+    }
+
+    public static byte[] sha256(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            // JDK nào cũng bắt buộc có SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 64 ký tự hex, vừa cột CHAR(64)
+     */
+    public static String sha256Hex(String token) {
+        return HexFormat.of().formatHex(sha256(token));
+    }
+
+    /**
+     * 128 bit đầu của SHA-256 dưới dạng 2 long (key cache không cấp phát mảng/chuỗi)
+     */
+    public static Key key(String token) {
+        ByteBuffer buffer = ByteBuffer.wrap(sha256(token));
+        return new Key(buffer.getLong(), buffer.getLong());
+    }
+
+    public record Key(long high, long low) {
+    }
+}
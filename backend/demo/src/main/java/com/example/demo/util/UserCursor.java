@@ -0,0 +1,43 @@
+package com.example.demo.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+import com.example.demo.util.error.IdInvalidException;
+
+/**
+ * Cursor phân trang keyset của danh sách user: vị trí (createdAt, id) của dòng cuối trang trước,
+ * mã hoá base64url để client coi như chuỗi mờ, chỉ việc gửi lại.
+ *
+ * createdAt có thể null (users.created_at chỉ được gán ở @PrePersist, dòng ghi ngoài JPA thì không).
+ */
+public record UserCursor(Instant createdAt, long id) {
+
+    private static final String VERSION = "v1";
+    private static final String NULL_PART = "-";
+
+    public String encode() {
+        String raw = createdAt == null
+                ? VERSION + ":" + NULL_PART + ":" + NULL_PART + ":" + id
+                : VERSION + ":" + createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static UserCursor decode(String cursor) throws IdInvalidException {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            String[] parts = raw.split(":");
+            if (parts.length != 4 || !VERSION.equals(parts[0])) {
+                throw new IdInvalidException("Cursor không hợp lệ");
+            }
+            Instant createdAt = NULL_PART.equals(parts[1]) && NULL_PART.equals(parts[2])
+                    ? null
+                    : Instant.ofEpochSecond(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            return new UserCursor(createdAt, Long.parseLong(parts[3]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IdInvalidException("Cursor không hợp lệ");
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.demo.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import com.example.demo.domain.response.ResUserDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Ghi từng user ra stream ngay khi đọc được (NDJSON: mỗi dòng một object JSON, hoặc CSV),
+ * không gom cả danh sách vào bộ nhớ. Writer có buffer nhỏ, dữ liệu được đẩy xuống
+ * response theo từng block.
+ */
+public final class UserExportWriter implements Closeable {
+
+    public static final String NDJSON = "ndjson";
+    public static final String CSV = "csv";
+
+    private static final String[] CSV_HEADER = {
+            "id", "email", "fullname", "dateOfBirth", "gender", "work", "education", "currentCity",
+            "hometown", "bio", "createdAt", "isAdmin", "isBlocked", "roleId", "roleName", "avatar", "coverPhoto"
+    };
+
+    private final Writer writer;
+    private final ObjectWriter json;
+
+    private UserExportWriter(OutputStream out, ObjectWriter json) {
+        this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        this.json = json;
+    }
+
+    public static boolean isSupported(String format) {
+        return NDJSON.equals(format) || CSV.equals(format);
+    }
+
+    public static String contentType(String format) {
+        return CSV.equals(format) ? "text/csv; charset=UTF-8" : "application/x-ndjson";
+    }
+
+    /**
+     * Accept-Encoding có nhận gzip không: "gzip" (hoặc "x-gzip") hay "*" với q > 0. gzip ghi
+     * rõ được ưu tiên hơn "*", vd "*, gzip;q=0" là không nén; q sai định dạng coi như 0.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] params = entry.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = quality(params);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = gzip == null ? q : Math.max(gzip, q);
+            } else if (coding.equals("*")) {
+                wildcard = q;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return wildcard != null && wildcard > 0;
+    }
+
+    private static double quality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim().toLowerCase(Locale.ROOT);
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    public static UserExportWriter open(String format, OutputStream out, ObjectMapper objectMapper)
+            throws IOException {
+        if (CSV.equals(format)) {
+            UserExportWriter csv = new UserExportWriter(out, null);
+            // BOM để Excel nhận đúng UTF-8 (tiếng Việt)
+            csv.writer.write('\uFEFF');
+            csv.writeCsvRow(CSV_HEADER);
+            return csv;
+        }
+        // không để Jackson đóng writer sau mỗi object
+        ObjectWriter json = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return new UserExportWriter(out, json);
+    }
+
+    public void write(ResUserDTO user) throws IOException {
+        if (json != null) {
+            json.writeValue(writer, user);
+            writer.write('\n');
+            return;
+        }
+        ResUserDTO.RoleUser role = user.getRole();
+        writeCsvRow(new String[] {
+                String.valueOf(user.getId()),
+                user.getEmail(),
+                user.getFullname(),
+                stringOf(user.getDateOfBirth()),
+                stringOf(user.getGender()),
+                user.getWork(),
+                user.getEducation(),
+                user.getCurrentCity(),
+                user.getHometown(),
+                user.getBio(),
+                stringOf(user.getCreatedAt()),
+                String.valueOf(user.isAdmin()),
+                String.valueOf(user.isBlocked()),
+                role != null ? String.valueOf(role.getId()) : null,
+                role != null ? role.getName() : null,
+                user.getAvatar(),
+                user.getCoverPhoto()
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void writeCsvRow(String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeCsvValue(values[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeCsvValue(String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        // chặn CSV injection: ô bắt đầu bằng = + - @ bị Excel coi là công thức
+        char first = value.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r') {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static String stringOf(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
@@ -3,6 +3,7 @@ package com.example.demo.util.error;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -55,6 +56,28 @@ public class GlobalExcaption {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(res);
     }
 
+    // quá tải (vd: pool băm mật khẩu đầy): trả 503 ngay kèm Retry-After
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<RestResponse<Object>> handleOverloaded(ServiceOverloadedException ex) {
+        RestResponse<Object> res = new RestResponse<Object>();
+        res.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE.value());
+        res.setError("Service Unavailable");
+        res.setMessage(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(res);
+    }
+
+    // provider OAuth lỗi/không phản hồi kịp: 502
+    @ExceptionHandler(OAuthProviderException.class)
+    public ResponseEntity<RestResponse<Object>> handleOAuthProvider(OAuthProviderException ex) {
+        RestResponse<Object> res = new RestResponse<Object>();
+        res.setStatusCode(HttpStatus.BAD_GATEWAY.value());
+        res.setError("Bad Gateway");
+        res.setMessage(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(res);
+    }
+
     @ExceptionHandler(value = {
             PermissionException.class,
     })
@@ -0,0 +1,24 @@
+package com.example.demo.util.error;
+
+/**
+ * Provider OAuth (Google/Facebook) trả lỗi, trả sai định dạng hoặc không phản hồi
+ * kịp deadline. GlobalExcaption trả về 502.
+ */
+public class OAuthProviderException extends RuntimeException {
+
+    private final String provider;
+
+    public OAuthProviderException(String provider, String message) {
+        super(message);
+        this.provider = provider;
+    }
+
+    public OAuthProviderException(String provider, String message, Throwable cause) {
+        super(message, cause);
+        this.provider = provider;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.util.error;
+
+/**
+ * Không gọi provider vì circuit breaker đang mở hoặc đã đủ số lời gọi đồng thời.
+ * Callback đăng nhập mạng xã hội redirect ngay về frontend kèm thông báo lỗi.
+ */
+public class OAuthProviderUnavailableException extends OAuthProviderException {
+
+    public OAuthProviderUnavailableException(String provider, String message) {
+        super(provider, message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.util.error;
+
+/**
+ * Hệ thống đang quá tải (vd: hàng đợi băm mật khẩu đầy), client nên thử lại sau
+ * retryAfterSeconds giây. GlobalExcaption trả về 503 + header Retry-After.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
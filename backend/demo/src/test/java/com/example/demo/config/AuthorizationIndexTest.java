@@ -0,0 +1,84 @@
+package com.example.demo.config;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.domain.dto.PermissionRouteDTO;
+
+/**
+ * Snapshot của AuthorizationIndex: pattern chồng nhau (/users/{id} và /users/export), method
+ * khác nhau trên cùng pattern, role không có quyền, permission chưa gán role nào — cho cả tra theo
+ * role và theo bitset claim.
+ */
+class AuthorizationIndexTest {
+
+    private static final long READER = 1;
+    private static final long EXPORTER = 2;
+
+    private static final long GET_USER = 10;
+    private static final long EXPORT_USERS = 11;
+    private static final long DELETE_USER = 12;
+    private static final long USER_STATS = 13;
+
+    private final AuthorizationIndex.Snapshot snapshot = AuthorizationIndex.Snapshot.compile(List.of(
+            new PermissionRouteDTO(READER, GET_USER, "GET", "/api/v1/users/{id}"),
+            new PermissionRouteDTO(EXPORTER, EXPORT_USERS, "GET", "/api/v1/users/export"),
+            // DELETE cùng pattern nhưng không gán cho role nào ở trên
+            new PermissionRouteDTO(99L, DELETE_USER, "DELETE", "/api/v1/users/{id}"),
+            // chưa gán cho role nào (roleId null từ left join) nhưng vẫn là route đã biết
+            new PermissionRouteDTO(null, USER_STATS, "GET", "/api/v1/users/stats")));
+
+    @Test
+    void handlerPatternIsComparedExactly() {
+        assertTrue(snapshot.isAllowed(READER, "GET", "/api/v1/users/{id}", "/api/v1/users/7"));
+        assertTrue(snapshot.isAllowed(READER, "get", "/api/v1/users/{id}", "/api/v1/users/7"));
+        assertFalse(snapshot.isAllowed(READER, "GET", "/api/v1/users/export", "/api/v1/users/export"));
+        assertTrue(snapshot.isAllowed(EXPORTER, "GET", "/api/v1/users/export", "/api/v1/users/export"));
+        assertFalse(snapshot.isAllowed(EXPORTER, "GET", "/api/v1/users/{id}", "/api/v1/users/7"));
+    }
+
+    @Test
+    void methodMismatchAndUnknownRoleAreDenied() {
+        assertFalse(snapshot.isAllowed(READER, "DELETE", "/api/v1/users/{id}", "/api/v1/users/7"));
+        assertFalse(snapshot.isAllowed(READER, "PUT", "/api/v1/users/{id}", "/api/v1/users/7"));
+        assertFalse(snapshot.isAllowed(42, "GET", "/api/v1/users/{id}", "/api/v1/users/7"));
+    }
+
+    @Test
+    void uriFallbackUsesMostSpecificPattern() {
+        // không có pattern của HandlerMapping: /users/export khớp cả {id} lẫn literal, literal thắng
+        assertTrue(snapshot.isAllowed(READER, "GET", null, "/api/v1/users/7"));
+        assertFalse(snapshot.isAllowed(READER, "GET", null, "/api/v1/users/export"));
+        assertTrue(snapshot.isAllowed(EXPORTER, "GET", null, "/api/v1/users/export"));
+        assertFalse(snapshot.isAllowed(EXPORTER, "GET", null, "/api/v1/users/7"));
+        assertFalse(snapshot.isAllowed(READER, "GET", null, "/api/v1/roles/7"));
+    }
+
+    @Test
+    void permissionBitsFollowTheSameRules() {
+        BitSet reader = snapshot.decodePermissions(snapshot.encodedPermissions(READER));
+
+        assertTrue(snapshot.isAllowed(reader, "GET", "/api/v1/users/{id}", "/api/v1/users/7"));
+        assertFalse(snapshot.isAllowed(reader, "GET", "/api/v1/users/export", "/api/v1/users/export"));
+        assertFalse(snapshot.isAllowed(reader, "DELETE", "/api/v1/users/{id}", "/api/v1/users/7"));
+        assertTrue(snapshot.isAllowed(reader, "GET", null, "/api/v1/users/7"));
+        assertFalse(snapshot.isAllowed(reader, "GET", null, "/api/v1/users/export"));
+        assertFalse(snapshot.isAllowed(new BitSet(), "GET", "/api/v1/users/{id}", "/api/v1/users/7"));
+    }
+
+    @Test
+    void permissionWithoutRoleStillShadowsLessSpecificPattern() {
+        // /users/stats khớp /users/{id}, nhưng là route đã biết không ai được cấp -> không mượn quyền {id}
+        BitSet reader = snapshot.decodePermissions(snapshot.encodedPermissions(READER));
+
+        assertFalse(snapshot.isAllowed(READER, "GET", null, "/api/v1/users/stats"));
+        assertFalse(snapshot.isAllowed(reader, "GET", null, "/api/v1/users/stats"));
+        assertFalse(snapshot.isAllowed(READER, "GET", "/api/v1/users/stats", "/api/v1/users/stats"));
+        assertTrue(snapshot.isAllowed(READER, "GET", null, "/api/v1/users/7"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.demo.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import com.example.demo.util.HmacJwtCodec;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * CachingJwtDecoder: token còn hạn được trả từ cache, quá exp thì không bao giờ trả bản cache
+ * (decoder gốc validate lại và từ chối), hit/miss có trên meter cache.gets.
+ */
+class CachingJwtDecoderTest {
+
+    private static final String SECRET = "caching-jwt-decoder-test-secret-caching-jwt-decoder-test-secret!";
+
+    private final Instant issuedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    private final MutableClock clock = new MutableClock(issuedAt);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HmacJwtCodec codec = new HmacJwtCodec(
+            new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA512"), MacAlgorithm.HS512);
+
+    @Test
+    void cachedTokenIsNeverReturnedAfterExpiry() {
+        NimbusJwtDecoder verifying = codec.decoder();
+        JwtTimestampValidator timestamps = new JwtTimestampValidator(Duration.ZERO);
+        timestamps.setClock(clock);
+        verifying.setJwtValidator(timestamps);
+        CachingJwtDecoder decoder = new CachingJwtDecoder(verifying, 100, clock, meterRegistry);
+        String token = token(issuedAt.plusSeconds(2));
+
+        Jwt first = decoder.decode(token);
+        assertEquals(0, gets("hit"));
+        assertEquals(1, gets("miss"));
+
+        clock.advance(Duration.ofMillis(1500));
+        assertSame(first, decoder.decode(token));
+        assertEquals(1, gets("hit"));
+        assertEquals(1, gets("miss"));
+
+        // entry còn trong Caffeine (ticker thật) nhưng đã quá exp theo clock
+        clock.advance(Duration.ofSeconds(1));
+        assertThrows(JwtValidationException.class, () -> decoder.decode(token));
+        assertThrows(JwtValidationException.class, () -> decoder.decode(token));
+        // lần sau cùng không còn entry (đã bỏ, token hết hạn không được cache lại)
+        assertEquals(2, gets("hit"));
+        assertEquals(2, gets("miss"));
+    }
+
+    @Test
+    void distinctTokensAreCachedSeparately() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(codec.decoder(), 100, Clock.systemUTC(), meterRegistry);
+        String a = token(Instant.now().plusSeconds(60));
+        String b = token(Instant.now().plusSeconds(61));
+
+        assertEquals(a, decoder.decode(a).getTokenValue());
+        assertEquals(b, decoder.decode(b).getTokenValue());
+        assertEquals(a, decoder.decode(a).getTokenValue());
+        assertEquals(1, gets("hit"));
+        assertEquals(2, gets("miss"));
+    }
+
+    private String token(Instant expiresAt) {
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .subject("cache@test.local")
+                .issuedAt(issuedAt)
+                .expiresAt(expiresAt)
+                .build();
+        return codec.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", CachingJwtDecoder.CACHE_NAME)
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
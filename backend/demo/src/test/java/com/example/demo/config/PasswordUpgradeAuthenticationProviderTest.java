@@ -0,0 +1,95 @@
+package com.example.demo.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.example.demo.util.error.ServiceOverloadedException;
+
+/**
+ * Nâng cấp hash sau khi đăng nhập đúng là best-effort: encode bị pool băm từ chối thì vẫn
+ * đăng nhập thành công và không ghi hash mới; mật khẩu sai vẫn bị từ chối như cũ.
+ */
+class PasswordUpgradeAuthenticationProviderTest {
+
+    private static final String EMAIL = "upgrade@test.local";
+
+    private final AtomicInteger upgrades = new AtomicInteger();
+    private final UserDetailsPasswordService passwordService = (user, newPassword) -> {
+        upgrades.incrementAndGet();
+        return User.withUserDetails(user).password(newPassword).build();
+    };
+    private final UserDetails stored = User.withUsername(EMAIL).password("old-hash").roles("USER").build();
+
+    @Test
+    void overloadedUpgradeStillAuthenticates() {
+        PasswordUpgradeAuthenticationProvider provider = provider(new StubEncoder(true));
+
+        Authentication result = provider.authenticate(login("secret"));
+
+        assertTrue(result.isAuthenticated());
+        assertEquals(EMAIL, ((UserDetails) result.getPrincipal()).getUsername());
+        assertEquals(0, upgrades.get());
+    }
+
+    @Test
+    void upgradeRunsWhenPoolAccepts() {
+        PasswordUpgradeAuthenticationProvider provider = provider(new StubEncoder(false));
+
+        assertTrue(provider.authenticate(login("secret")).isAuthenticated());
+        assertEquals(1, upgrades.get());
+    }
+
+    @Test
+    void wrongPasswordIsStillRejected() {
+        PasswordUpgradeAuthenticationProvider provider = provider(new StubEncoder(true));
+
+        assertThrows(BadCredentialsException.class, () -> provider.authenticate(login("wrong")));
+        assertEquals(0, upgrades.get());
+    }
+
+    private PasswordUpgradeAuthenticationProvider provider(PasswordEncoder encoder) {
+        return new PasswordUpgradeAuthenticationProvider(encoder, username -> User.withUserDetails(stored).build(),
+                passwordService);
+    }
+
+    private static Authentication login(String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated(EMAIL, password);
+    }
+
+    /**
+     * "secret" khớp hash cũ, hash luôn cần nâng cấp; overloaded: encode để nâng cấp bị từ chối như
+     * khi pool đầy (encode mật khẩu giả chống timing attack của DaoAuthenticationProvider thì không)
+     */
+    private record StubEncoder(boolean overloaded) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            if (overloaded && "secret".contentEquals(rawPassword)) {
+                throw new ServiceOverloadedException("quá tải", 1);
+            }
+            return "new-hash";
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return "secret".contentEquals(rawPassword) && "old-hash".equals(encodedPassword);
+        }
+
+        @Override
+        public boolean upgradeEncoding(String encodedPassword) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.domain.User;
+import com.example.demo.repository.UserServiceRepository;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Cập nhật bị từ chối (400 do roleId / permissionId không tồn tại) không được ghi gì xuống DB:
+ * IdInvalidException là checked exception, mặc định Spring vẫn commit transaction.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+class AdminUpdateRollbackTest {
+
+    private static final long MISSING_ID = 999_999_999L;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    UserServiceRepository userServiceRepository;
+
+    private String accessToken;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        accessToken = TestLogins.loginAdmin(mvc, objectMapper);
+    }
+
+    @Test
+    void unknownRoleIdLeavesUserUnchanged() throws Exception {
+        User user = new User();
+        user.setEmail("rollback-" + System.nanoTime() + "@rollback.local");
+        user.setPassword("old-hash");
+        long userId = userServiceRepository.save(user).getId();
+        Map<String, Object> before = userRow(userId);
+
+        MvcResult result = mvc.perform(put("/api/v1/users/admin/" + userId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"changed-" + System.nanoTime() + "@rollback.local\",\"password\":\"new-secret\","
+                        + "\"roleId\":" + MISSING_ID + "}"))
+                .andReturn();
+
+        assertEquals(400, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        assertEquals(before, userRow(userId));
+    }
+
+    @Test
+    void unknownPermissionIdLeavesRoleUnchanged() throws Exception {
+        String name = "ROLLBACK_" + System.nanoTime();
+        long roleId = createRole(name);
+        Map<String, Object> before = roleRow(roleId);
+
+        MvcResult result = mvc.perform(put("/api/v1/roles/" + roleId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"" + name + "_CHANGED\",\"description\":\"changed\",\"active\":false,"
+                        + "\"permissionIds\":[1," + MISSING_ID + "]}"))
+                .andReturn();
+
+        assertEquals(400, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        assertEquals(before, roleRow(roleId));
+        assertEquals(List.of(1L), jdbcTemplate.queryForList(
+                "select permission_id from permission_role where role_id = ? order by permission_id", Long.class, roleId));
+    }
+
+    private Map<String, Object> userRow(long userId) {
+        return jdbcTemplate.queryForMap(
+                "select email, password, role_id, token_version, row_version from users where id = ?", userId);
+    }
+
+    private Map<String, Object> roleRow(long roleId) {
+        return jdbcTemplate.queryForMap("select name, description, active from roles where id = ?", roleId);
+    }
+
+    private long createRole(String name) throws Exception {
+        MvcResult result = mvc.perform(post("/api/v1/roles/create")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"" + name + "\",\"description\":\"rollback\",\"permissionIds\":[1]}"))
+                .andReturn();
+        assertEquals(201, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        return objectMapper.readTree(result.getResponse().getContentAsString(StandardCharsets.UTF_8))
+                .path("data").path("id").asLong();
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.config.AuthorizationIndex;
+import com.example.demo.config.CacheInvalidationLog;
+import com.example.demo.domain.CacheInvalidation;
+import com.example.demo.domain.Permission;
+import com.example.demo.domain.User;
+import com.example.demo.repository.CacheInvalidationRepository;
+import com.example.demo.repository.PermissionRepository;
+import com.example.demo.repository.UserServiceRepository;
+import com.example.demo.service.RoleService;
+import com.example.demo.service.UserServices;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * cache_invalidation_log: thay đổi do "node khác" ghi thẳng vào DB (jdbcTemplate) chỉ được
+ * thấy sau khi có dòng log tương ứng; dòng log đi cùng transaction của thao tác ghi. Poll nền
+ * tắt trong test, lượt poll được gọi trực tiếp.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+class CacheInvalidationLogTest {
+
+    private static final String OTHER_NODE = "other-node";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    CacheInvalidationLog cacheInvalidationLog;
+
+    @Autowired
+    CacheInvalidationRepository cacheInvalidationRepository;
+
+    @Autowired
+    AuthorizationIndex authorizationIndex;
+
+    @Autowired
+    PermissionRepository permissionRepository;
+
+    @Autowired
+    UserServiceRepository userServiceRepository;
+
+    @Autowired
+    RoleService roleService;
+
+    @Autowired
+    UserServices userServices;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private String accessToken;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        accessToken = TestLogins.loginAdmin(mvc, objectMapper);
+    }
+
+    @Test
+    void roleChangedOnAnotherNodeRefreshesIndexAndSecondLevelCache() throws Exception {
+        long roleId = createRole();
+        Permission extra = permissionRepository.findById(2L).orElseThrow();
+        assertFalse(authorizationIndex.isAllowed(roleId, extra.getMethod(), extra.getApiPath(), extra.getApiPath()));
+        assertEquals(List.of(1L), permissionIdsOf(roleId));
+
+        // node khác sửa permission_role rồi ghi log; node này chưa biết gì cho tới khi poll
+        jdbcTemplate.update("insert into permission_role (role_id, permission_id) values (?, ?)", roleId, extra.getId());
+        assertEquals(List.of(1L), permissionIdsOf(roleId));
+        double appliedBefore = meterRegistry.get("cache.invalidation.applied").tag("target", "role").counter().count();
+        remoteRow(CacheInvalidation.Target.ROLE, roleId);
+
+        cacheInvalidationLog.pollSafely();
+        assertTrue(authorizationIndex.isAllowed(roleId, extra.getMethod(), extra.getApiPath(), extra.getApiPath()));
+        assertEquals(List.of(1L, 2L), permissionIdsOf(roleId));
+        assertTrue(meterRegistry.get("cache.invalidation.applied").tag("target", "role").counter().count() > appliedBefore);
+        assertTrue(meterRegistry.get("cache.invalidation.lag").tag("target", "role").timer().count() > 0);
+    }
+
+    @Test
+    void userBlockedOnAnotherNodeEvictsPrincipal() throws Exception {
+        User user = new User();
+        user.setEmail("invalidation-" + System.nanoTime() + "@cache.local");
+        user.setFirstName("Cache");
+        user.setLastName("Invalidation");
+        long userId = userServiceRepository.save(user).getId();
+        assertFalse(userServices.handleGetPrincipalByUsername(user.getEmail()).isBlocked());
+
+        jdbcTemplate.update("update users set is_blocked = true where id = ?", userId);
+        assertFalse(userServices.handleGetPrincipalByUsername(user.getEmail()).isBlocked());
+        remoteRow(CacheInvalidation.Target.PRINCIPAL, userId);
+
+        cacheInvalidationLog.pollSafely();
+        assertTrue(userServices.handleGetPrincipalByUsername(user.getEmail()).isBlocked());
+    }
+
+    @Test
+    void logRowIsWrittenInTheSameTransactionAsTheChange() throws Exception {
+        User user = new User();
+        user.setEmail("invalidation-tx-" + System.nanoTime() + "@cache.local");
+        long userId = userServiceRepository.save(user).getId();
+
+        MvcResult result = mvc.perform(put("/api/v1/users/changeActivity/" + userId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andReturn();
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        assertTrue(cacheInvalidationRepository.findAll().stream()
+                .anyMatch(row -> row.getTarget() == CacheInvalidation.Target.PRINCIPAL && row.getTargetId() == userId));
+
+        long rolledBackId = -System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            cacheInvalidationLog.publish(CacheInvalidation.Target.ROLE, rolledBackId);
+            status.setRollbackOnly();
+        });
+        assertTrue(cacheInvalidationRepository.findAll().stream()
+                .noneMatch(row -> row.getTargetId() == rolledBackId));
+    }
+
+    private void remoteRow(CacheInvalidation.Target target, long targetId) {
+        CacheInvalidation row = new CacheInvalidation();
+        row.setTarget(target);
+        row.setTargetId(targetId);
+        row.setOrigin(OTHER_NODE);
+        cacheInvalidationRepository.save(row);
+    }
+
+    private List<Long> permissionIdsOf(long roleId) {
+        return transactionTemplate.execute(status -> roleService.fetchById(roleId).getPermissions().stream()
+                .map(Permission::getId)
+                .sorted()
+                .toList());
+    }
+
+    private long createRole() throws Exception {
+        MvcResult result = mvc.perform(post("/api/v1/roles/create")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"INVALIDATION_" + System.nanoTime() + "\",\"description\":\"cache\",\"permissionIds\":[1]}"))
+                .andReturn();
+        assertEquals(201, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        return objectMapper.readTree(result.getResponse().getContentAsString(StandardCharsets.UTF_8))
+                .path("data").path("id").asLong();
+    }
+}
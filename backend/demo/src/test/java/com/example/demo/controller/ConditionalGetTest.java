@@ -0,0 +1,208 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.config.CacheInvalidationLog;
+import com.example.demo.config.CatalogVersion;
+import com.example.demo.domain.CacheInvalidation;
+import com.example.demo.domain.User;
+import com.example.demo.repository.CacheInvalidationRepository;
+import com.example.demo.repository.UserServiceRepository;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * ETag + If-None-Match: khớp version thì 304 không body, dữ liệu đổi thì ETag cũ nhận lại 200.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+        "app.etag.catalog.enabled=true"
+})
+class ConditionalGetTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    CatalogVersion catalogVersion;
+
+    @Autowired
+    CacheInvalidationLog cacheInvalidationLog;
+
+    @Autowired
+    CacheInvalidationRepository cacheInvalidationRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    UserServiceRepository userServiceRepository;
+
+    @Autowired
+    PasswordEncoder passwordEncoder;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        token = TestLogins.loginAdmin(mvc, objectMapper);
+        awaitCatalogVersion();
+    }
+
+    @Test
+    void listingsAnswerNotModifiedForCurrentETag() throws Exception {
+        for (String path : new String[] { "/api/v1/roles/fetch-all", "/api/v1/permissions/fetch-all" }) {
+            MvcResult first = perform(path, null);
+            assertEquals(200, first.getResponse().getStatus(), first.getResponse().getContentAsString());
+            String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+            assertNotNull(etag, path);
+            String cacheControl = first.getResponse().getHeader(HttpHeaders.CACHE_CONTROL);
+            assertTrue(cacheControl.contains("no-cache") && cacheControl.contains("private"), cacheControl);
+
+            MvcResult second = perform(path, etag);
+            assertEquals(304, second.getResponse().getStatus());
+            assertEquals("", second.getResponse().getContentAsString());
+            assertEquals(etag, second.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+    }
+
+    @Test
+    void roleChangeInvalidatesListingETag() throws Exception {
+        String etag = perform("/api/v1/roles/fetch-all", null).getResponse().getHeader(HttpHeaders.ETAG);
+
+        long permissionId = objectMapper.readTree(perform("/api/v1/permissions/fetch-all", null)
+                .getResponse().getContentAsString()).path("data").path("result").path(0).path("id").asLong();
+        MvcResult created = mvc.perform(post("/api/v1/roles/create")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"ETAG_" + System.nanoTime() + "\",\"description\":\"etag\",\"permissionIds\":["
+                        + permissionId + "]}"))
+                .andReturn();
+        assertEquals(201, created.getResponse().getStatus(), created.getResponse().getContentAsString());
+
+        // ETag cũ không còn khớp ngay sau commit (lúc chưa tính xong version thì không có ETag)
+        MvcResult stale = perform("/api/v1/roles/fetch-all", etag);
+        assertEquals(200, stale.getResponse().getStatus());
+
+        awaitCatalogVersion();
+        String fresh = perform("/api/v1/roles/fetch-all", null).getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(fresh);
+        assertNotEquals(etag, fresh);
+    }
+
+    @Test
+    void offsettingPermissionChangesDoNotRestoreOldETag() throws Exception {
+        JsonNode permissions = objectMapper.readTree(perform("/api/v1/permissions/fetch-all", null)
+                .getResponse().getContentAsString()).path("data").path("result");
+        long first = permissions.path(0).path("id").asLong();
+        long second = permissions.path(1).path("id").asLong();
+        long roleA = createRole(first);
+        long roleB = createRole(second);
+        awaitCatalogVersion();
+        String etag = perform("/api/v1/roles/fetch-all", null).getResponse().getHeader(HttpHeaders.ETAG);
+
+        // node khác đổi thẳng permission_role (không qua flush Role nên updatedAt giữ nguyên) rồi ghi
+        // log. A: first -> second, B: second -> first: số dòng và checksum permission_role như cũ
+        jdbcTemplate.update("update permission_role set permission_id = ? where role_id = ?", second, roleA);
+        jdbcTemplate.update("update permission_role set permission_id = ? where role_id = ?", first, roleB);
+        remoteRoleRow(roleA);
+        remoteRoleRow(roleB);
+        cacheInvalidationLog.pollSafely();
+        awaitCatalogVersion();
+
+        MvcResult result = perform("/api/v1/roles/fetch-all", etag);
+        assertEquals(200, result.getResponse().getStatus());
+        assertNotEquals(etag, result.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void userETagFollowsRowVersion() throws Exception {
+        User user = createUser();
+        String path = "/api/v1/users/" + user.getId();
+
+        MvcResult first = perform(path, null);
+        assertEquals(200, first.getResponse().getStatus(), first.getResponse().getContentAsString());
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        assertEquals(304, perform(path, etag).getResponse().getStatus());
+
+        MvcResult blocked = mvc.perform(put("/api/v1/users/changeActivity/" + user.getId())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn();
+        assertEquals(200, blocked.getResponse().getStatus(), blocked.getResponse().getContentAsString());
+
+        MvcResult changed = perform(path, etag);
+        assertEquals(200, changed.getResponse().getStatus());
+        assertNotEquals(etag, changed.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    private MvcResult perform(String path, String ifNoneMatch) throws Exception {
+        var request = get(path).header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return mvc.perform(request).andReturn();
+    }
+
+    private long createRole(long permissionId) throws Exception {
+        MvcResult created = mvc.perform(post("/api/v1/roles/create")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"ETAG_" + System.nanoTime() + "\",\"description\":\"etag\",\"permissionIds\":["
+                        + permissionId + "]}"))
+                .andReturn();
+        assertEquals(201, created.getResponse().getStatus(), created.getResponse().getContentAsString());
+        return objectMapper.readTree(created.getResponse().getContentAsString()).path("data").path("id").asLong();
+    }
+
+    private void remoteRoleRow(long roleId) {
+        CacheInvalidation row = new CacheInvalidation();
+        row.setTarget(CacheInvalidation.Target.ROLE);
+        row.setTargetId(roleId);
+        row.setOrigin("other-node");
+        cacheInvalidationRepository.save(row);
+    }
+
+    private void awaitCatalogVersion() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (catalogVersion.current().isEmpty()) {
+            assertTrue(System.currentTimeMillis() < deadline, "catalog version chưa tính xong");
+            Thread.sleep(10);
+        }
+    }
+
+    private User createUser() {
+        User user = new User();
+        user.setEmail("etag-" + System.nanoTime() + "@etag.local");
+        user.setPassword(passwordEncoder.encode("123456"));
+        user.setFirstName("Conditional");
+        user.setLastName("Get");
+        return userServiceRepository.save(user);
+    }
+}
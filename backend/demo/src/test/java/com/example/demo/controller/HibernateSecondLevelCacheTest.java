@@ -0,0 +1,181 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.config.HibernateCacheConfiguration;
+import com.example.demo.domain.Permission;
+import com.example.demo.domain.Role;
+import com.example.demo.service.PermissionService;
+import com.example.demo.service.RoleService;
+import com.example.demo.support.SqlRecorder;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Second-level cache cho Role, Permission và Role.permissions: đọc lại không chạm DB, xóa
+ * permission (native delete trên permission_role) và sửa role không để lại collection cũ.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+class HibernateSecondLevelCacheTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    RoleService roleService;
+
+    @Autowired
+    PermissionService permissionService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    private SessionFactory sessionFactory;
+    private Statistics statistics;
+    private String accessToken;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        statistics = sessionFactory.getStatistics();
+        accessToken = TestLogins.loginAdmin(mvc, objectMapper);
+    }
+
+    @Test
+    void rereadingRoleAndPermissionsHitsCacheOnly() throws Exception {
+        long roleId = createRole(List.of(1L, 2L));
+        assertEquals(List.of(1L, 2L), permissionIdsOf(roleId));
+
+        statistics.clear();
+        // Statistics đếm cả thread nền (poller, CatalogVersion): chỉ tính câu SQL của thread này
+        List<String> statements = SqlRecorder.record(() -> assertEquals(List.of(1L, 2L), permissionIdsOf(roleId)));
+
+        assertEquals(List.of(), statements);
+        assertTrue(statistics.getCacheRegionStatistics(HibernateCacheConfiguration.ROLES).getHitCount() > 0);
+        assertTrue(statistics.getCacheRegionStatistics(HibernateCacheConfiguration.ROLE_PERMISSIONS).getHitCount() > 0);
+        assertTrue(statistics.getCacheRegionStatistics(HibernateCacheConfiguration.PERMISSIONS).getHitCount() > 0);
+    }
+
+    @Test
+    void deletingPermissionEvictsCachedRolePermissions() throws Exception {
+        long permissionId = createPermission();
+        long roleId = createRole(List.of(1L, permissionId));
+        assertEquals(List.of(1L, permissionId), permissionIdsOf(roleId));
+        assertTrue(sessionFactory.getCache().containsCollection(
+                Role.class.getName() + ".permissions", roleId));
+
+        MvcResult result = perform(delete("/api/v1/permissions/" + permissionId));
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+
+        // collection Role.permissions bị evict, entity Role vẫn nằm trong cache
+        assertFalse(sessionFactory.getCache().containsCollection(Role.class.getName() + ".permissions", roleId));
+        assertEquals(null, permissionService.fetchById(permissionId));
+        assertTrue(sessionFactory.getCache().containsEntity(Role.class, roleId));
+        assertEquals(List.of(1L), permissionIdsOf(roleId));
+
+        // danh sách role cũng không còn trả permission đã xóa
+        JsonNode roles = data(perform(get("/api/v1/roles/fetch-all").param("size", "100")));
+        for (JsonNode role : roles.path("result")) {
+            for (JsonNode permission : role.path("permissions")) {
+                assertTrue(permission.path("id").asLong() != permissionId, role.toString());
+            }
+        }
+    }
+
+    @Test
+    void updatingRoleReplacesCachedPermissions() throws Exception {
+        long roleId = createRole(List.of(1L, 2L));
+        assertEquals(List.of(1L, 2L), permissionIdsOf(roleId));
+
+        MvcResult result = perform(put("/api/v1/roles/" + roleId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"L2_UPDATED_" + roleId + "\",\"description\":\"sửa\",\"permissionIds\":[3]}"));
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+
+        assertEquals(List.of(3L), permissionIdsOf(roleId));
+        assertEquals("L2_UPDATED_" + roleId, transactionTemplate.execute(status -> roleService.fetchById(roleId).getName()));
+    }
+
+    @Test
+    void exposesRegionStatisticsThroughActuatorToAdminOnly() throws Exception {
+        permissionIdsOf(createRole(List.of(1L)));
+        String path = "/actuator/metrics/hibernate.second.level.cache.requests";
+
+        MvcResult result = perform(get(path).param("tag", "region:" + HibernateCacheConfiguration.ROLE_PERMISSIONS));
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+
+        // không có token: 401, health vẫn mở cho Docker healthcheck
+        assertEquals(401, mvc.perform(get(path)).andReturn().getResponse().getStatus());
+        assertEquals(200, mvc.perform(get("/actuator/health")).andReturn().getResponse().getStatus());
+    }
+
+    private List<Long> permissionIdsOf(long roleId) {
+        return transactionTemplate.execute(status -> roleService.fetchById(roleId).getPermissions().stream()
+                .map(Permission::getId)
+                .sorted()
+                .toList());
+    }
+
+    private long createRole(List<Long> permissionIds) throws Exception {
+        String ids = String.join(",", permissionIds.stream().map(String::valueOf).toList());
+        MvcResult result = perform(post("/api/v1/roles/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"L2_" + System.nanoTime() + "\",\"description\":\"cache\",\"permissionIds\":[" + ids + "]}"));
+        assertEquals(201, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        return data(result).path("id").asLong();
+    }
+
+    private long createPermission() throws Exception {
+        MvcResult result = perform(post("/api/v1/permissions/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"L2 tạm\",\"apiPath\":\"/api/v1/l2/" + System.nanoTime()
+                        + "\",\"method\":\"GET\",\"module\":\"L2\"}"));
+        assertEquals(201, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        return data(result).path("id").asLong();
+    }
+
+    private MvcResult perform(MockHttpServletRequestBuilder request) throws Exception {
+        return mvc.perform(request.header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)).andReturn();
+    }
+
+    private JsonNode data(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString(StandardCharsets.UTF_8)).path("data");
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.TestSocketUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.config.CircuitBreaker;
+import com.example.demo.config.OAuthHttpClient;
+
+/**
+ * Provider gián đoạn (OAuthStubController bơm lỗi/độ trễ): breaker mở rồi tự đóng lại qua
+ * half-open, callback redirect ngay về frontend khi breaker mở, và đăng nhập bằng mật khẩu
+ * không bị chậm theo.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles({ "test", "oauth-stub" })
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+        "server.tomcat.threads.max=16",
+        "app.oauth.google.read-timeout-ms=500",
+        "app.oauth.google.max-concurrent=8",
+        "app.oauth.circuit-breaker.sliding-window-size=10",
+        "app.oauth.circuit-breaker.minimum-calls=5",
+        "app.oauth.circuit-breaker.open-duration-ms=1000",
+        "app.oauth.circuit-breaker.half-open-probes=2"
+})
+class OAuthProviderOutageTest {
+
+    private static final int PORT = TestSocketUtils.findAvailableTcpPort();
+    private static final String BASE_URL = "http://localhost:" + PORT;
+
+    @DynamicPropertySource
+    static void stubProvider(DynamicPropertyRegistry registry) {
+        String base = BASE_URL + "/oauth-stub";
+        registry.add("server.port", () -> PORT);
+        registry.add("gg-token-uri", () -> base + "/google/token");
+        registry.add("gg-user-info-uri", () -> base + "/google/userinfo");
+        registry.add("fb-token-uri", () -> base + "/facebook/token");
+        registry.add("fb-user-info-uri", () -> base + "/facebook/me?fields=id,name,email,picture.type(large)");
+    }
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    OAuthStubController stub;
+
+    @Autowired
+    @Qualifier("facebookOAuthClient")
+    OAuthHttpClient facebookOAuthClient;
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @AfterEach
+    void clearFaults() {
+        stub.clearFaults();
+    }
+
+    @Test
+    void breakerOpensOnFailuresRedirectsToFrontendAndClosesAfterProbes() throws Exception {
+        CircuitBreaker breaker = facebookOAuthClient.getCircuitBreaker();
+        stub.setFaults(0, 1.0);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(502, callback("facebook", "carol").getResponse().getStatus());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // breaker mở: không gọi provider, redirect ngay về frontend kèm lỗi
+        long start = System.nanoTime();
+        MvcResult fastFail = callback("facebook", "carol");
+        assertEquals(302, fastFail.getResponse().getStatus());
+        assertTrue(fastFail.getResponse().getHeader(HttpHeaders.LOCATION)
+                .startsWith("http://localhost:3001/login?error="));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 200);
+
+        MvcResult login = mvc.perform(get("/api/v1/auth/social/login").param("login_type", "facebook")).andReturn();
+        assertTrue(login.getResponse().getHeader(HttpHeaders.LOCATION).startsWith("http://localhost:3001/login?error="));
+
+        // provider hồi phục: hết open-duration thì 2 lời gọi thăm dò thành công đóng breaker
+        stub.clearFaults();
+        Thread.sleep(1100);
+        MvcResult probe = callback("facebook", "carol");
+        assertEquals(302, probe.getResponse().getStatus());
+        assertTrue(probe.getResponse().getHeader(HttpHeaders.LOCATION).contains("success=true"));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void passwordLoginLatencyStaysFlatDuringProviderOutage() throws Exception {
+        long[] baseline = passwordLogins(20);
+
+        // Google treo 3s (> read timeout 500ms), 100 callback đồng thời, Tomcat chỉ có 16 thread
+        stub.setFaults(3000, 0);
+        List<CompletableFuture<HttpResponse<Void>>> callbacks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create(BASE_URL + "/api/v1/auth/social/callback?login_type=google&code=user" + i))
+                    .timeout(Duration.ofSeconds(10))
+                    .build();
+            callbacks.add(http.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        long[] duringOutage = passwordLogins(20);
+
+        for (CompletableFuture<HttpResponse<Void>> callback : callbacks) {
+            int status = callback.get(15, TimeUnit.SECONDS).statusCode();
+            // 502: hết read timeout; 302: bị bulkhead/breaker từ chối, redirect về frontend
+            assertTrue(status == 502 || status == 302, "status " + status);
+        }
+
+        long baselineMedian = baseline[baseline.length / 2];
+        long outageMedian = duringOutage[duringOutage.length / 2];
+        long outageMax = duringOutage[duringOutage.length - 1];
+        assertTrue(outageMedian < baselineMedian + 200,
+                "median " + outageMedian + "ms, baseline " + baselineMedian + "ms");
+        assertTrue(outageMax < 1000, "max " + outageMax + "ms");
+    }
+
+    /**
+     * Đăng nhập tuần tự qua HTTP thật, trả về độ trễ (ms) đã sắp xếp
+     */
+    private long[] passwordLogins(int count) throws Exception {
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(BASE_URL + "/api/v1/auth/login"))
+                    .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"admin@gmail.com\",\"password\":\"123456\"}"))
+                    .timeout(Duration.ofSeconds(10))
+                    .build();
+            long start = System.nanoTime();
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            latencies[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertEquals(200, response.statusCode());
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private MvcResult callback(String loginType, String code) throws Exception {
+        MvcResult started = mvc.perform(get("/api/v1/auth/social/callback")
+                .param("login_type", loginType)
+                .param("code", code))
+                .andReturn();
+        return started.getRequest().isAsyncStarted() ? mvc.perform(asyncDispatch(started)).andReturn() : started;
+    }
+}
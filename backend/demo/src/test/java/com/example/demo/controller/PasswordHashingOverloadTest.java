@@ -0,0 +1,142 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.config.BoundedPasswordEncoder;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Pool băm mật khẩu 1 thread, không hàng đợi: khi thread đó bận thì đăng nhập trả 503 +
+ * Retry-After ngay, các endpoint không băm mật khẩu vẫn trả lời bình thường.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+        "app.security.password-hashing.threads=1",
+        "app.security.password-hashing.queue-capacity=0",
+        "app.security.password-hashing.wait-timeout-ms=200",
+        "app.security.password-hashing.retry-after-seconds=3"
+})
+class PasswordHashingOverloadTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    PasswordEncoder passwordEncoder;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void loginFailsFastWhenHashingPoolIsFull() throws Exception {
+        assertTrue(passwordEncoder instanceof BoundedPasswordEncoder);
+        String token = TestLogins.loginAdmin(mvc, objectMapper);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // người gọi hết wait-timeout thì bỏ cuộc, còn thread băm vẫn bận tới khi release
+        CompletableFuture<Void> blocker = CompletableFuture.runAsync(() -> {
+            try {
+                passwordEncoder.encode(new BlockingPassword(started, release));
+            } catch (RuntimeException expected) {
+                // ServiceOverloadedException sau wait-timeout
+            }
+        });
+        try {
+            assertTrue(started.await(5, TimeUnit.SECONDS), "thread băm chưa nhận việc");
+            double rejected = meterRegistry.get("auth.password.hashing.rejected").counter().count();
+
+            long begin = System.nanoTime();
+            MvcResult login = mvc.perform(post("/api/v1/auth/login")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"email\":\"" + TestLogins.ADMIN_EMAIL + "\",\"password\":\""
+                            + TestLogins.ADMIN_PASSWORD + "\"}"))
+                    .andReturn();
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+            assertEquals(503, login.getResponse().getStatus(), login.getResponse().getContentAsString());
+            assertEquals("3", login.getResponse().getHeader(HttpHeaders.RETRY_AFTER));
+            assertTrue(elapsedMillis < 2_000, "phải từ chối ngay, mất " + elapsedMillis + "ms");
+            assertTrue(meterRegistry.get("auth.password.hashing.rejected").counter().count() > rejected);
+
+            assertEquals(200, mvc.perform(get("/actuator/health")).andReturn().getResponse().getStatus());
+            MvcResult users = mvc.perform(get("/api/v1/users/fetch-all")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                    .andReturn();
+            assertEquals(200, users.getResponse().getStatus(), users.getResponse().getContentAsString());
+        } finally {
+            release.countDown();
+            blocker.get(5, TimeUnit.SECONDS);
+        }
+
+        // thread băm rảnh lại thì đăng nhập bình thường
+        TestLogins.loginAdmin(mvc, objectMapper);
+    }
+
+    /**
+     * BCrypt đọc mật khẩu qua toString() trên thread của pool: giữ thread đó tới khi release
+     * (bỏ qua interrupt khi người gọi hết thời gian chờ và cancel)
+     */
+    private record BlockingPassword(CountDownLatch started, CountDownLatch release) implements CharSequence {
+
+        @Override
+        public String toString() {
+            started.countDown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return "blocked";
+        }
+
+        @Override
+        public int length() {
+            return toString().length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return toString().charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+    }
+}
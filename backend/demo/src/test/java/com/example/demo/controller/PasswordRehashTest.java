@@ -0,0 +1,100 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.domain.User;
+import com.example.demo.repository.UserServiceRepository;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Cost hiện tại 5: đăng nhập đúng với hash cost 4 (có hoặc chưa có prefix {bcrypt}) thì hash
+ * được băm lại với {bcrypt} cost 5 và vẫn đăng nhập được bằng mật khẩu cũ.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+        "app.security.password-hashing.bcrypt.strength=5"
+})
+class PasswordRehashTest {
+
+    private static final String PASSWORD = "rehash-secret";
+    private static final String UPGRADED_PREFIX = "{bcrypt}$2a$05$";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    UserServiceRepository userServiceRepository;
+
+    @Autowired
+    PasswordEncoder passwordEncoder;
+
+    private final BCryptPasswordEncoder weak = new BCryptPasswordEncoder(4);
+
+    @Test
+    void lowCostHashIsUpgradedOnLogin() throws Exception {
+        assertUpgradedOnLogin("{bcrypt}" + weak.encode(PASSWORD));
+    }
+
+    @Test
+    void legacyHashWithoutPrefixIsUpgradedOnLogin() throws Exception {
+        assertUpgradedOnLogin(weak.encode(PASSWORD));
+    }
+
+    @Test
+    void currentHashIsLeftAlone() throws Exception {
+        User user = createUser(passwordEncoder.encode(PASSWORD));
+        String before = user.getPassword();
+        assertTrue(before.startsWith(UPGRADED_PREFIX), before);
+
+        TestLogins.login(mvc, objectMapper, user.getEmail(), PASSWORD);
+
+        assertTrue(before.equals(reload(user).getPassword()));
+    }
+
+    private void assertUpgradedOnLogin(String storedHash) throws Exception {
+        User user = createUser(storedHash);
+        assertTrue(passwordEncoder.upgradeEncoding(storedHash));
+
+        TestLogins.login(mvc, objectMapper, user.getEmail(), PASSWORD);
+
+        String upgraded = reload(user).getPassword();
+        assertNotEquals(storedHash, upgraded);
+        assertTrue(upgraded.startsWith(UPGRADED_PREFIX), upgraded);
+        assertTrue(passwordEncoder.matches(PASSWORD, upgraded));
+        assertFalse(passwordEncoder.upgradeEncoding(upgraded));
+        // hash mới được dùng cho lần đăng nhập sau
+        TestLogins.login(mvc, objectMapper, user.getEmail(), PASSWORD);
+        assertTrue(upgraded.equals(reload(user).getPassword()));
+    }
+
+    private User createUser(String hash) {
+        User user = new User();
+        user.setEmail("rehash-" + System.nanoTime() + "@rehash.local");
+        user.setPassword(hash);
+        user.setFirstName("Rehash");
+        user.setLastName("Login");
+        return userServiceRepository.save(user);
+    }
+
+    private User reload(User user) {
+        return userServiceRepository.findById(user.getId()).orElseThrow();
+    }
+}
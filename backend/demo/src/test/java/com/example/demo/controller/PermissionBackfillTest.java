@@ -0,0 +1,54 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.example.demo.config.DatabaseInitializer;
+
+/**
+ * DB đã có dữ liệu (không seed lại danh sách đầy đủ) nhưng thiếu permission của endpoint mới:
+ * DatabaseInitializer thêm permission đó, gán cho SUPER_ADMIN, chạy lại không tạo trùng.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+class PermissionBackfillTest {
+
+    private static final String IMPORT_PATH = "/api/v1/users/import";
+
+    @Autowired
+    DatabaseInitializer databaseInitializer;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void missingEndpointPermissionIsAddedAndGrantedToAdmin() throws Exception {
+        // giống DB được tạo trước khi có endpoint import
+        jdbcTemplate.update("delete from permission_role where permission_id in "
+                + "(select id from permissions where api_path = ? and method = 'POST')", IMPORT_PATH);
+        jdbcTemplate.update("delete from permissions where api_path = ? and method = 'POST'", IMPORT_PATH);
+        assertEquals(0, importPermissionCount());
+
+        databaseInitializer.run();
+        databaseInitializer.run();
+
+        assertEquals(1, importPermissionCount());
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from permission_role pr "
+                + "join permissions p on p.id = pr.permission_id join roles r on r.id = pr.role_id "
+                + "where r.name = 'SUPER_ADMIN' and p.api_path = ? and p.method = 'POST'", Integer.class, IMPORT_PATH));
+    }
+
+    private int importPermissionCount() {
+        return jdbcTemplate.queryForObject("select count(*) from permissions where api_path = ? and method = 'POST'",
+                Integer.class, IMPORT_PATH);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Các case của PermissionInterceptorTest với app.security.permission-claims.enabled=true:
+ * quyết định từ claim perm_bits của token, catalog đổi (perm_ver lệch) thì tra lại theo role.
+ */
+@TestPropertySource(properties = "app.security.permission-claims.enabled=true")
+class PermissionClaimsInterceptorTest extends PermissionInterceptorTest {
+
+    @Test
+    void staleClaimsFallBackToCurrentRolePermissions() throws Exception {
+        long fetchAll = permissionId("GET", "/api/v1/users/fetch-all");
+        MvcResult updated = perform(put("/api/v1/roles/" + readerRoleId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"READER_" + readerRoleId + "\",\"description\":\"chỉ xem danh sách\","
+                        + "\"permissionIds\":[" + fetchAll + "]}"), adminToken);
+        assertEquals(200, updated.getResponse().getStatus(), updated.getResponse().getContentAsString());
+
+        // token cũ vẫn mang bitset GET /users/{id}, nhưng role hiện tại không còn quyền đó
+        assertEquals(403, perform(get("/api/v1/users/" + adminId), readerToken).getResponse().getStatus());
+        assertEquals(200, perform(get("/api/v1/users/fetch-all"), readerToken).getResponse().getStatus());
+    }
+}
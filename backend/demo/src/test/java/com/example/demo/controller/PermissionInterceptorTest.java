@@ -0,0 +1,186 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.util.Base64;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.demo.config.AuthorizationIndex;
+import com.example.demo.domain.Permission;
+import com.example.demo.domain.Role;
+import com.example.demo.domain.User;
+import com.example.demo.repository.PermissionRepository;
+import com.example.demo.repository.RoleRepository;
+import com.example.demo.repository.UserServiceRepository;
+import com.example.demo.support.TestLogins;
+import com.example.demo.util.SecurityUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * PermissionInterceptor với user không phải admin: role chỉ có GET /api/v1/users/{id}.
+ * Route được cấp -> 200; route khác, method khác trên cùng pattern, pattern literal chồng lên
+ * {id} (/users/export) và user chưa có role -> 403.
+ *
+ * Chạy ở chế độ mặc định (tra role trong AuthorizationIndex, principal từ PrincipalCache);
+ * PermissionClaimsInterceptorTest chạy lại cùng các case với quyền lấy từ claim của token.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+class PermissionInterceptorTest {
+
+    protected static final String PASSWORD = "123456";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    PermissionRepository permissionRepository;
+
+    @Autowired
+    RoleRepository roleRepository;
+
+    @Autowired
+    UserServiceRepository userServiceRepository;
+
+    @Autowired
+    PasswordEncoder passwordEncoder;
+
+    @Autowired
+    AuthorizationIndex authorizationIndex;
+
+    @Value("${app.security.permission-claims.enabled:false}")
+    boolean permissionClaimsEnabled;
+
+    protected String adminToken;
+    protected String readerToken;
+    protected long adminId;
+    protected long readerRoleId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        adminToken = TestLogins.loginAdmin(mvc, objectMapper);
+        adminId = userServiceRepository.findByEmail(TestLogins.ADMIN_EMAIL).getId();
+
+        readerRoleId = createRole(permissionId("GET", "/api/v1/users/{id}"));
+        User reader = createUser(roleRepository.findById(readerRoleId).orElseThrow());
+        readerToken = TestLogins.login(mvc, objectMapper, reader.getEmail(), PASSWORD);
+    }
+
+    @Test
+    void grantedIdRouteIsAllowed() throws Exception {
+        MvcResult result = perform(get("/api/v1/users/" + adminId), readerToken);
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void ungrantedRoutesAreForbidden() throws Exception {
+        assertEquals(403, perform(get("/api/v1/users/fetch-all"), readerToken).getResponse().getStatus());
+        assertEquals(403, perform(get("/api/v1/roles/fetch-all"), readerToken).getResponse().getStatus());
+    }
+
+    @Test
+    void otherMethodOnGrantedPatternIsForbidden() throws Exception {
+        User victim = createUser(null);
+
+        assertEquals(403, perform(delete("/api/v1/users/" + victim.getId()), readerToken).getResponse().getStatus());
+        assertTrue(userServiceRepository.findById(victim.getId()).isPresent());
+    }
+
+    @Test
+    void literalPatternOverlappingIdIsForbidden() throws Exception {
+        // /users/export khớp cả /users/{id}, HandlerMapping chọn pattern literal -> không được cấp
+        assertEquals(403, perform(get("/api/v1/users/export"), readerToken).getResponse().getStatus());
+        assertEquals(200, perform(get("/api/v1/users/export"), adminToken).getResponse().getStatus());
+    }
+
+    @Test
+    void permissionWithoutRoleIsKnownRouteNotGranted() throws Exception {
+        // permission chưa gán role nào vẫn phải vào catalog: không có thì URI của nó rơi về /users/{id}
+        Permission unassigned = new Permission();
+        unassigned.setName("Thống kê user " + System.nanoTime());
+        unassigned.setApiPath("/api/v1/users/stats-" + System.nanoTime());
+        unassigned.setMethod("GET");
+        unassigned.setModule("USERS");
+        permissionRepository.save(unassigned);
+        authorizationIndex.refresh();
+
+        String uri = unassigned.getApiPath();
+        assertFalse(authorizationIndex.isAllowed(readerRoleId, "GET", null, uri));
+        assertTrue(authorizationIndex.isAllowed(readerRoleId, "GET", null, "/api/v1/users/" + adminId));
+    }
+
+    @Test
+    void permissionClaimsFollowConfiguredMode() throws Exception {
+        assertEquals(permissionClaimsEnabled, claims(readerToken).has(SecurityUtil.CLAIM_PERMISSIONS));
+    }
+
+    @Test
+    void userWithoutRoleIsForbidden() throws Exception {
+        User noRole = createUser(null);
+        String token = TestLogins.login(mvc, objectMapper, noRole.getEmail(), PASSWORD);
+
+        assertEquals(403, perform(get("/api/v1/users/" + adminId), token).getResponse().getStatus());
+    }
+
+    protected MvcResult perform(MockHttpServletRequestBuilder request, String token) throws Exception {
+        return mvc.perform(request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)).andReturn();
+    }
+
+    protected JsonNode claims(String token) throws Exception {
+        String payload = token.split("\\.")[1];
+        return objectMapper.readTree(Base64.getUrlDecoder().decode(payload));
+    }
+
+    protected long permissionId(String method, String apiPath) {
+        return permissionRepository.findAll().stream()
+                .filter(p -> method.equals(p.getMethod()) && apiPath.equals(p.getApiPath()))
+                .map(Permission::getId)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    // tạo qua API để AuthorizationIndex được refresh như khi chạy thật
+    private long createRole(long permissionId) throws Exception {
+        MvcResult result = perform(post("/api/v1/roles/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"READER_" + System.nanoTime() + "\",\"description\":\"chỉ xem user\","
+                        + "\"permissionIds\":[" + permissionId + "]}"), adminToken);
+        assertEquals(201, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        return objectMapper.readTree(result.getResponse().getContentAsString()).path("data").path("id").asLong();
+    }
+
+    private User createUser(Role role) {
+        User user = new User();
+        user.setEmail("perm-" + System.nanoTime() + "@permission.local");
+        user.setPassword(passwordEncoder.encode(PASSWORD));
+        user.setFirstName("Permission");
+        user.setLastName("Check");
+        user.setRole(role);
+        return userServiceRepository.save(user);
+    }
+}
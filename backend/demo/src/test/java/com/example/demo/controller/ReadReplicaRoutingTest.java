@@ -0,0 +1,196 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.config.CatalogVersion;
+import com.example.demo.domain.Role;
+import com.example.demo.repository.RoleRepository;
+import com.example.demo.service.RoleService;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Read replica với 2 database H2 riêng: replica là bản chụp của primary (không tự đồng bộ) nên
+ * đọc được từ đâu thì thấy ngay qua dữ liệu. Đọc chỉ-đọc đi replica, ghi đi primary, và ngay
+ * sau khi user ghi thì đọc của user đó vẫn đi primary trong cửa sổ read-your-writes. Bản cũ
+ * nạp từ replica vào cache L2 bị evict lại trước khi catalog có ETag mới.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+        "app.datasource.replica.urls=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "app.datasource.replica.username=sa",
+        "app.datasource.replica.read-your-writes-ms=" + ReadReplicaRoutingTest.WINDOW_MS,
+        "app.etag.catalog.enabled=true"
+})
+class ReadReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;MODE=MySQL";
+    static final long WINDOW_MS = 1500;
+    private static final String ROLE = "REPLICA_RYW";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    RoleService roleService;
+
+    @Autowired
+    RoleRepository roleRepository;
+
+    @Autowired
+    CatalogVersion catalogVersion;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void routesReadOnlyToReplicaAndKeepsReadYourWrites() throws Exception {
+        String token = TestLogins.loginAdmin(mvc, objectMapper);
+        snapshotPrimaryIntoReplica();
+        Thread.sleep(WINDOW_MS + 200); // login vừa ghi refresh token
+
+        double replicaReads = routed("replica", "read-only");
+        assertFalse(roleNames(token).contains(ROLE));
+        assertTrue(routed("replica", "read-only") > replicaReads);
+        assertTrue(meterRegistry.get("hikaricp.connections.acquire").tag("pool", "replica-0").timer().count() > 0);
+
+        MvcResult created = mvc.perform(post("/api/v1/roles/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"" + ROLE + "\",\"description\":\"test\",\"permissionIds\":[1]}")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn();
+        assertEquals(201, created.getResponse().getStatus(), created.getResponse().getContentAsString());
+        // ghi vào primary, replica (bản chụp) không có
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from roles where name = ?", Integer.class, ROLE));
+
+        double sticky = routed("primary", "read-your-writes");
+        assertTrue(roleNames(token).contains(ROLE), "ngay sau khi ghi phải đọc từ primary");
+        assertTrue(routed("primary", "read-your-writes") > sticky);
+
+        Thread.sleep(WINDOW_MS + 200);
+        assertFalse(roleNames(token).contains(ROLE), "hết cửa sổ read-your-writes thì đọc lại từ replica");
+    }
+
+    @Test
+    void staleReplicaRowsAreEvictedFromSecondLevelCacheBeforeNewETag() throws Exception {
+        String token = TestLogins.loginAdmin(mvc, objectMapper);
+        MvcResult created = mvc.perform(post("/api/v1/roles/create")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"REPLICA_L2_" + System.nanoTime() + "\",\"description\":\"cũ\",\"permissionIds\":[1]}")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn();
+        assertEquals(201, created.getResponse().getStatus(), created.getResponse().getContentAsString());
+        JsonNode role = objectMapper.readTree(created.getResponse().getContentAsString(StandardCharsets.UTF_8))
+                .path("data");
+        long roleId = role.path("id").asLong();
+        snapshotPrimaryIntoReplica();
+        awaitCatalogVersion();
+
+        MvcResult updated = mvc.perform(put("/api/v1/roles/" + roleId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"" + role.path("name").asText() + "\",\"description\":\"mới\",\"permissionIds\":[1,2]}")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn();
+        assertEquals(200, updated.getResponse().getStatus(), updated.getResponse().getContentAsString());
+
+        // transaction chỉ đọc không có user đi replica (bản chụp chưa có thay đổi) và nạp bản cũ vào cache L2
+        double replicaReads = routed("replica", "read-only");
+        roleService.getRoles(null, PageRequest.of(0, 1000));
+        assertTrue(routed("replica", "read-only") > replicaReads);
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        assertTrue(cache.containsEntity(Role.class, roleId));
+        assertEquals("cũ", roleRepository.findById(roleId).orElseThrow().getDescription(),
+                "findById đi primary nhưng trúng bản cũ trong cache");
+        assertTrue(catalogVersion.current().isEmpty(), "chưa được trả ETag khi cache còn bản cũ");
+
+        // replica theo kịp trong read-your-writes-ms
+        snapshotPrimaryIntoReplica();
+        awaitCatalogVersion();
+        assertFalse(cache.containsEntity(Role.class, roleId));
+        assertFalse(cache.containsCollection(Role.class.getName() + ".permissions", roleId));
+        assertEquals("mới", roleRepository.findById(roleId).orElseThrow().getDescription());
+    }
+
+    private void awaitCatalogVersion() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WINDOW_MS + 5_000;
+        while (catalogVersion.current().isEmpty()) {
+            assertTrue(System.currentTimeMillis() < deadline, "catalog version chưa tính xong");
+            Thread.sleep(10);
+        }
+    }
+
+    private List<String> roleNames(String token) throws Exception {
+        MvcResult result = mvc.perform(get("/api/v1/roles/fetch-all")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn();
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        List<String> names = new ArrayList<>();
+        for (JsonNode role : objectMapper.readTree(result.getResponse().getContentAsString(StandardCharsets.UTF_8))
+                .path("data").path("result")) {
+            names.add(role.path("name").asText());
+        }
+        return names;
+    }
+
+    private double routed(String route, String reason) {
+        return meterRegistry.get("datasource.routing").tag("route", route).tag("reason", reason).counter().count();
+    }
+
+    /**
+     * "Replication" một lần: SCRIPT của primary chạy lại trên database replica
+     */
+    private void snapshotPrimaryIntoReplica() throws Exception {
+        List<String> script = jdbcTemplate.queryForList("SCRIPT NOPASSWORDS NOSETTINGS", String.class);
+        try (Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+                Statement statement = replica.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            for (String sql : script) {
+                if (!sql.startsWith("CREATE USER")) {
+                    statement.execute(sql);
+                }
+            }
+        }
+    }
+}
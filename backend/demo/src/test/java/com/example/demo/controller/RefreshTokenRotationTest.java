@@ -0,0 +1,190 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.domain.RefreshToken;
+import com.example.demo.repository.RefreshTokenRepository;
+import com.example.demo.service.RefreshTokenService;
+import com.example.demo.support.TestLogins;
+import com.example.demo.util.TokenDigest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+
+/**
+ * Nhiều tab cùng gọi /auth/refresh với một refresh token: mỗi generation chỉ được
+ * rotate đúng 1 lần và mọi request đều nhận cùng cặp token mới.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+class RefreshTokenRotationTest {
+
+    private static final int RACERS = 16;
+    private static final int GENERATIONS = 5;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    RefreshTokenService refreshTokenService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void concurrentRefreshesRotateExactlyOncePerGeneration() throws Exception {
+        String cookie = refreshCookie();
+        double rotatedBefore = rotations("rotated");
+
+        for (int generation = 1; generation <= GENERATIONS; generation++) {
+            List<MvcResult> results = refreshConcurrently(cookie);
+
+            Set<String> newCookies = new HashSet<>();
+            Set<String> accessTokens = new HashSet<>();
+            for (MvcResult result : results) {
+                assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+                newCookies.add(result.getResponse().getCookie("refresh_token").getValue());
+                accessTokens.add(accessToken(result));
+            }
+            assertEquals(1, newCookies.size(), "mọi request phải nhận cùng refresh token mới");
+            assertEquals(1, accessTokens.size(), "mọi request phải nhận cùng access token mới");
+
+            String next = newCookies.iterator().next();
+            assertNotEquals(cookie, next);
+            RefreshToken row = refreshTokenRepository.findByTokenHashWithUser(TokenDigest.sha256Hex(next))
+                    .orElseThrow();
+            assertEquals(generation, row.getGeneration());
+            assertEquals(TokenDigest.sha256Hex(cookie), row.getPreviousTokenHash());
+            cookie = next;
+        }
+
+        assertEquals(GENERATIONS, rotations("rotated") - rotatedBefore, 0.0);
+    }
+
+    @Test
+    void lateRefreshAfterRotationElsewhereGetsAccessTokenWithoutCookie() throws Exception {
+        String cookie = refreshCookie();
+        MvcResult first = refresh(cookie);
+        assertEquals(200, first.getResponse().getStatus());
+
+        // giả lập request đến instance khác: không có cặp token trong bộ nhớ, chỉ còn DB
+        Cache<?, ?> rotations = (Cache<?, ?>) ReflectionTestUtils.getField(refreshTokenService, "rotations");
+        rotations.invalidateAll();
+
+        MvcResult late = refresh(cookie);
+        assertEquals(200, late.getResponse().getStatus());
+        assertNull(late.getResponse().getHeader(HttpHeaders.SET_COOKIE));
+        assertFalse(accessToken(late).isEmpty());
+    }
+
+    @Test
+    void revokedTokenIsNotServedFromGraceWindow() throws Exception {
+        String cookie = refreshCookie();
+        MvcResult rotated = refresh(cookie);
+        String current = rotated.getResponse().getCookie("refresh_token").getValue();
+
+        MvcResult logout = mvc.perform(post("/api/v1/auth/logout")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken(rotated))
+                .cookie(new Cookie("refresh_token", current)))
+                .andReturn();
+        assertEquals(200, logout.getResponse().getStatus());
+
+        assertEquals(400, refresh(cookie).getResponse().getStatus());
+        assertEquals(400, refresh(current).getResponse().getStatus());
+    }
+
+    @Test
+    void logoutWithTokenLostInRotationRaceRevokesTheSession() throws Exception {
+        String cookie = refreshCookie();
+        MvcResult rotated = refresh(cookie);
+        String current = rotated.getResponse().getCookie("refresh_token").getValue();
+
+        // tab thua race vẫn giữ token cũ và đăng xuất bằng nó trong khoảng grace
+        MvcResult logout = mvc.perform(post("/api/v1/auth/logout")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken(rotated))
+                .cookie(new Cookie("refresh_token", cookie)))
+                .andReturn();
+        assertEquals(200, logout.getResponse().getStatus());
+
+        assertTrue(refreshTokenRepository.findByTokenHashWithUser(TokenDigest.sha256Hex(current)).isEmpty());
+        assertEquals(400, refresh(cookie).getResponse().getStatus());
+        assertEquals(400, refresh(current).getResponse().getStatus());
+    }
+
+    private List<MvcResult> refreshConcurrently(String cookie) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(RACERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<MvcResult>> futures = new ArrayList<>();
+            for (int i = 0; i < RACERS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return refresh(cookie);
+                }));
+            }
+            start.countDown();
+            List<MvcResult> results = new ArrayList<>();
+            for (Future<MvcResult> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private MvcResult refresh(String cookie) throws Exception {
+        return mvc.perform(get("/api/v1/auth/refresh").cookie(new Cookie("refresh_token", cookie))).andReturn();
+    }
+
+    private String accessToken(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString())
+                .path("data").path("access_token").asText();
+    }
+
+    private double rotations(String result) {
+        return meterRegistry.get("auth.refresh.rotations").tag("result", result).counter().count();
+    }
+
+    private String refreshCookie() throws Exception {
+        return TestLogins.loginResult(mvc, TestLogins.ADMIN_EMAIL, TestLogins.ADMIN_PASSWORD)
+                .getResponse().getCookie("refresh_token").getValue();
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.config.RequestCoalescer;
+import com.example.demo.domain.response.ResUserDTO;
+import com.example.demo.repository.UserServiceRepository;
+import com.example.demo.service.UserServices;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Single-flight: request giống nhau đang chạy đồng thời dùng chung 1 lần load, request đi sau
+ * chờ có giới hạn rồi tự load, và trong lúc chờ không giữ connection nào của pool.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+        "app.coalescing.max-wait-ms=300"
+})
+class RequestCoalescingTest {
+
+    private static final int CALLERS = 8;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    RequestCoalescer requestCoalescer;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    UserServices userServices;
+
+    @Autowired
+    UserServiceRepository userServiceRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        String name = "test.shared";
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Object value = new Object();
+
+        List<Object> results = runConcurrently(CALLERS, () -> requestCoalescer.execute(name, List.of(1L, "a"), () -> {
+            loads.incrementAndGet();
+            await(release);
+            return value;
+        }), release);
+
+        assertEquals(1, loads.get());
+        results.forEach(result -> assertSame(value, result));
+        assertEquals(CALLERS - 1, calls(name, "coalesced"));
+        assertEquals((CALLERS - 1) / (double) CALLERS,
+                meterRegistry.get("request.coalescing.ratio").tag("name", name).gauge().value(), 1e-9);
+
+        // load xong thì không giữ kết quả
+        assertEquals("fresh", requestCoalescer.execute(name, List.of(1L, "a"), () -> "fresh"));
+    }
+
+    @Test
+    void waitIsBoundedAndFailuresAreShared() throws Exception {
+        String name = "test.bounded";
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> leader = executor.submit(() -> requestCoalescer.execute(name, List.of(1L), () -> {
+                await(release);
+                throw new IllegalStateException("load lỗi");
+            }));
+            waitUntilInFlight(name);
+
+            // leader chậm hơn max-wait: tự load thay vì chờ tiếp
+            assertEquals("own", requestCoalescer.execute(name, List.of(1L), () -> "own"));
+            assertEquals(1, calls(name, "timeout"));
+
+            release.countDown();
+            Exception failure = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertTrue(failure.getCause() instanceof IllegalStateException);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void identicalListingRequestsReturnTheSamePayload() throws Exception {
+        String token = TestLogins.loginAdmin(mvc, objectMapper);
+        CountDownLatch start = new CountDownLatch(1);
+        double leadersBefore = callsOrZero(RequestCoalescer.ROLES_FETCH_ALL, "leader");
+        double coalescedBefore = callsOrZero(RequestCoalescer.ROLES_FETCH_ALL, "coalesced");
+
+        List<Object> bodies = runConcurrently(CALLERS, () -> {
+            await(start);
+            MvcResult result = mvc.perform(get("/api/v1/roles/fetch-all")
+                    .param("filter", " name ~ '*' ")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                    .andReturn();
+            assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+            return result.getResponse().getContentAsString();
+        }, start);
+
+        bodies.forEach(body -> assertEquals(bodies.get(0), body));
+        assertEquals(CALLERS, callsOrZero(RequestCoalescer.ROLES_FETCH_ALL, "leader") - leadersBefore
+                + callsOrZero(RequestCoalescer.ROLES_FETCH_ALL, "coalesced") - coalescedBefore);
+    }
+
+    @Test
+    void waitingFollowersHoldNoConnection() throws Exception {
+        String token = TestLogins.loginAdmin(mvc, objectMapper);
+        long id = userServiceRepository.findByEmail(TestLogins.ADMIN_EMAIL).getId();
+        // làm nóng: JWT cache, principal cache, CatalogVersion
+        assertEquals(200, getUser(id, token));
+        ResUserDTO view = userServices.handleFindUserViewById(id);
+        HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+        double coalescedBefore = callsOrZero(RequestCoalescer.USERS_BY_ID, "coalesced");
+
+        // test giữ vai trò leader (không dùng connection), các request HTTP là follower
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService leader = Executors.newSingleThreadExecutor();
+        ExecutorService followers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            Future<Object> lead = leader.submit(() -> requestCoalescer.execute(RequestCoalescer.USERS_BY_ID,
+                    List.of(id), () -> {
+                        await(release);
+                        return view;
+                    }));
+            waitUntilInFlight(RequestCoalescer.USERS_BY_ID);
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                statuses.add(followers.submit(() -> getUser(id, token)));
+            }
+
+            // trong lúc follower chờ (max-wait 300ms) pool không có connection nào đang bị giữ
+            int maxActive = 0;
+            long until = System.currentTimeMillis() + 200;
+            while (System.currentTimeMillis() < until) {
+                maxActive = Math.max(maxActive, pool.getActiveConnections());
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            for (Future<Integer> status : statuses) {
+                assertEquals(200, status.get(30, TimeUnit.SECONDS));
+            }
+            lead.get(30, TimeUnit.SECONDS);
+            assertEquals(0, maxActive);
+            assertEquals(CALLERS, callsOrZero(RequestCoalescer.USERS_BY_ID, "coalesced") - coalescedBefore);
+        } finally {
+            release.countDown();
+            leader.shutdownNow();
+            followers.shutdownNow();
+        }
+    }
+
+    private int getUser(long id, String token) throws Exception {
+        return mvc.perform(get("/api/v1/users/" + id)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn().getResponse().getStatus();
+    }
+
+    private List<Object> runConcurrently(int callers, CheckedSupplier task, CountDownLatch release) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(task::get));
+            }
+            // cho mọi caller kịp vào hàng chờ trước khi leader trả kết quả
+            Thread.sleep(100);
+            release.countDown();
+            List<Object> results = new ArrayList<>();
+            for (Future<Object> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void waitUntilInFlight(String name) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (callsOrZero(name, "leader") == 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "leader chưa chạy");
+            Thread.sleep(10);
+        }
+    }
+
+    private double calls(String name, String result) {
+        return meterRegistry.get("request.coalescing.calls").tag("name", name).tag("result", result).counter().count();
+    }
+
+    private double callsOrZero(String name, String result) {
+        var counter = meterRegistry.find("request.coalescing.calls").tag("name", name).tag("result", result).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface CheckedSupplier {
+        Object get() throws Exception;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.demo.domain.Permission;
+import com.example.demo.domain.Role;
+import com.example.demo.repository.PermissionRepository;
+import com.example.demo.repository.RoleRepository;
+import com.example.demo.support.SqlBudget;
+import com.example.demo.support.SqlBudgetTest;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Ngân sách SQL của các API role/permission: danh sách role kèm permissions không được sinh
+ * 1 select cho mỗi role, xóa permission không được duyệt lazy Permission.roles/Role.permissions.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+@SqlBudgetTest
+@SqlBudget(value = "GET /api/v1/roles/fetch-all", max = 2)
+@SqlBudget(value = "GET /api/v1/permissions/fetch-all", max = 2)
+@SqlBudget(value = "DELETE /api/v1/permissions/{id}", max = 4)
+class RolePermissionSqlBudgetTest {
+
+    private static final int ROLES = 6;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    RoleRepository roleRepository;
+
+    @Autowired
+    PermissionRepository permissionRepository;
+
+    private String accessToken;
+
+    @BeforeEach
+    void seedRoles() throws Exception {
+        if (!roleRepository.existsByName("BUDGET_0")) {
+            List<Permission> permissions = permissionRepository.findAll();
+            for (int i = 0; i < ROLES; i++) {
+                Role role = new Role();
+                role.setName("BUDGET_" + i);
+                role.setActive(true);
+                role.setPermissions(new ArrayList<>(permissions.subList(i, i + 3)));
+                roleRepository.save(role);
+            }
+        }
+        accessToken = TestLogins.loginAdmin(mvc, objectMapper);
+    }
+
+    @Test
+    void fetchAllRolesLoadsPermissionsInOneStatement() throws Exception {
+        JsonNode data = data(perform(get("/api/v1/roles/fetch-all")));
+
+        assertTrue(data.path("result").size() > ROLES);
+        for (JsonNode role : data.path("result")) {
+            if (role.path("name").asText().startsWith("BUDGET_")) {
+                assertEquals(3, role.path("permissions").size(), role.toString());
+            }
+        }
+    }
+
+    @Test
+    void fetchAllPermissions() throws Exception {
+        JsonNode data = data(perform(get("/api/v1/permissions/fetch-all")));
+        assertFalse(data.path("result").isEmpty());
+    }
+
+    @Test
+    void deletePermissionAssignedToManyRoles() throws Exception {
+        Permission permission = new Permission();
+        permission.setName("Budget tạm");
+        permission.setApiPath("/api/v1/budget/" + System.nanoTime());
+        permission.setMethod("GET");
+        permission.setModule("BUDGET");
+        Permission saved = permissionRepository.save(permission);
+        for (Role role : roleRepository.findAll()) {
+            if (role.getName().startsWith("BUDGET_")) {
+                Role withPermissions = roleRepository.findWithPermissionsById(role.getId());
+                withPermissions.getPermissions().add(saved);
+                roleRepository.save(withPermissions);
+            }
+        }
+
+        MvcResult result = perform(delete("/api/v1/permissions/" + saved.getId()));
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        assertFalse(permissionRepository.existsById(saved.getId()));
+        assertTrue(roleRepository.findWithPermissionsById(roleRepository.findAll().stream()
+                .filter(r -> r.getName().equals("BUDGET_0")).findFirst().orElseThrow().getId())
+                .getPermissions().stream().noneMatch(p -> p.getId() == saved.getId()));
+    }
+
+    private MvcResult perform(MockHttpServletRequestBuilder request)
+            throws Exception {
+        return mvc.perform(request.header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)).andReturn();
+    }
+
+    private JsonNode data(MvcResult result) throws Exception {
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        return objectMapper.readTree(result.getResponse().getContentAsString(StandardCharsets.UTF_8)).path("data");
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.TestSocketUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.domain.User;
+import com.example.demo.service.UserServices;
+
+/**
+ * Đăng nhập Google/Facebook đi hết pipeline bất đồng bộ (HTTP thật tới OAuthStubController
+ * chạy trên cùng server), không cần mạng.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles({ "test", "oauth-stub" })
+@TestPropertySource(locations = "classpath:application-test.properties")
+class SocialLoginStubTest {
+
+    private static final int PORT = TestSocketUtils.findAvailableTcpPort();
+
+    @DynamicPropertySource
+    static void stubProvider(DynamicPropertyRegistry registry) {
+        String base = "http://localhost:" + PORT + "/oauth-stub";
+        registry.add("server.port", () -> PORT);
+        registry.add("gg-token-uri", () -> base + "/google/token");
+        registry.add("gg-user-info-uri", () -> base + "/google/userinfo");
+        registry.add("fb-token-uri", () -> base + "/facebook/token");
+        registry.add("fb-user-info-uri", () -> base + "/facebook/me?fields=id,name,email,picture.type(large)");
+    }
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    UserServices userService;
+
+    @Test
+    void googleCallbackCreatesUserAndRedirectsWithTokens() throws Exception {
+        MvcResult first = callback("google", "alice");
+        assertRedirectedWithTokens(first);
+        User user = userService.handleGetUserByUsername("alice@oauth-stub.local");
+        assertNotNull(user);
+        assertEquals("alice", user.getFirstName());
+
+        // lần 2: user đã có, kết nối tới provider lấy lại từ pool
+        assertRedirectedWithTokens(callback("google", "alice"));
+    }
+
+    @Test
+    void facebookCallbackCreatesUserAndRedirectsWithTokens() throws Exception {
+        assertRedirectedWithTokens(callback("facebook", "bob"));
+        User user = userService.handleGetUserByUsername("bob@oauth-stub.local");
+        assertNotNull(user);
+        assertEquals("Stub", user.getLastName());
+    }
+
+    @Test
+    void providerRejectionBecomesBadGateway() throws Exception {
+        MvcResult result = callback("google", "not a valid code");
+        assertEquals(502, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+    }
+
+    private MvcResult callback(String loginType, String code) throws Exception {
+        MvcResult started = mvc.perform(get("/api/v1/auth/social/callback")
+                .param("login_type", loginType)
+                .param("code", code))
+                .andReturn();
+        assertTrue(started.getRequest().isAsyncStarted(), "callback phải trả thread Tomcat ngay");
+        return mvc.perform(asyncDispatch(started)).andReturn();
+    }
+
+    private static void assertRedirectedWithTokens(MvcResult result) throws Exception {
+        assertEquals(302, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        String location = result.getResponse().getHeader(HttpHeaders.LOCATION);
+        assertTrue(location.startsWith("http://localhost:3001/login?token="), location);
+        assertNotNull(result.getResponse().getCookie("refresh_token"));
+    }
+}
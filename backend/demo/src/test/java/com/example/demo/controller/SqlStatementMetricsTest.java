@@ -0,0 +1,125 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.domain.User;
+import com.example.demo.repository.UserServiceRepository;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * /actuator/sqlstatements: câu spring-filter với giá trị lọc khác nhau gom về cùng một shape,
+ * slow-query log giới hạn số dòng và chỉ ghi kiểu tham số, không ghi giá trị. Chỉ admin xem được.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+        // mọi câu đều "chậm" để kiểm tra slow-query log
+        "app.sql.slow-query.threshold-ms=0",
+        "app.sql.slow-query.capacity=5"
+})
+class SqlStatementMetricsTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    UserServiceRepository userServiceRepository;
+
+    @Autowired
+    PasswordEncoder passwordEncoder;
+
+    @Test
+    void sqlStatementsRequireAdmin() throws Exception {
+        // SQL đã chuẩn hóa, tên thread, kiểu tham số: không cho người ngoài xem
+        assertEquals(401, mvc.perform(get("/actuator/sqlstatements")).andReturn().getResponse().getStatus());
+
+        User user = new User();
+        user.setEmail("sql-" + System.nanoTime() + "@metrics.local");
+        user.setPassword(passwordEncoder.encode("123456"));
+        user.setFirstName("Sql");
+        user.setLastName("Metrics");
+        userServiceRepository.save(user);
+        String token = TestLogins.login(mvc, objectMapper, user.getEmail(), "123456");
+
+        assertEquals(403, mvc.perform(get("/actuator/sqlstatements")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    void groupsStatementsByShapeAndKeepsBoundedSlowLog() throws Exception {
+        String token = TestLogins.loginAdmin(mvc, objectMapper);
+        for (String prefix : new String[] { "alpha", "beta", "gamma" }) {
+            MvcResult result = mvc.perform(get("/api/v1/users/fetch-all")
+                    .param("filter", "email ~ '" + prefix + "-*' and firstName : 'x" + prefix.length() + "'")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                    .andReturn();
+            assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        }
+
+        MvcResult result = mvc.perform(get("/actuator/sqlstatements")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn();
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        // actuator cũng đi qua FormarRestResponse như các API khác
+        JsonNode body = objectMapper.readTree(result.getResponse().getContentAsString(StandardCharsets.UTF_8))
+                .path("data");
+
+        JsonNode listing = null;
+        for (JsonNode shape : body.path("shapes")) {
+            String sql = shape.path("sql").asText();
+            assertTrue(!sql.contains("alpha") && !sql.contains("beta") && !sql.contains("gamma"), sql);
+            if (sql.startsWith("select") && sql.contains("join roles") && sql.contains("like")) {
+                listing = shape;
+            }
+        }
+        assertTrue(listing != null, body.path("shapes").toString());
+        assertEquals(3, listing.path("count").asLong(), listing.toString());
+        assertTrue(listing.path("maxMs").asDouble() > 0);
+
+        JsonNode slow = body.path("slowQueries");
+        assertEquals(5, slow.size());
+        // mới nhất trước: câu danh sách cuối cùng, literal của filter đã bị chuẩn hóa, chỉ còn
+        // offset/limit là tham số bind và chỉ ghi kiểu. Bỏ qua câu của thread nền (poller
+        // cache-invalidation-poller, catalog-version) có thể chen vào bất cứ lúc nào
+        JsonNode latest = null;
+        for (JsonNode entry : slow) {
+            String thread = entry.path("thread").asText();
+            if (!thread.equals("cache-invalidation-poller") && !thread.equals("catalog-version")) {
+                latest = entry;
+                break;
+            }
+        }
+        assertTrue(latest != null, slow.toString());
+        assertEquals(listing.path("shape").asText(), latest.path("shape").asText());
+        assertEquals("[\"Integer\",\"Integer\"]", latest.path("parameters").toString());
+        assertTrue(latest.path("elapsedMs").asDouble() >= 0);
+
+        MvcResult timer = mvc.perform(get("/actuator/metrics/sql.statements")
+                .param("tag", "shape:" + listing.path("shape").asText())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn();
+        assertEquals(200, timer.getResponse().getStatus(), timer.getResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.config.TokenVersionRegistry;
+import com.example.demo.domain.User;
+import com.example.demo.repository.UserServiceRepository;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+
+/**
+ * Khoá / xoá / logout làm access token đã phát hành bị từ chối ngay (401), không đợi exp.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+class TokenRevocationTest {
+
+    private static final String PASSWORD = "123456";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    UserServiceRepository userServiceRepository;
+
+    @Autowired
+    PasswordEncoder passwordEncoder;
+
+    @Autowired
+    TokenVersionRegistry tokenVersionRegistry;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private String adminToken;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        adminToken = TestLogins.loginAdmin(mvc, objectMapper);
+    }
+
+    @Test
+    void blockedUserTokenIsRejectedEvenWhenAlreadyCached() throws Exception {
+        User user = createUser();
+        String token = accessToken(TestLogins.loginResult(mvc, user.getEmail(), PASSWORD));
+        assertEquals(200, account(token));
+        double revokedBefore = meterRegistry.get("auth.token.revoked").counter().count();
+
+        MvcResult blocked = mvc.perform(put("/api/v1/users/changeActivity/" + user.getId())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken))
+                .andReturn();
+        assertEquals(200, blocked.getResponse().getStatus(), blocked.getResponse().getContentAsString());
+
+        assertEquals(1, tokenVersionRegistry.minVersion(user.getId()));
+        assertEquals(401, account(token));
+        assertTrue(meterRegistry.get("auth.token.revoked").counter().count() > revokedBefore);
+    }
+
+    @Test
+    void logoutRevokesAccessTokenAndNewLoginWorks() throws Exception {
+        User user = createUser();
+        MvcResult session = TestLogins.loginResult(mvc, user.getEmail(), PASSWORD);
+        String token = accessToken(session);
+
+        MvcResult logout = mvc.perform(post("/api/v1/auth/logout")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .cookie(new Cookie("refresh_token", session.getResponse().getCookie("refresh_token").getValue())))
+                .andReturn();
+        assertEquals(200, logout.getResponse().getStatus(), logout.getResponse().getContentAsString());
+
+        assertEquals(401, account(token));
+        assertEquals(200, account(accessToken(TestLogins.loginResult(mvc, user.getEmail(), PASSWORD))));
+    }
+
+    @Test
+    void deletedUserTokenIsRejected() throws Exception {
+        User user = createUser();
+        String token = accessToken(TestLogins.loginResult(mvc, user.getEmail(), PASSWORD));
+
+        MvcResult deleted = mvc.perform(delete("/api/v1/users/" + user.getId())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken))
+                .andReturn();
+        assertEquals(200, deleted.getResponse().getStatus(), deleted.getResponse().getContentAsString());
+
+        assertEquals(TokenVersionRegistry.DELETED, tokenVersionRegistry.minVersion(user.getId()));
+        assertEquals(401, account(token));
+    }
+
+    private User createUser() {
+        User user = new User();
+        user.setEmail("revocation-" + System.nanoTime() + "@token.local");
+        user.setPassword(passwordEncoder.encode(PASSWORD));
+        user.setFirstName("Token");
+        user.setLastName("Revocation");
+        return userServiceRepository.save(user);
+    }
+
+    private int account(String token) throws Exception {
+        return mvc.perform(get("/api/v1/auth/account")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn().getResponse().getStatus();
+    }
+
+    private String accessToken(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString())
+                .path("data").path("access_token").asText();
+    }
+}
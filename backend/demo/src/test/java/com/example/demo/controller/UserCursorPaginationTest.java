@@ -0,0 +1,177 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.domain.User;
+import com.example.demo.repository.UserServiceRepository;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * /users/fetch-all?cursor=: đi hết danh sách theo meta.next, không trùng không sót
+ * (kể cả nhiều user cùng createdAt hoặc createdAt null) và vẫn áp dụng @Filter.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+class UserCursorPaginationTest {
+
+    private static final int USERS = 230;
+    private static final String FILTER = "email ~ 'cursor-*'";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    UserServiceRepository userServiceRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private String accessToken;
+
+    @BeforeEach
+    void seedUsers() throws Exception {
+        if (!userServiceRepository.existsByEmail("cursor-0@paging.local")) {
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                User user = new User();
+                user.setEmail("cursor-" + i + "@paging.local");
+                user.setFirstName("Cursor");
+                user.setLastName(String.valueOf(i));
+                users.add(user);
+            }
+            userServiceRepository.saveAll(users);
+            // một nửa cùng createdAt: thứ tự phải dựa thêm vào id
+            jdbcTemplate.update("update users set created_at = ? where email like 'cursor-1%'",
+                    Timestamp.from(Instant.parse("2024-01-01T00:00:00Z")));
+        }
+        accessToken = TestLogins.loginAdmin(mvc, objectMapper);
+    }
+
+    @Test
+    void walksAllFilteredUsersOnceInCreatedAtIdOrder() throws Exception {
+        Set<Long> seen = new LinkedHashSet<>();
+        String cursor = "";
+        int pages = 0;
+        Instant previousCreatedAt = Instant.MIN;
+        long previousId = Long.MIN_VALUE;
+        do {
+            JsonNode data = fetch(cursor, 50);
+            assertEquals(50, data.path("meta").path("pageSize").asInt());
+            for (JsonNode user : data.path("result")) {
+                Instant createdAt = Instant.parse(user.path("createdAt").asText());
+                long id = user.path("id").asLong();
+                assertTrue(createdAt.isAfter(previousCreatedAt)
+                        || (createdAt.equals(previousCreatedAt) && id > previousId), "sai thứ tự tại id " + id);
+                assertTrue(seen.add(id), "trùng id " + id);
+                assertTrue(user.path("email").asText().startsWith("cursor-"));
+                previousCreatedAt = createdAt;
+                previousId = id;
+            }
+            cursor = data.path("meta").path("next").isNull() ? null : data.path("meta").path("next").asText();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(USERS, seen.size());
+        assertEquals(5, pages);
+    }
+
+    @Test
+    void lastPageHasNoNextCursorAndOffsetModeIsUnchanged() throws Exception {
+        JsonNode all = fetch("", USERS);
+        assertEquals(USERS, all.path("result").size());
+        assertTrue(all.path("meta").path("next").isNull());
+
+        MvcResult offset = mvc.perform(get("/api/v1/users/fetch-all")
+                .param("filter", FILTER)
+                .param("page", "2")
+                .param("size", "100")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andReturn();
+        JsonNode meta = objectMapper.readTree(offset.getResponse().getContentAsString()).path("data").path("meta");
+        assertEquals(USERS, meta.path("total").asLong());
+        assertFalse(meta.has("next"));
+    }
+
+    @Test
+    void walksUsersWithNullCreatedAtFirst() throws Exception {
+        String prefix = "nullcursor-" + System.nanoTime() + "-";
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setEmail(prefix + i + "@paging.local");
+            users.add(user);
+        }
+        userServiceRepository.saveAll(users);
+        // dòng ghi ngoài JPA không qua @PrePersist
+        jdbcTemplate.update("update users set created_at = null where email in (?, ?)",
+                prefix + "0@paging.local", prefix + "2@paging.local");
+
+        List<String> emails = new ArrayList<>();
+        List<Boolean> nullCreatedAt = new ArrayList<>();
+        String cursor = "";
+        do {
+            JsonNode data = fetch("email ~ '" + prefix + "*'", cursor, 1);
+            for (JsonNode user : data.path("result")) {
+                emails.add(user.path("email").asText());
+                nullCreatedAt.add(user.path("createdAt").isNull());
+            }
+            cursor = data.path("meta").path("next").isNull() ? null : data.path("meta").path("next").asText();
+        } while (cursor != null);
+
+        assertEquals(List.of(prefix + "0@paging.local", prefix + "2@paging.local", prefix + "1@paging.local"), emails);
+        assertEquals(List.of(true, true, false), nullCreatedAt);
+    }
+
+    @Test
+    void rejectsTamperedCursor() throws Exception {
+        MvcResult result = mvc.perform(get("/api/v1/users/fetch-all")
+                .param("cursor", "not-a-cursor")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andReturn();
+        assertEquals(400, result.getResponse().getStatus());
+    }
+
+    private JsonNode fetch(String cursor, int size) throws Exception {
+        return fetch(FILTER, cursor, size);
+    }
+
+    private JsonNode fetch(String filter, String cursor, int size) throws Exception {
+        MvcResult result = mvc.perform(get("/api/v1/users/fetch-all")
+                .param("filter", filter)
+                .param("cursor", cursor)
+                .param("size", String.valueOf(size))
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andReturn();
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        return objectMapper.readTree(result.getResponse().getContentAsString()).path("data");
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.example.demo.service.UserServices;
+import com.example.demo.util.UserExportWriter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * Export 100k user (~30MB CSV): giữa chừng, heap còn giữ lại sau GC phải nhỏ hơn nhiều so với
+ * dữ liệu đã ghi (không gom cả kết quả vào bộ nhớ) và lượt export chỉ giữ 1 connection.
+ *
+ * Gọi thẳng service với stream đếm byte: MockMvc giữ cả body response trong bộ nhớ. H2 chạy
+ * LAZY_QUERY_EXECUTION để chính database không dựng sẵn cả result set trong heap.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:export-memory-${random.uuid};DB_CLOSE_DELAY=-1;MODE=MySQL;LAZY_QUERY_EXECUTION=1"
+})
+class UserExportMemoryTest {
+
+    private static final int USERS = 100_000;
+    private static final long SAMPLE_AFTER_BYTES = 12L * 1024 * 1024;
+    private static final long MAX_RETAINED_BYTES = 8L * 1024 * 1024;
+
+    @Autowired
+    UserServices userService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Test
+    void exportStreamsWithFlatMemoryOnOneConnection() throws Exception {
+        jdbcTemplate.update("insert into users (email, password, first_name, last_name, created_at, token_version,"
+                + " row_version) select 'memory-' || x || '@export.local', 'x', repeat('A', 200), 'Memory',"
+                + " current_timestamp, 0, 0 from system_range(1, " + USERS + ")");
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+        long baseline = usedAfterGc(memory);
+
+        SamplingOutputStream out = new SamplingOutputStream(memory, pool);
+        userService.handleExportUsers(null, UserExportWriter.CSV, out);
+
+        assertTrue(out.written > 2 * SAMPLE_AFTER_BYTES, "export chỉ ghi " + out.written + " byte");
+        assertTrue(out.retained >= 0, "chưa lấy mẫu giữa chừng");
+        long retained = out.retained - baseline;
+        assertTrue(retained < MAX_RETAINED_BYTES, "heap giữ lại " + retained / 1024 + "KB giữa lúc export");
+        assertEquals(1, out.activeConnections);
+    }
+
+    private static long usedAfterGc(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static final class SamplingOutputStream extends OutputStream {
+
+        private final MemoryMXBean memory;
+        private final HikariPoolMXBean pool;
+        long written;
+        long retained = -1;
+        int activeConnections = -1;
+
+        SamplingOutputStream(MemoryMXBean memory, HikariPoolMXBean pool) {
+            this.memory = memory;
+            this.pool = pool;
+        }
+
+        @Override
+        public void write(int b) {
+            written(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            written(len);
+        }
+
+        private void written(int bytes) {
+            written += bytes;
+            if (retained < 0 && written > SAMPLE_AFTER_BYTES) {
+                activeConnections = pool.getActiveConnections();
+                retained = usedAfterGc(memory);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.domain.User;
+import com.example.demo.repository.UserServiceRepository;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * /users/export: NDJSON/CSV theo @Filter, nén gzip khi Accept-Encoding nhận gzip (q > 0).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+class UserExportTest {
+
+    private static final int USERS = 1500;
+    private static final String FILTER = "email ~ 'export-*'";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    UserServiceRepository userServiceRepository;
+
+    private String accessToken;
+
+    @BeforeEach
+    void seedUsers() throws Exception {
+        if (!userServiceRepository.existsByEmail("export-0@export.local")) {
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                User user = new User();
+                user.setEmail("export-" + i + "@export.local");
+                user.setFirstName("Export");
+                user.setLastName(String.valueOf(i));
+                // công thức Excel và dấu phẩy/ngoặc kép phải được escape trong CSV
+                user.setBio(i == 0 ? "=HYPERLINK(\"http://evil\")" : "bio, \"quoted\" " + i);
+                users.add(user);
+            }
+            userServiceRepository.saveAll(users);
+        }
+        accessToken = TestLogins.loginAdmin(mvc, objectMapper);
+    }
+
+    @Test
+    void exportsFilteredUsersAsGzippedNdjson() throws Exception {
+        MvcResult result = mvc.perform(get("/api/v1/users/export")
+                .param("filter", FILTER)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andReturn();
+
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        assertEquals("gzip", result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(result.getResponse().getContentType().startsWith("application/x-ndjson"));
+
+        String[] lines = gunzip(result.getResponse().getContentAsByteArray()).split("\n");
+        assertEquals(USERS, lines.length);
+        long previousId = 0;
+        for (String line : lines) {
+            JsonNode user = objectMapper.readTree(line);
+            assertTrue(user.path("email").asText().startsWith("export-"));
+            assertTrue(user.path("id").asLong() > previousId);
+            previousId = user.path("id").asLong();
+        }
+    }
+
+    @Test
+    void gzipsOnlyWhenAcceptEncodingAllowsIt() throws Exception {
+        Map<String, Boolean> cases = new LinkedHashMap<>();
+        cases.put("gzip;q=0", false);
+        cases.put("x-gzip-unsupported", false);
+        cases.put("deflate, br", false);
+        cases.put("*, gzip;q=0", false);
+        cases.put("gzip;q=abc", false);
+        cases.put("deflate, GZIP;q=0.1", true);
+        cases.put("*;q=0.5", true);
+        cases.put("br;q=1.0, gzip ; q=0.8", true);
+
+        for (Map.Entry<String, Boolean> entry : cases.entrySet()) {
+            MvcResult result = mvc.perform(get("/api/v1/users/export")
+                    .param("filter", "email : 'export-0@export.local'")
+                    .header(HttpHeaders.ACCEPT_ENCODING, entry.getKey())
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                    .andReturn();
+            assertEquals(200, result.getResponse().getStatus(), entry.getKey());
+            assertEquals(entry.getValue() ? "gzip" : null,
+                    result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING), entry.getKey());
+            byte[] body = result.getResponse().getContentAsByteArray();
+            String ndjson = entry.getValue() ? gunzip(body) : new String(body, StandardCharsets.UTF_8);
+            assertTrue(ndjson.contains("export-0@export.local"), entry.getKey());
+        }
+    }
+
+    @Test
+    void exportsCsvWithEscapedValues() throws Exception {
+        MvcResult result = mvc.perform(get("/api/v1/users/export")
+                .param("filter", "email : 'export-0@export.local' or email : 'export-1@export.local'")
+                .param("format", "csv")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andReturn();
+
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        assertEquals(null, result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(result.getResponse().getHeader(HttpHeaders.CONTENT_DISPOSITION).contains("users.csv"));
+
+        String[] rows = result.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(3, rows.length);
+        assertTrue(rows[0].startsWith("﻿id,email,fullname"));
+        assertTrue(rows[1].contains(",\"'=HYPERLINK(\"\"http://evil\"\")\","), rows[1]);
+        assertTrue(rows[2].contains(",\"bio, \"\"quoted\"\" 1\","), rows[2]);
+    }
+
+    @Test
+    void rejectsUnknownFormat() throws Exception {
+        MvcResult result = mvc.perform(get("/api/v1/users/export")
+                .param("format", "xlsx")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andReturn();
+        assertEquals(400, result.getResponse().getStatus());
+    }
+
+    private static String gunzip(byte[] body) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
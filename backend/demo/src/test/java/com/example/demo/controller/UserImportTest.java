@@ -0,0 +1,196 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.domain.User;
+import com.example.demo.repository.UserServiceRepository;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * /users/import: chạy nền theo chunk, bỏ qua dòng lỗi (ghi vào file lỗi) và user import được
+ * đăng nhập bằng mật khẩu trong file. Dòng bị DB từ chối giữa chừng chỉ làm hỏng dòng đó.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+        "app.users.import.chunk-size=100",
+        "app.users.import.batch-size=30"
+})
+class UserImportTest {
+
+    private static final int VALID_ROWS = 250;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    UserServiceRepository userServiceRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Test
+    void importsValidRowsAndReportsRejectedOnes() throws Exception {
+        StringBuilder csv = new StringBuilder("email,password,first_name,last_name,role_id\r\n");
+        for (int i = 0; i < VALID_ROWS; i++) {
+            csv.append("import-").append(i).append("@import.local,secret-").append(i)
+                    .append(",\"Nguyễn, Văn\",").append(i).append(",1\r\n");
+        }
+        csv.append("import-7@import.local,again,Dup,Row,\r\n");   // trùng trong file
+        csv.append("admin@gmail.com,123,Existing,User,\r\n");      // đã có trong DB
+        csv.append("not-an-email,123,Bad,Email,\r\n");
+        csv.append("import-x@import.local,,No,Password,\r\n");
+        csv.append("import-y@import.local,123,Bad,Role,999\r\n");
+
+        String token = TestLogins.loginAdmin(mvc, objectMapper);
+        MvcResult started = mvc.perform(multipart("/api/v1/users/import")
+                .file(new MockMultipartFile("file", "users.csv", "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8)))
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn();
+        assertEquals(202, started.getResponse().getStatus(), started.getResponse().getContentAsString());
+        String id = data(started).path("id").asText();
+
+        JsonNode progress = awaitFinished(id, token);
+        assertEquals("COMPLETED", progress.path("status").asText(), progress.toString());
+        assertEquals(VALID_ROWS + 5, progress.path("total").asLong());
+        assertEquals(VALID_ROWS + 5, progress.path("processed").asLong());
+        assertEquals(VALID_ROWS, progress.path("imported").asLong());
+        assertEquals(5, progress.path("failed").asLong());
+
+        User imported = userServiceRepository.findByEmail("import-42@import.local");
+        assertEquals("Nguyễn, Văn", imported.getFirstName());
+        assertEquals(1L, imported.getRole().getId());
+        assertTrue(imported.getCreatedAt() != null);
+        TestLogins.login(mvc, objectMapper, "import-42@import.local", "secret-42");
+
+        MvcResult errors = mvc.perform(get("/api/v1/users/import/" + id + "/errors")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn();
+        assertEquals(200, errors.getResponse().getStatus());
+        String[] lines = errors.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(6, lines.length);
+        assertEquals("line,email,error", lines[0]);
+        // dòng lỗi ghi theo lúc phát hiện: lỗi dữ liệu ngay khi đọc, email đã tồn tại khi xử lý chunk
+        String body = String.join("\n", lines);
+        assertTrue(body.contains((VALID_ROWS + 2) + ",\"import-7@import.local\",\"email bị trùng"), body);
+        assertTrue(body.contains((VALID_ROWS + 3) + ",\"admin@gmail.com\",\"Email đã tồn tại\""), body);
+        assertTrue(body.contains((VALID_ROWS + 6) + ",\"import-y@import.local\",\"Role với id = 999"), body);
+    }
+
+    @Test
+    void rowsRejectedByDatabaseDoNotFailTheJob() throws Exception {
+        String raced = "race-" + System.nanoTime() + "@import.local";
+        // request khác tạo user cùng email ngay sau câu IN kiểm tra email của chunk
+        doAnswer(invocation -> {
+            Object existing = invocation.callRealMethod();
+            Map<?, ?> params = invocation.getArgument(1);
+            if (((Collection<?>) params.get("emails")).contains(raced)) {
+                jdbcTemplate.update("insert into users (email, password, created_at) values (?, 'x', current_timestamp)",
+                        raced);
+            }
+            return existing;
+        }).when(namedParameterJdbcTemplate).queryForList(argThat(sql -> sql.startsWith("select email from users")),
+                anyMap(), eq(String.class));
+
+        String prefix = "chunked-" + System.nanoTime() + "-";
+        StringBuilder csv = new StringBuilder("email,password,first_name,last_name\r\n");
+        for (int i = 0; i < VALID_ROWS; i++) {
+            if (i == 120) {
+                csv.append(prefix).append("long@import.local,123,").append("A".repeat(256)).append(",Long\r\n");
+            }
+            if (i == 150) {
+                csv.append(raced).append(",123,Race,Row\r\n");
+            }
+            csv.append(prefix).append(i).append("@import.local,secret,Chunk,").append(i).append("\r\n");
+        }
+
+        String token = TestLogins.loginAdmin(mvc, objectMapper);
+        MvcResult started = mvc.perform(multipart("/api/v1/users/import")
+                .file(new MockMultipartFile("file", "users.csv", "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8)))
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn();
+        assertEquals(202, started.getResponse().getStatus(), started.getResponse().getContentAsString());
+        String id = data(started).path("id").asText();
+
+        JsonNode progress = awaitFinished(id, token);
+        assertEquals("COMPLETED", progress.path("status").asText(), progress.toString());
+        assertEquals(VALID_ROWS + 2, progress.path("processed").asLong());
+        assertEquals(VALID_ROWS, progress.path("imported").asLong());
+        assertEquals(2, progress.path("failed").asLong());
+        assertEquals(VALID_ROWS, jdbcTemplate.queryForObject("select count(*) from users where email like ?",
+                Integer.class, prefix + "%"));
+        // các dòng cùng chunk với dòng trùng vẫn được ghi
+        assertTrue(userServiceRepository.findByEmail(prefix + "149@import.local") != null);
+        assertTrue(userServiceRepository.findByEmail(prefix + "150@import.local") != null);
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from users where email = ?", Integer.class,
+                raced));
+
+        String body = mvc.perform(get("/api/v1/users/import/" + id + "/errors")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertTrue(body.contains("122,\"" + prefix + "long@import.local\",\"first_name dài quá 255"), body);
+        assertTrue(body.contains("153,\"" + raced + "\",\"Email đã tồn tại\""), body);
+    }
+
+    @Test
+    void rejectsNonCsvUpload() throws Exception {
+        MvcResult result = mvc.perform(multipart("/api/v1/users/import")
+                .file(new MockMultipartFile("file", "users.xlsx", "application/octet-stream", new byte[] { 1 }))
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + TestLogins.loginAdmin(mvc, objectMapper)))
+                .andReturn();
+        assertEquals(400, result.getResponse().getStatus());
+    }
+
+    private JsonNode awaitFinished(String id, String token) throws Exception {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (true) {
+            JsonNode progress = data(mvc.perform(get("/api/v1/users/import/" + id)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                    .andReturn());
+            String status = progress.path("status").asText();
+            if (!"PENDING".equals(status) && !"RUNNING".equals(status)) {
+                return progress;
+            }
+            assertTrue(System.currentTimeMillis() < deadline, "import chưa xong: " + progress);
+            Thread.sleep(50);
+        }
+    }
+
+    private JsonNode data(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString(StandardCharsets.UTF_8)).path("data");
+    }
+}
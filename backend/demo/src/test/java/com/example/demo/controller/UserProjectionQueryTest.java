@@ -0,0 +1,168 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.demo.domain.Role;
+import com.example.demo.domain.User;
+import com.example.demo.repository.RoleRepository;
+import com.example.demo.repository.UserServiceRepository;
+import com.example.demo.support.RecordedRequest;
+import com.example.demo.support.SqlBudget;
+import com.example.demo.support.SqlBudgetTest;
+import com.example.demo.support.SqlRecorder;
+import com.example.demo.support.TestLogins;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Danh sách / chi tiết user đọc bằng projection: mỗi request chỉ 1 câu select trên users
+ * (cộng COUNT cho phân trang offset), role lấy bằng join chứ không phải 1 select cho mỗi role
+ * (@SqlBudget), và không câu nào đọc cột password.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:application-test.properties")
+@SqlBudgetTest
+@SqlBudget(value = "GET /api/v1/users/fetch-all", max = 2)
+@SqlBudget(value = "GET /api/v1/users/{id}", max = 1)
+class UserProjectionQueryTest {
+
+    private static final int USERS = 40;
+    private static final String FILTER = "email ~ 'projection-*'";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    UserServiceRepository userServiceRepository;
+
+    @Autowired
+    RoleRepository roleRepository;
+
+    private String accessToken;
+    private MvcResult lastResult;
+
+    @BeforeEach
+    void seedUsers() throws Exception {
+        if (!userServiceRepository.existsByEmail("projection-0@projection.local")) {
+            // vài role khác nhau: với entity + @ManyToOne EAGER mỗi role là thêm 1 câu select
+            List<Role> roles = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Role role = new Role();
+                role.setName("PROJECTION_" + i);
+                roles.add(roleRepository.save(role));
+            }
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                User user = new User();
+                user.setEmail("projection-" + i + "@projection.local");
+                user.setPassword("{bcrypt}hash-" + i);
+                user.setFirstName("Projection");
+                user.setLastName(String.valueOf(i));
+                user.setRole(roles.get(i % roles.size()));
+                users.add(user);
+            }
+            userServiceRepository.saveAll(users);
+        }
+        accessToken = TestLogins.loginAdmin(mvc, objectMapper);
+    }
+
+    @Test
+    void offsetListingRunsOneSelectAndOneCount() throws Exception {
+        List<String> sql = capture(get("/api/v1/users/fetch-all").param("filter", FILTER)
+                .param("page", "1").param("size", "10"));
+
+        JsonNode data = data(lastResult);
+        assertEquals(USERS, data.path("meta").path("total").asLong());
+        assertEquals(10, data.path("result").size());
+        JsonNode first = data.path("result").get(0);
+        assertTrue(first.path("fullname").asText().startsWith("Projection "), first.toString());
+        assertTrue(first.path("role").path("name").asText().startsWith("PROJECTION_"));
+
+        assertEquals(2, sql.size(), sql.toString());
+        assertTrue(sql.stream().anyMatch(s -> s.contains("count(")), sql.toString());
+        assertProjection(sql);
+    }
+
+    @Test
+    void cursorListingRunsOneSelect() throws Exception {
+        List<String> sql = capture(get("/api/v1/users/fetch-all").param("filter", FILTER)
+                .param("cursor", "").param("size", "25"));
+
+        JsonNode data = data(lastResult);
+        assertEquals(25, data.path("result").size());
+        assertFalse(data.path("meta").path("next").isNull());
+
+        assertEquals(1, sql.size(), sql.toString());
+        assertProjection(sql);
+    }
+
+    @Test
+    void lookupByIdRunsOneSelect() throws Exception {
+        long id = userServiceRepository.findByEmail("projection-3@projection.local").getId();
+        List<String> sql = capture(get("/api/v1/users/" + id));
+
+        JsonNode data = data(lastResult);
+        assertEquals("projection-3@projection.local", data.path("email").asText());
+        assertEquals("PROJECTION_3", data.path("role").path("name").asText());
+
+        assertEquals(1, sql.size(), sql.toString());
+        assertProjection(sql);
+    }
+
+    @Test
+    void lookupOfMissingUserIsStillBadRequest() throws Exception {
+        capture(get("/api/v1/users/987654321"));
+        assertEquals(400, lastResult.getResponse().getStatus());
+    }
+
+    /**
+     * Câu SQL của đúng request này (SqlRecordingFilter bọc cả phần xác thực/phân quyền)
+     */
+    private List<String> capture(MockHttpServletRequestBuilder request) throws Exception {
+        SqlRecorder.reset();
+        lastResult = mvc.perform(request.header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)).andReturn();
+        List<String> sql = new ArrayList<>();
+        for (RecordedRequest recorded : SqlRecorder.requests()) {
+            recorded.statements().forEach(statement -> sql.add(statement.toLowerCase(Locale.ROOT)));
+        }
+        return sql;
+    }
+
+    private static void assertProjection(List<String> sql) {
+        for (String s : sql) {
+            assertFalse(s.contains("password"), "đọc cột password: " + s);
+            assertFalse(s.contains("refresh_token"), "đọc cột token: " + s);
+            // role lấy bằng join trong cùng câu, không có select riêng trên roles
+            assertTrue(s.contains("count(") || s.contains("join roles"), s);
+        }
+    }
+
+    private JsonNode data(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString(StandardCharsets.UTF_8)).path("data");
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo.support;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Các câu SQL một request đã chạy. request có dạng "GET /api/v1/roles/fetch-all" (pattern của
+ * handler, không phải URI thật, để /users/{id} với id nào cũng gom chung một budget).
+ */
+public record RecordedRequest(String request, List<String> statements) {
+
+    /**
+     * Số lần chạy của mỗi câu lệnh (Hibernate dùng tham số ? nên cùng một câu trên nhiều id
+     * có cùng chuỗi SQL) — câu lặp lại là dấu hiệu N+1
+     */
+    public Map<String, Integer> repeats() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String statement : statements) {
+            counts.merge(statement, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    public String describe() {
+        StringBuilder sb = new StringBuilder(request).append(" chạy ").append(statements.size()).append(" câu SQL:");
+        for (int i = 0; i < statements.size(); i++) {
+            sb.append("\n  ").append(i + 1).append(". ").append(statements.get(i));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.support;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Ngân sách SQL cho một endpoint, vd @SqlBudget(value = "GET /api/v1/roles/fetch-all", max = 2).
+ * Đặt trên class (áp dụng cho mọi test) hoặc trên method; mỗi request khớp trong test phải chạy
+ * tối đa max câu lệnh và không câu nào lặp quá maxRepeats lần (N+1). Cần @SqlBudgetTest.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Repeatable(SqlBudgets.class)
+public @interface SqlBudget {
+
+    /**
+     * "METHOD /pattern" đúng như trong @RequestMapping
+     */
+    String value();
+
+    int max();
+
+    int maxRepeats() default 1;
+}
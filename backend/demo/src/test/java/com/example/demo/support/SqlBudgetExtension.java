@@ -0,0 +1,107 @@
+package com.example.demo.support;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.opentest4j.AssertionFailedError;
+
+/**
+ * Xóa bản ghi trước mỗi test; sau test đối chiếu mọi request đã ghi với @SqlBudget của class và
+ * method, vượt ngân sách hoặc có câu lặp (N+1) thì test fail kèm danh sách câu SQL.
+ *
+ * Budget không khớp request nào (gõ sai pattern, handler đổi mapping) cũng fail, không âm thầm
+ * thành no-op: budget trên method phải khớp trong chính test đó, budget trên class phải khớp
+ * trong ít nhất một test của class (kiểm tra ở afterAll).
+ */
+public class SqlBudgetExtension implements BeforeEachCallback, AfterEachCallback, AfterAllCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(SqlBudgetExtension.class);
+    private static final String MATCHED = "matched";
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        SqlRecorder.reset();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        List<SqlBudget> classBudgets = classBudgets(context);
+        List<SqlBudget> methodBudgets = AnnotationSupport.findRepeatableAnnotations(context.getRequiredTestMethod(),
+                SqlBudget.class);
+        List<SqlBudget> budgets = new ArrayList<>(classBudgets);
+        budgets.addAll(methodBudgets);
+
+        Set<String> matched = new HashSet<>();
+        List<String> violations = new ArrayList<>();
+        for (RecordedRequest recorded : SqlRecorder.requests()) {
+            for (SqlBudget budget : budgets) {
+                if (budget.value().equals(recorded.request())) {
+                    matched.add(budget.value());
+                    check(budget, recorded, violations);
+                }
+            }
+        }
+        for (SqlBudget budget : methodBudgets) {
+            if (!matched.contains(budget.value())) {
+                violations.add(unmatched(budget));
+            }
+        }
+        matchedInClass(context).addAll(matched);
+        if (!violations.isEmpty()) {
+            throw new AssertionFailedError(String.join("\n\n", violations));
+        }
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        Set<String> matched = matchedInClass(context);
+        List<String> violations = new ArrayList<>();
+        for (SqlBudget budget : classBudgets(context)) {
+            if (!matched.contains(budget.value())) {
+                violations.add(unmatched(budget));
+            }
+        }
+        if (!violations.isEmpty()) {
+            throw new AssertionFailedError(String.join("\n\n", violations));
+        }
+    }
+
+    private static List<SqlBudget> classBudgets(ExtensionContext context) {
+        return AnnotationSupport.findRepeatableAnnotations(context.getRequiredTestClass(), SqlBudget.class);
+    }
+
+    // store ở context của class: afterEach (context method) ghi qua parent, afterAll đọc trực tiếp
+    @SuppressWarnings("unchecked")
+    private static Set<String> matchedInClass(ExtensionContext context) {
+        ExtensionContext classContext = context.getTestMethod().isPresent()
+                ? context.getParent().orElseThrow()
+                : context;
+        return classContext.getStore(NAMESPACE).getOrComputeIfAbsent(MATCHED, key -> new HashSet<String>(), Set.class);
+    }
+
+    private static String unmatched(SqlBudget budget) {
+        return "@SqlBudget(\"" + budget.value() + "\") không khớp request nào đã ghi (sai pattern, "
+                + "handler đã đổi mapping, hoặc test không gọi endpoint này)";
+    }
+
+    private static void check(SqlBudget budget, RecordedRequest recorded, List<String> violations) {
+        if (recorded.statements().size() > budget.max()) {
+            violations.add("Vượt ngân sách SQL (tối đa " + budget.max() + "): " + recorded.describe());
+        }
+        for (Map.Entry<String, Integer> repeat : recorded.repeats().entrySet()) {
+            if (repeat.getValue() > budget.maxRepeats()) {
+                violations.add("Nghi N+1, câu lệnh lặp " + repeat.getValue() + " lần trong " + recorded.request()
+                        + ": " + repeat.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.support;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Bật ghi SQL theo request (SqlRecordingFilter) và kiểm tra @SqlBudget sau mỗi test
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@ExtendWith(SqlBudgetExtension.class)
+@Import(SqlRecordingFilter.class)
+public @interface SqlBudgetTest {
+}
@@ -0,0 +1,85 @@
+package com.example.demo.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Ghi lại câu SQL Hibernate chuẩn bị trong lúc xử lý từng HTTP request (xem SqlRecordingFilter).
+ * Hibernate tự tạo instance từ tên class (hibernate.session_factory.statement_inspector trong
+ * application-test.properties) nên trạng thái là static; chỉ câu lệnh chạy trên chính thread
+ * của request mới được tính, job nền (import...) không bị gán nhầm.
+ */
+public class SqlRecorder implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> CURRENT = new ThreadLocal<>();
+    private static final List<RecordedRequest> REQUESTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        List<String> statements = CURRENT.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    static void begin() {
+        CURRENT.set(new ArrayList<>());
+    }
+
+    static void end(String request) {
+        List<String> statements = CURRENT.get();
+        CURRENT.remove();
+        if (statements != null) {
+            REQUESTS.add(new RecordedRequest(request, List.copyOf(statements)));
+        }
+    }
+
+    /**
+     * Các câu SQL action chạy trên thread hiện tại (không tính thread nền như poller của
+     * CacheInvalidationLog, khác với Statistics của SessionFactory)
+     */
+    public static List<String> record(Runnable action) {
+        List<String> outer = CURRENT.get();
+        List<String> statements = new ArrayList<>();
+        CURRENT.set(statements);
+        try {
+            action.run();
+        } finally {
+            if (outer != null) {
+                outer.addAll(statements);
+                CURRENT.set(outer);
+            } else {
+                CURRENT.remove();
+            }
+        }
+        return List.copyOf(statements);
+    }
+
+    /**
+     * Các request đã ghi từ lần reset() gần nhất, theo thứ tự hoàn thành
+     */
+    public static List<RecordedRequest> requests() {
+        return List.copyOf(REQUESTS);
+    }
+
+    /**
+     * Request cuối cùng khớp "METHOD /pattern", null nếu chưa có
+     */
+    public static RecordedRequest last(String request) {
+        RecordedRequest found = null;
+        for (RecordedRequest recorded : REQUESTS) {
+            if (recorded.request().equals(request)) {
+                found = recorded;
+            }
+        }
+        return found;
+    }
+
+    public static void reset() {
+        REQUESTS.clear();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Đăng nhập qua /api/v1/auth/login trong test MockMvc. Admin do DatabaseInitializer tạo sẵn.
+ */
+public final class TestLogins {
+
+    public static final String ADMIN_EMAIL = "admin@gmail.com";
+    public static final String ADMIN_PASSWORD = "123456";
+
+    private TestLogins() {
+    }
+
+    /**
+     * Access token của admin
+     */
+    public static String loginAdmin(MockMvc mvc, ObjectMapper objectMapper) throws Exception {
+        return login(mvc, objectMapper, ADMIN_EMAIL, ADMIN_PASSWORD);
+    }
+
+    /**
+     * Access token của user, fail test nếu đăng nhập không trả 200
+     */
+    public static String login(MockMvc mvc, ObjectMapper objectMapper, String email, String password)
+            throws Exception {
+        MvcResult result = loginResult(mvc, email, password);
+        return objectMapper.readTree(result.getResponse().getContentAsString())
+                .path("data").path("access_token").asText();
+    }
+
+    /**
+     * Response đăng nhập đầy đủ (cookie refresh_token, ...)
+     */
+    public static MvcResult loginResult(MockMvc mvc, String email, String password) throws Exception {
+        MvcResult result = mvc.perform(post("/api/v1/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}"))
+                .andReturn();
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        return result;
+    }
+}